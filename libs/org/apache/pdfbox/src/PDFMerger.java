@@ -27,6 +27,8 @@ import org.apache.pdfbox.util.PDFMergerUtility;
  */
 public class PDFMerger
 {
+    private static final String STREAMING = "-streaming";
+
     /**
      * Infamous main method.
      *
@@ -44,14 +46,21 @@ public class PDFMerger
     {
         String destinationFileName = "";
         String sourceFileName = null;
+        boolean streaming = false;
+        int firstSource = 0;
 
-        if ( args.length < 3 )
+        if ( args.length > 0 && args[0].equals( STREAMING ) )
+        {
+            streaming = true;
+            firstSource = 1;
+        }
+        if ( args.length - firstSource < 3 )
         {
             usage();
         }
 
         PDFMergerUtility merger = new PDFMergerUtility();
-        for( int i=0; i<args.length-1; i++ )
+        for( int i=firstSource; i<args.length-1; i++ )
         {
             sourceFileName = args[i];
             merger.addSource(sourceFileName);
@@ -61,7 +70,14 @@ public class PDFMerger
 
         merger.setDestinationFileName(destinationFileName);
 
-        merger.mergeDocuments();
+        if( streaming )
+        {
+            merger.mergeDocumentsStreaming();
+        }
+        else
+        {
+            merger.mergeDocuments();
+        }
     }
 
     /**
@@ -69,7 +85,8 @@ public class PDFMerger
      */
     private static void usage()
     {
-        System.err.println( "Usage: java org.apache.pdfbox.PDFMerger <Source PDF File 2..n> <Destination PDF File>\n" +
+        System.err.println( "Usage: java org.apache.pdfbox.PDFMerger [-streaming] <Source PDF File 2..n> <Destination PDF File>\n" +
+            "  -streaming                   Write each source as it is read, only pages and info are merged\n" +
             "  <Source PDF File 2..n>       2 or more source PDF documents to merge\n" +
             "  <Destination PDF File>       The PDF document to save the merged documents to\n"
             );
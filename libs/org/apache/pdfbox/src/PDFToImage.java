@@ -31,7 +31,7 @@ import javax.imageio.stream.ImageOutputStream;
 import org.apache.pdfbox.exceptions.InvalidPasswordException;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
-//import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.util.PDFImageWriter;
 
 /**
@@ -48,6 +48,9 @@ public class PDFToImage
     private static final String END_PAGE = "-endPage";
     private static final String IMAGE_TYPE = "-imageType";
     private static final String OUTPUT_PREFIX = "-outputPrefix";
+    private static final String COLOR = "-color";
+    private static final String RESOLUTION = "-resolution";
+    private static final String THREADS = "-threads";
 
     /**
      * private constructor.
@@ -72,6 +75,9 @@ public class PDFToImage
         String imageType = "jpg";
         int startPage = 1;
         int endPage = Integer.MAX_VALUE;
+        int color = BufferedImage.TYPE_BYTE_INDEXED;
+        int resolution = 2 * PDPage.DEFAULT_USER_SPACE_UNIT_DPI;
+        int threads = Runtime.getRuntime().availableProcessors();
         for( int i=0; i<args.length; i++ )
         {
             if( args[i].equals( PASSWORD ) )
@@ -111,6 +117,33 @@ public class PDFToImage
                 i++;
                 outputPrefix = args[i];
             }
+            else if( args[i].equals( COLOR ) )
+            {
+                i++;
+                if( i >= args.length )
+                {
+                    usage();
+                }
+                color = getImageType( args[i] );
+            }
+            else if( args[i].equals( RESOLUTION ) )
+            {
+                i++;
+                if( i >= args.length )
+                {
+                    usage();
+                }
+                resolution = Integer.parseInt( args[i] );
+            }
+            else if( args[i].equals( THREADS ) )
+            {
+                i++;
+                if( i >= args.length )
+                {
+                    usage();
+                }
+                threads = Integer.parseInt( args[i] );
+            }
             else
             {
                 if( pdfFile == null )
@@ -162,7 +195,8 @@ public class PDFToImage
 
 		//Make the call
 		PDFImageWriter W = new PDFImageWriter();
-		W.WriteImage(document, imageType, password, startPage, endPage, outputPrefix);
+		W.writeImage(document, imageType, password, startPage, endPage, outputPrefix,
+		    color, resolution, threads);
 	    } catch(Exception e){
 		    System.err.println( e);
 	    }
@@ -187,11 +221,40 @@ public class PDFToImage
             "  -outputPrefix <output prefix>  Filename prefix for image files\n" +
             "  -startPage <number>          The first page to start extraction(1 based)\n" +
             "  -endPage <number>            The last page to extract(inclusive)\n" +
+            "  -color <color>               (bilevel, indexed, gray, rgb, rgba)\n" +
+            "  -resolution <number>         The resolution of the images in dpi\n" +
+            "  -threads <number>            The number of threads drawing the images\n" +
             "  <PDF file>                   The PDF document to use\n"
             );
         System.exit( 1 );
     }
 
+    private static int getImageType( String color )
+    {
+        int imageType = BufferedImage.TYPE_BYTE_INDEXED;
+        if( "bilevel".equalsIgnoreCase( color ) )
+        {
+            imageType = BufferedImage.TYPE_BYTE_BINARY;
+        }
+        else if( "gray".equalsIgnoreCase( color ) )
+        {
+            imageType = BufferedImage.TYPE_BYTE_GRAY;
+        }
+        else if( "rgb".equalsIgnoreCase( color ) )
+        {
+            imageType = BufferedImage.TYPE_INT_RGB;
+        }
+        else if( "rgba".equalsIgnoreCase( color ) )
+        {
+            imageType = BufferedImage.TYPE_INT_ARGB;
+        }
+        else if( !"indexed".equalsIgnoreCase( color ) )
+        {
+            usage();
+        }
+        return imageType;
+    }
+
     private static String getImageFormats()
     {
         StringBuffer retval = new StringBuffer();
@@ -52,6 +52,7 @@ public class COSArray extends COSBase
     public void add( COSBase object )
     {
         objects.add( object );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -62,6 +63,7 @@ public class COSArray extends COSBase
     public void add( COSObjectable object )
     {
         objects.add( object.getCOSObject() );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -74,6 +76,7 @@ public class COSArray extends COSBase
     public void add( int i, COSBase object)
     {
         objects.add( i, object );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -82,6 +85,7 @@ public class COSArray extends COSBase
     public void clear()
     {
         objects.clear();
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -91,7 +95,10 @@ public class COSArray extends COSBase
      */
     public void removeAll( Collection objectsList )
     {
-        objects.removeAll( objectsList );
+        if( objects.removeAll( objectsList ) )
+        {
+            setNeedToBeUpdated( true );
+        }
     }
 
     /**
@@ -101,7 +108,10 @@ public class COSArray extends COSBase
      */
     public void retainAll( Collection objectsList )
     {
-        objects.retainAll( objectsList );
+        if( objects.retainAll( objectsList ) )
+        {
+            setNeedToBeUpdated( true );
+        }
     }
 
     /**
@@ -112,6 +122,7 @@ public class COSArray extends COSBase
     public void addAll( Collection objectsList )
     {
         objects.addAll( objectsList );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -124,6 +135,7 @@ public class COSArray extends COSBase
         if( objectList != null )
         {
             objects.addAll( objectList.objects );
+            setNeedToBeUpdated( true );
         }
     }
 
@@ -137,6 +149,7 @@ public class COSArray extends COSBase
     public void addAll( int i, Collection objectList )
     {
         objects.addAll( i, objectList );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -148,6 +161,7 @@ public class COSArray extends COSBase
     public void set( int index, COSBase object )
     {
         objects.set( index, object );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -158,7 +172,8 @@ public class COSArray extends COSBase
      */
     public void set( int index, int intVal )
     {
-        objects.set( index, new COSInteger( intVal ) );
+        objects.set( index, COSInteger.get( intVal ) );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -175,6 +190,7 @@ public class COSArray extends COSBase
             base = object.getCOSObject();
         }
         objects.set( index, base );
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -254,7 +270,7 @@ public class COSArray extends COSBase
      */
     public void setInt( int index, int value )
     {
-        set( index, new COSInteger( value ) );
+        set( index, COSInteger.get( value ) );
     }
 
     /**
@@ -358,6 +374,7 @@ public class COSArray extends COSBase
      */
     public COSBase remove( int i )
     {
+        setNeedToBeUpdated( true );
         return (COSBase)objects.remove( i );
     }
 
@@ -370,7 +387,12 @@ public class COSArray extends COSBase
      */
     public boolean remove( COSBase o )
     {
-        return objects.remove( o );
+        boolean removed = objects.remove( o );
+        if( removed )
+        {
+            setNeedToBeUpdated( true );
+        }
+        return removed;
     }
 
     /**
@@ -30,6 +30,8 @@ import org.apache.pdfbox.exceptions.LoggingObject;
  */
 public abstract class COSBase extends LoggingObject implements COSObjectable
 {
+    private boolean needToBeUpdated = false;
+
     /**
      * Constructor.
      */
@@ -37,6 +39,28 @@ public abstract class COSBase extends LoggingObject implements COSObjectable
     {
     }
 
+    /**
+     * This will tell if this object has been changed since it was parsed, the
+     * flag is used to decide which objects are written by an incremental save.
+     *
+     * @return true If the object has been changed.
+     */
+    public boolean isNeedToBeUpdated()
+    {
+        return needToBeUpdated;
+    }
+
+    /**
+     * This will set if this object has been changed since it was parsed.  The
+     * mutator methods of the COS objects set this flag and the parser clears it.
+     *
+     * @param flag true If the object has been changed.
+     */
+    public void setNeedToBeUpdated( boolean flag )
+    {
+        needToBeUpdated = flag;
+    }
+
     /**
      * This will get the filter manager to use to filter streams.
      *
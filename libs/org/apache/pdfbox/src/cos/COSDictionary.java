@@ -129,6 +129,10 @@ public class COSDictionary extends COSBase
      */
     public void clear()
     {
+        if( !keys.isEmpty() )
+        {
+            setNeedToBeUpdated( true );
+        }
         items.clear();
         keys.clear();
     }
@@ -235,7 +239,13 @@ public class COSDictionary extends COSBase
                 // insert only if not already there
                 keys.add(key);
             }
-            items.put( key, value );
+            Object old = items.put( key, value );
+            //setting an equal value, like the page count on save,
+            //does not make the dictionary differ from the file
+            if( old != value && (old == null || !old.equals( value )) )
+            {
+                setNeedToBeUpdated( true );
+            }
         }
     }
 
@@ -472,7 +482,7 @@ public class COSDictionary extends COSBase
     public void setInt( COSName key, int value )
     {
         COSInteger intVal = null;
-        intVal = new COSInteger(value);
+        intVal = COSInteger.get(value);
         setItem( key, intVal );
     }
 
@@ -498,7 +508,7 @@ public class COSDictionary extends COSBase
     public void setLong( COSName key, long value )
     {
         COSInteger intVal = null;
-        intVal = new COSInteger(value);
+        intVal = COSInteger.get(value);
         setItem( key, intVal );
     }
 
@@ -1194,7 +1204,10 @@ public class COSDictionary extends COSBase
     public void removeItem( COSName key )
     {
         keys.remove( key );
-        items.remove( key );
+        if( items.remove( key ) != null )
+        {
+            setNeedToBeUpdated( true );
+        }
     }
 
     /**
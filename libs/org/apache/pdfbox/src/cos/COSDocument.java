@@ -21,17 +21,21 @@ import java.io.IOException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
 
 import org.apache.pdfbox.exceptions.COSVisitorException;
 import org.apache.pdfbox.io.RandomAccess;
-import org.apache.pdfbox.io.RandomAccessFile;
+import org.apache.pdfbox.io.RandomAccessMappedFile;
 
 import org.apache.pdfbox.pdfparser.PDFObjectStreamParser;
+import org.apache.pdfbox.pdfparser.PDFParser;
 import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.util.PDFMetrics;
 
 /**
  * This is the in-memory representation of the PDF document.  You need to call
@@ -69,6 +73,34 @@ public class COSDocument extends COSBase
 
     private String headerString = "%PDF-1.4";
 
+    /**
+     * The parser that reads objects from the xref table when they are first
+     * accessed, or null if all objects were parsed when the document was loaded.
+     */
+    private PDFParser lazyParser = null;
+
+    /**
+     * The cache for the decoded data of the streams that were read from the file.
+     */
+    private DecodedStreamCache decodedStreamCache = new LRUDecodedStreamCache();
+
+    /**
+     * The metrics of this document, or null if they are not recorded.
+     */
+    private PDFMetrics metrics = PDFMetrics.createDocumentMetrics();
+
+    /**
+     * Decrypts the objects that are loaded after the document has been opened
+     * for decryption, or null if the document is not being decrypted.
+     */
+    private ObjectDecryptor objectDecryptor = null;
+
+    /**
+     * The objects that loadObject is working on, an object that is accessed
+     * while it is being decrypted is returned as it is.
+     */
+    private Map loadingObjects = new IdentityHashMap();
+
     /**
      * Constructor.  Uses the java.io.tmpdir value to create a file
      * to store the streams.
@@ -91,7 +123,7 @@ public class COSDocument extends COSBase
     public COSDocument( File scratchDir ) throws IOException
     {
         tmpFile = File.createTempFile( "pdfbox", "tmp", scratchDir );
-        scratchFile = new RandomAccessFile( tmpFile, "rw" );
+        scratchFile = new RandomAccessMappedFile( tmpFile, "rw" );
     }
 
     /**
@@ -117,6 +149,50 @@ public class COSDocument extends COSBase
         return scratchFile;
     }
 
+    /**
+     * This will get the cache used for the decoded data of the streams that
+     * are read from the file.
+     *
+     * @return The decoded stream cache, or null if decoded data is stored in the scratch file.
+     */
+    public DecodedStreamCache getDecodedStreamCache()
+    {
+        return decodedStreamCache;
+    }
+
+    /**
+     * This will set the cache used for the decoded data of the streams that
+     * are read from the file after this call.
+     *
+     * @param cache The decoded stream cache, or null to store decoded data in the scratch file.
+     */
+    public void setDecodedStreamCache( DecodedStreamCache cache )
+    {
+        decodedStreamCache = cache;
+    }
+
+    /**
+     * This will get the metrics of this document, they are created with the document
+     * if {@link PDFMetrics#isEnabled()} was true at that time.
+     *
+     * @return The metrics of this document, or null if they are not recorded.
+     */
+    public PDFMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * This will set the metrics of this document, it only affects the streams
+     * that are parsed afterwards.
+     *
+     * @param documentMetrics The metrics, or null to stop recording.
+     */
+    public void setMetrics( PDFMetrics documentMetrics )
+    {
+        metrics = documentMetrics;
+    }
+
     /**
      * This will get the first dictionary object by type.
      *
@@ -139,6 +215,7 @@ public class COSDocument extends COSBase
     public COSObject getObjectByType( COSName type ) throws IOException
     {
         COSObject retval = null;
+        loadAllObjects();
         Iterator iter = objectPool.values().iterator();
         while( iter.hasNext() && retval == null)
         {
@@ -155,7 +232,7 @@ public class COSDocument extends COSBase
 			    retval = object;
 			}
 		}catch (ClassCastException e){
-			logger().warning(e.toString() + "\n at\n" + FullStackTrace(e));
+			report( Level.WARNING, "Object with an invalid /Type", e, null, new COSObjectKey( object ), null );
 		}
 
             }
@@ -185,6 +262,7 @@ public class COSDocument extends COSBase
     public List getObjectsByType( COSName type ) throws IOException
     {
         List retval = new ArrayList();
+        loadAllObjects();
         Iterator iter = objectPool.values().iterator();
         while( iter.hasNext() )
         {
@@ -201,7 +279,7 @@ public class COSDocument extends COSBase
 			    retval.add( object );
 			}
 		}catch (ClassCastException e){
-			logger().warning(e.toString() + "\n at\n" + FullStackTrace(e));
+			report( Level.WARNING, "Object with an invalid /Type", e, null, new COSObjectKey( object ), null );
 		}
             }
         }
@@ -213,7 +291,7 @@ public class COSDocument extends COSBase
      */
     public void print()
     {
-        Iterator iter = objectPool.values().iterator();
+        Iterator iter = getObjects().iterator();
         while( iter.hasNext() )
         {
             COSObject object = (COSObject)iter.next();
@@ -309,7 +387,16 @@ public class COSDocument extends COSBase
      */
     public COSObject getCatalog() throws IOException
     {
-        COSObject catalog = getObjectByType( COSName.CATALOG );
+        COSObject catalog = null;
+        COSBase root = trailer == null ? null : trailer.getItem( COSName.ROOT );
+        if( root instanceof COSObject && ((COSObject)root).getObject() instanceof COSDictionary )
+        {
+            catalog = (COSObject)root;
+        }
+        else
+        {
+            catalog = getObjectByType( COSName.CATALOG );
+        }
         if( catalog == null )
         {
             throw new IOException( "Catalog cannot be found" );
@@ -324,6 +411,15 @@ public class COSDocument extends COSBase
      */
     public List getObjects()
     {
+        try
+        {
+            loadAllObjects();
+        }
+        catch( IOException e )
+        {
+            //objects that cannot be read are left out, just like a
+            //corrupt object that is skipped when parsing sequentially.
+        }
         return new ArrayList(objectPool.values());
     }
 
@@ -367,6 +463,15 @@ public class COSDocument extends COSBase
      */
     public void close() throws IOException
     {
+        if( lazyParser != null )
+        {
+            lazyParser.close();
+            lazyParser = null;
+        }
+        if( decodedStreamCache != null )
+        {
+            decodedStreamCache.clear();
+        }
         if( scratchFile != null )
         {
             scratchFile.close();
@@ -414,6 +519,12 @@ public class COSDocument extends COSBase
      */
     public void dereferenceObjectStreams() throws IOException
     {
+        if( isLazy() )
+        {
+            //the lazy parser reads an object stream when one of its objects
+            //is accessed, after it has been set up for decryption
+            return;
+        }
         Iterator objStm = getObjectsByType( "ObjStm" ).iterator();
         while( objStm.hasNext() )
         {
@@ -456,24 +567,181 @@ public class COSDocument extends COSBase
             {
                 obj.setObjectNumber( new COSInteger( key.getNumber() ) );
                 obj.setGenerationNumber( new COSInteger( key.getGeneration() ) );
+                obj.setLazyDocument( this );
                 objectPool.put(key, obj);
             }
         }  
         return obj;
     }
+
+    /**
+     * This will set the parser that reads objects from the source file when they
+     * are first accessed.  The document takes ownership of the parser and will
+     * close it when the document is closed.
+     *
+     * @param parser The parser to load objects with, or null to turn lazy loading off.
+     */
+    public void setLazyParser( PDFParser parser )
+    {
+        lazyParser = parser;
+    }
+
+    /**
+     * This will set the decryptor for the objects of this document.  Every
+     * object that is read from the file is decrypted when it is first accessed,
+     * whether the document is loaded lazily or was parsed completely, so opening
+     * an encrypted document does not decrypt the objects that are never used.
+     *
+     * @param decryptor The decryptor to use, or null to stop decrypting.
+     */
+    public synchronized void setObjectDecryptor( ObjectDecryptor decryptor )
+    {
+        objectDecryptor = decryptor;
+        if( decryptor != null )
+        {
+            Iterator iter = objectPool.values().iterator();
+            while( iter.hasNext() )
+            {
+                COSObject object = (COSObject)iter.next();
+                if( object.getParsedObject() != null && object.getLazyDocument() == null )
+                {
+                    object.setLazyDocument( this );
+                }
+            }
+        }
+    }
+
+    /**
+     * This will put an object that was parsed from the source file into the
+     * pool, the parser calls this for every object that is not stored in an
+     * object stream.  If the document is encrypted the object is decrypted when
+     * it is first accessed.
+     *
+     * @param key The key of the object.
+     * @param object The parsed object.
+     * @param replace true to replace an object that has already been parsed.
+     *
+     * @return false if an object with this key had already been parsed and was kept.
+     *
+     * @throws IOException If there is an error getting the object from the pool.
+     */
+    public synchronized boolean setParsedObject( COSObjectKey key, COSBase object, boolean replace )
+        throws IOException
+    {
+        COSObject pdfObject = getObjectFromPool( key );
+        if( !replace && pdfObject.getParsedObject() != null )
+        {
+            return false;
+        }
+        pdfObject.setParsedObject( object, objectDecryptor == null ? null : this );
+        return true;
+    }
+
+    /**
+     * This will tell if objects are parsed from the source file when they are
+     * first accessed instead of all at once when the document is loaded.
+     *
+     * @return true If this document is loaded lazily.
+     */
+    public boolean isLazy()
+    {
+        return lazyParser != null;
+    }
+
+    /**
+     * This will parse an object from the source file when this document is
+     * loaded lazily, and decrypt it when this document is encrypted.  It is
+     * called the first time the object is accessed.
+     *
+     * @param obj The object to read.
+     */
+    void loadObject( COSObject obj )
+    {
+        //the parser writes the streams it reads to the scratch file, which
+        //is locked before this document just like when a stream is decoded.
+        RandomAccess scratch = scratchFile;
+        if( scratch == null )
+        {
+            doLoadObject( obj );
+        }
+        else
+        {
+            synchronized( scratch )
+            {
+                doLoadObject( obj );
+            }
+        }
+    }
+
+    /**
+     * This will load an object while holding the lock of this document.
+     *
+     * @param obj The object to read.
+     */
+    private synchronized void doLoadObject( COSObject obj )
+    {
+        if( obj.getLazyDocument() != this || loadingObjects.containsKey( obj ) )
+        {
+            return;
+        }
+        loadingObjects.put( obj, obj );
+        try
+        {
+            if( obj.getParsedObject() == null && lazyParser != null )
+            {
+                lazyParser.loadObject( new COSObjectKey( obj ) );
+            }
+            //the parser only leaves the objects that are not stored in an
+            //object stream to be decrypted, the object stream itself is.
+            if( objectDecryptor != null && obj.getParsedObject() != null && obj.getLazyDocument() == this )
+            {
+                objectDecryptor.decryptObject( obj );
+            }
+        }
+        catch( IOException e )
+        {
+            //leave the object unresolved, the same as a dangling
+            //reference in a sequentially parsed document.
+            report( Level.WARNING, "Unable to load object", e, null, new COSObjectKey( obj ), null );
+        }
+        finally
+        {
+            loadingObjects.remove( obj );
+            obj.setLazyDocument( null );
+        }
+    }
+
+    /**
+     * This will make sure every object in the xref table has been parsed, it is
+     * needed by the methods that scan the whole object pool.
+     *
+     * @throws IOException If there is an error reading the objects.
+     */
+    private void loadAllObjects() throws IOException
+    {
+        if( lazyParser != null )
+        {
+            Iterator keys = lazyParser.getObjectKeys( !isEncrypted() ).iterator();
+            while( keys.hasNext() )
+            {
+                getObjectFromPool( (COSObjectKey)keys.next() ).getObject();
+            }
+        }
+    }
     /**
      * Used to populate the XRef HashMap. Will add an Xreftable entry
-     * that maps ObjectKeys to byte offsets in the file. 
+     * that maps ObjectKeys to byte offsets in the file. The offset is a long
+     * because objects in files larger than 2GB are beyond the range of an int.
      * @param objKey The objkey, with id and gen numbers
-     * @param currOffset The byte offset in this file
+     * @param offset The byte offset in this file
      */
-    public void setXRef(COSObjectKey objKey, int offset) {
-        xrefTable.put(objKey, new Integer(offset));
+    public void setXRef(COSObjectKey objKey, long offset) {
+        xrefTable.put(objKey, Long.valueOf(offset));
     }
     
     /**
      * Returns the xrefTable which is a mapping of ObjectKeys
-     * to byte offsets in the file. 
+     * to byte offsets in the file, the offsets are Long objects. 
      * @return
      */
     public Map getXrefTable(){
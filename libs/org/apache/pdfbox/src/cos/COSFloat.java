@@ -19,11 +19,8 @@ package org.apache.pdfbox.cos;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.NumberFormat;
-
 import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.util.NumberFormatUtil;
 
 /**
  * This class represents a floating point number in a PDF document.
@@ -158,12 +155,6 @@ public class COSFloat extends COSNumber
      */
     public void writePDF( OutputStream output ) throws IOException
     {
-        DecimalFormat formatDecimal = (DecimalFormat)NumberFormat.getNumberInstance();
-        formatDecimal.setMaximumFractionDigits( 10 );
-        formatDecimal.setGroupingUsed( false );
-        DecimalFormatSymbols symbols = formatDecimal.getDecimalFormatSymbols();
-        symbols.setDecimalSeparator( '.' );
-        formatDecimal.setDecimalFormatSymbols( symbols );
-        output.write(formatDecimal.format( value ).getBytes());
+        NumberFormatUtil.writeDecimal( output, value, 10, new byte[NumberFormatUtil.BUFFER_SIZE] );
     }
 }
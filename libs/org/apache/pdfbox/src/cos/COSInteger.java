@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.apache.pdfbox.exceptions.COSVisitorException;
+import org.apache.pdfbox.util.NumberFormatUtil;
 
 /**
  *
@@ -30,9 +31,44 @@ import org.apache.pdfbox.exceptions.COSVisitorException;
  */
 public class COSInteger extends COSNumber
 {
+    /**
+     * The smallest value that is kept in the cache of shared integers.
+     */
+    private static final int LOW_VALUE = -100;
+
+    /**
+     * The largest value that is kept in the cache of shared integers.
+     */
+    private static final int HIGH_VALUE = 256;
+
+    private static final COSInteger[] CACHE = new COSInteger[HIGH_VALUE - LOW_VALUE + 1];
+    static
+    {
+        for( int i=0; i<CACHE.length; i++ )
+        {
+            CACHE[i] = new COSInteger( LOW_VALUE + i );
+        }
+    }
 
     private long value;
 
+    /**
+     * This will get an integer object for a value, small values share one
+     * instance so they must not be changed.
+     *
+     * @param val The integer value.
+     *
+     * @return An integer object with the value.
+     */
+    public static COSInteger get( long val )
+    {
+        if( val >= LOW_VALUE && val <= HIGH_VALUE )
+        {
+            return CACHE[(int)val - LOW_VALUE];
+        }
+        return new COSInteger( val );
+    }
+
     /**
      * constructor.
      *
@@ -101,6 +137,8 @@ public class COSInteger extends COSNumber
      * Change the value of this reference.
      *
      * @param newValue The new value.
+     *
+     * @deprecated The objects returned by get() are shared, create a new object instead.
      */
     public void setValue( long newValue )
     {
@@ -169,6 +207,6 @@ public class COSInteger extends COSNumber
      */
     public void writePDF( OutputStream output ) throws IOException
     {
-        output.write(String.valueOf(value).getBytes());
+        NumberFormatUtil.writeLong( output, value, new byte[NumberFormatUtil.BUFFER_SIZE] );
     }
 }
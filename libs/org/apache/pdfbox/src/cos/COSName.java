@@ -19,10 +19,12 @@ package org.apache.pdfbox.cos;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import java.util.Collections;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
 import java.util.HashMap;
-import java.util.WeakHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.pdfbox.exceptions.COSVisitorException;
 import org.apache.pdfbox.persistence.util.COSHEXTable;
@@ -37,10 +39,18 @@ import org.apache.pdfbox.persistence.util.COSHEXTable;
 public final class COSName extends COSBase implements Comparable
 {
     /**
-     * Note: This is synchronized because a HashMap must be synchronized if accessed by
-     * multiple threads.
+     * Document specific names, mapped from the name string to a weak reference to the
+     * COSName.  The map is concurrent so parsing threads do not wait on each other to
+     * look up a name, and the reference is weak so names that are no longer used by
+     * any document can be reclaimed.
      */
-    private static Map nameMap = Collections.synchronizedMap( new WeakHashMap(8192) );
+    private static final ConcurrentHashMap nameMap = new ConcurrentHashMap( 8192, 0.75f, 64 );
+
+    /**
+     * The references of names that have been reclaimed, their entries are removed
+     * from the name map when new names are created.
+     */
+    private static final ReferenceQueue reclaimedNames = new ReferenceQueue();
     
     /**
      * All common COSName values are stored in a simple HashMap. They are already defined as
@@ -507,8 +517,23 @@ public final class COSName extends COSBase implements Comparable
      */
     public static final byte[] NAME_ESCAPE = new byte[] { 35  };  //The # character
 
-    private String name;
-    private int hashCode;
+    private final String name;
+    private final int hashCode;
+
+    /**
+     * A weak reference to a document specific name that remembers its key, so the
+     * map entry can be removed after the name has been reclaimed.
+     */
+    private static final class NameReference extends WeakReference
+    {
+        private final String key;
+
+        private NameReference( COSName name )
+        {
+            super( name, reclaimedNames );
+            key = name.name;
+        }
+    }
 
     /**
      * This will get a COSName object with that name.
@@ -527,17 +552,66 @@ public final class COSName extends COSBase implements Comparable
             if( name == null )
             {
             	// It seems to be a document specific COSName
-            	name = (COSName)nameMap.get( aName );
+            	NameReference reference = (NameReference)nameMap.get( aName );
+            	if( reference != null )
+            	{
+            	    name = (COSName)reference.get();
+            	}
             	if( name == null )
             	{
-            		//name is added to the synchronized map in the constructor
-            		name = new COSName( aName, false );
-            	}	
+            	    name = addName( aName );
+            	}
             }
         }
         return name;
     }
 
+    /**
+     * This will add a document specific name to the name map, if another thread
+     * added the same name first then that name is returned instead.
+     *
+     * @param aName The name of the object.
+     *
+     * @return The COSName that is in the name map.
+     */
+    private static COSName addName( String aName )
+    {
+        removeReclaimedNames();
+        COSName created = new COSName( aName, false );
+        NameReference createdReference = new NameReference( created );
+        while( true )
+        {
+            NameReference existing = (NameReference)nameMap.putIfAbsent( aName, createdReference );
+            if( existing == null )
+            {
+                return created;
+            }
+            COSName existingName = (COSName)existing.get();
+            if( existingName != null )
+            {
+                return existingName;
+            }
+            //the existing name has been reclaimed but its entry is still there
+            if( nameMap.replace( aName, existing, createdReference ) )
+            {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * This will remove the map entries of names that have been reclaimed.
+     */
+    private static void removeReclaimedNames()
+    {
+        NameReference reference = (NameReference)reclaimedNames.poll();
+        while( reference != null )
+        {
+            nameMap.remove( reference.key, reference );
+            reference = (NameReference)reclaimedNames.poll();
+        }
+    }
+
     /**
      * Private constructor.  This will limit the number of COSName objects.
      * that are created.
@@ -550,8 +624,6 @@ public final class COSName extends COSBase implements Comparable
         name = aName;
         if ( staticValue )
         	commonNameMap.put( aName, this);
-        else
-        	nameMap.put( aName, this );
         hashCode = name.hashCode();
     }
 
@@ -32,6 +32,12 @@ public class COSObject extends COSBase
     private COSInteger objectNumber;
     private COSInteger generationNumber;
 
+    /**
+     * The document that will parse or decrypt this object on first access, or
+     * null if the object is ready to use or was not read from an xref table.
+     */
+    private volatile COSDocument lazyDocument;
+
     /**
      * Constructor.
      *
@@ -55,9 +61,10 @@ public class COSObject extends COSBase
     public COSBase getDictionaryObject( COSName key )
     {
         COSBase retval =null;
-        if( baseObject instanceof COSDictionary )
+        COSBase object = getObject();
+        if( object instanceof COSDictionary )
         {
-            retval = ((COSDictionary)baseObject).getDictionaryObject( key );
+            retval = ((COSDictionary)object).getDictionaryObject( key );
         }
         return retval;
     }
@@ -72,9 +79,10 @@ public class COSObject extends COSBase
     public COSBase getItem( COSName key )
     {
         COSBase retval =null;
-        if( baseObject instanceof COSDictionary )
+        COSBase object = getObject();
+        if( object instanceof COSDictionary )
         {
-            retval = ((COSDictionary)baseObject).getItem( key );
+            retval = ((COSDictionary)object).getItem( key );
         }
         return retval;
     }
@@ -85,10 +93,60 @@ public class COSObject extends COSBase
      * @return The encapsulated object.
      */
     public COSBase getObject()
+    {
+        COSDocument document = lazyDocument;
+        if( document != null )
+        {
+            document.loadObject( this );
+        }
+        return baseObject;
+    }
+
+    /**
+     * This will get the encapsulated object without parsing or decrypting it.
+     *
+     * @return The encapsulated object, or null if it has not been parsed yet.
+     */
+    COSBase getParsedObject()
     {
         return baseObject;
     }
 
+    /**
+     * This will set an object that was parsed from the source file.
+     *
+     * @param object The parsed object.
+     * @param document The document that will decrypt the object when it is
+     * first accessed, or null if it does not need to be decrypted.
+     */
+    void setParsedObject( COSBase object, COSDocument document )
+    {
+        baseObject = object;
+        lazyDocument = document;
+    }
+
+    /**
+     * This will get the document that is responsible for parsing or decrypting
+     * this object when it is first accessed.
+     *
+     * @return The document that will load this object, or null.
+     */
+    COSDocument getLazyDocument()
+    {
+        return lazyDocument;
+    }
+
+    /**
+     * This will set the document that is responsible for parsing or decrypting
+     * this object when it is first accessed.
+     *
+     * @param document The document that will load this object, or null.
+     */
+    void setLazyDocument( COSDocument document )
+    {
+        lazyDocument = document;
+    }
+
     /**
      * This will set the object that this object encapsulates.
      *
@@ -99,6 +157,7 @@ public class COSObject extends COSBase
     public void setObject( COSBase object ) throws IOException
     {
         baseObject = object;
+        lazyDocument = null;
         /*if( baseObject == null )
         {
             baseObject = object;
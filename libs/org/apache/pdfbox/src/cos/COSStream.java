@@ -19,10 +19,13 @@ package org.apache.pdfbox.cos;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import java.nio.ByteBuffer;
+
 import java.util.List;
 
 import org.apache.pdfbox.filter.Filter;
@@ -32,9 +35,11 @@ import org.apache.pdfbox.pdfparser.PDFStreamParser;
 
 import org.apache.pdfbox.exceptions.COSVisitorException;
 
+import org.apache.pdfbox.io.ByteBufferInputStream;
 import org.apache.pdfbox.io.RandomAccess;
 import org.apache.pdfbox.io.RandomAccessFileInputStream;
 import org.apache.pdfbox.io.RandomAccessFileOutputStream;
+import org.apache.pdfbox.util.PDFMetrics;
 
 /**
  * This class represents a stream object in a PDF document.
@@ -57,6 +62,23 @@ public class COSStream extends COSDictionary
      */
     private RandomAccessFileOutputStream unFilteredStream;
 
+    /**
+     * The cache for the decoded data, when this is set the decoded data is not
+     * written to the scratch file.
+     */
+    private DecodedStreamCache decodedStreamCache;
+
+    /**
+     * Decrypts the filtered data while it is read, or null if the
+     * filtered data is not encrypted.
+     */
+    private StreamDecryptor decryptor;
+
+    /**
+     * The metrics of the document of this stream, or null if they are not recorded.
+     */
+    private PDFMetrics metrics;
+
     /**
      * Constructor.  Creates a new stream with an empty dictionary.
      *
@@ -91,9 +113,14 @@ public class COSStream extends COSDictionary
     {
         this.clear();
         this.addAll( stream );
+        invalidateDecodedStream();
+        setNeedToBeUpdated( true );
         file = stream.file;
         filteredStream = stream.filteredStream;
         unFilteredStream = stream.unFilteredStream;
+        decodedStreamCache = stream.decodedStreamCache;
+        decryptor = stream.decryptor;
+        metrics = stream.metrics;
     }
 
     /**
@@ -106,6 +133,69 @@ public class COSStream extends COSDictionary
         return file;
     }
 
+    /**
+     * This will get the cache that holds the decoded data of this stream.
+     *
+     * @return The decoded stream cache, or null if decoded data is stored in the scratch file.
+     */
+    public DecodedStreamCache getDecodedStreamCache()
+    {
+        return decodedStreamCache;
+    }
+
+    /**
+     * This will set the cache that holds the decoded data of this stream.
+     *
+     * @param cache The decoded stream cache, or null to store decoded data in the scratch file.
+     */
+    public void setDecodedStreamCache( DecodedStreamCache cache )
+    {
+        invalidateDecodedStream();
+        decodedStreamCache = cache;
+    }
+
+    /**
+     * This will get the metrics that the decoding time and sizes are recorded in.
+     *
+     * @return The metrics, or null if they are not recorded.
+     */
+    public PDFMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * This will set the metrics that the decoding time and sizes are recorded in.
+     *
+     * @param streamMetrics The metrics, or null to not record them.
+     */
+    public void setMetrics( PDFMetrics streamMetrics )
+    {
+        metrics = streamMetrics;
+    }
+
+    /**
+     * This will get the decryptor that is applied when the filtered data is read.
+     *
+     * @return The decryptor, or null if the data is not encrypted.
+     */
+    public StreamDecryptor getDecryptor()
+    {
+        return decryptor;
+    }
+
+    /**
+     * This will set the decryptor that is applied when the filtered data is read,
+     * it is dropped as soon as new data is written to this stream.
+     *
+     * @param streamDecryptor The decryptor, or null if the data is not encrypted.
+     */
+    public void setDecryptor( StreamDecryptor streamDecryptor )
+    {
+        invalidateDecodedStream();
+        decryptor = streamDecryptor;
+    }
+
     /**
      * This will get all the tokens in the stream.
      *
@@ -133,12 +223,29 @@ public class COSStream extends COSDictionary
         {
             doEncode();
         }
-        long position = filteredStream.getPosition();
-        long length = filteredStream.getLength();
+        return getFilteredData( filteredStream.getPosition(), filteredStream.getLength() );
+    }
 
-        RandomAccessFileInputStream input =
-            new RandomAccessFileInputStream( file, position, length );
-        return new BufferedInputStream( input, BUFFER_SIZE );
+    /**
+     * This will read a range of the filtered data from the scratch file, the
+     * range must start at the beginning of the data.
+     *
+     * @param position The position of the data in the scratch file.
+     * @param length The number of bytes to read.
+     *
+     * @return The data, decrypted if there is a decryptor.
+     *
+     * @throws IOException If there is an error setting up the decryption.
+     */
+    private InputStream getFilteredData( long position, long length ) throws IOException
+    {
+        InputStream input = new BufferedInputStream(
+            new RandomAccessFileInputStream( file, position, length ), BUFFER_SIZE );
+        if( decryptor != null )
+        {
+            input = decryptor.decrypt( input );
+        }
+        return input;
     }
 
     /**
@@ -151,22 +258,52 @@ public class COSStream extends COSDictionary
     public InputStream getUnfilteredStream() throws IOException
     {
         InputStream retval = null;
-        if( unFilteredStream == null )
+        if( unFilteredStream == null && decodedStreamCache != null &&
+            filteredStream != null && getFilters() != null )
         {
-            doDecode();
+            //streams that can't fit in the cache are decoded into the scratch
+            //file once instead of into memory on every call
+            long maxSize = decodedStreamCache.getMaxSize();
+            if( filteredStream.getLength() <= maxSize )
+            {
+                ByteBuffer decoded = decodedStreamCache.get( this );
+                if( decoded == null )
+                {
+                    byte[] data = decodeToArray( maxSize );
+                    if( data != null )
+                    {
+                        decoded = decodedStreamCache.put( this, data );
+                    }
+                }
+                if( decoded != null )
+                {
+                    return new ByteBufferInputStream( decoded );
+                }
+            }
         }
-
-        //if unFilteredStream is still null then this stream has not been
-        //created yet, so we should return null.
-        if( unFilteredStream != null )
+        //the decoded data is appended to the scratch file, which is shared by
+        //all of the streams of the document and may be read by several threads.
+        //The lazy parser locks the scratch file before the document, see
+        //COSDocument.loadObject.
+        synchronized( file )
         {
-            long position = unFilteredStream.getPosition();
-            long length = unFilteredStream.getLength();
-            RandomAccessFileInputStream input =
-                new RandomAccessFileInputStream( file, position, length );
-            retval = new BufferedInputStream( input, BUFFER_SIZE );
+            if( unFilteredStream == null )
+            {
+                doDecode();
+            }
+
+            //if unFilteredStream is still null then this stream has not been
+            //created yet, so we should return null.
+            if( unFilteredStream != null )
+            {
+                long position = unFilteredStream.getPosition();
+                long length = unFilteredStream.getLength();
+                RandomAccessFileInputStream input =
+                    new RandomAccessFileInputStream( file, position, length );
+                retval = new BufferedInputStream( input, BUFFER_SIZE );
+            }
         }
-        else
+        if( retval == null )
         {
             // We should check if the COSStream contains data, maybe it
             // has been created with a RandomAccessFile - which is not
@@ -214,7 +351,23 @@ public class COSStream extends COSDictionary
         COSBase filters = getFilters();
         if( filters == null )
         {
-            //then do nothing
+            if( decryptor != null )
+            {
+                //there is no filter that could decrypt while decoding
+                InputStream input = getFilteredData(
+                    filteredStream.getPosition(), filteredStream.getLength() );
+                unFilteredStream = new RandomAccessFileOutputStream( file );
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int amountRead;
+                while( (amountRead = input.read( buffer )) != -1 )
+                {
+                    unFilteredStream.write( buffer, 0, amountRead );
+                }
+                if( metrics != null )
+                {
+                    metrics.addCount( PDFMetrics.SCRATCH, "bytesWritten", unFilteredStream.getLengthWritten() );
+                }
+            }
         }
         else if( filters instanceof COSName )
         {
@@ -251,10 +404,13 @@ public class COSStream extends COSDictionary
 
         boolean done = false;
         IOException exception = null;
+        long start = metrics == null ? 0 : System.nanoTime();
         long position = unFilteredStream.getPosition();
         long length = unFilteredStream.getLength();
         // in case we need it later
         long writtenLength = unFilteredStream.getLengthWritten();  
+        //the first filter reads the filtered data which may be encrypted
+        boolean encrypted = unFilteredStream == filteredStream;
 
         if( length == 0 )
         {
@@ -273,7 +429,7 @@ public class COSStream extends COSDictionary
             {
                 try
                 {
-                    input = new BufferedInputStream(
+                    input = encrypted ? getFilteredData( position, length ) : new BufferedInputStream(
                         new RandomAccessFileInputStream( file, position, length ), BUFFER_SIZE );
                     unFilteredStream = new RandomAccessFileOutputStream( file );
                     filter.decode( input, unFilteredStream, this, filterIndex );
@@ -295,7 +451,7 @@ public class COSStream extends COSDictionary
                 {
                     try
                     {
-                        input = new BufferedInputStream(
+                        input = encrypted ? getFilteredData( position, length ) : new BufferedInputStream(
                             new RandomAccessFileInputStream( file, position, length ), BUFFER_SIZE );
                         unFilteredStream = new RandomAccessFileOutputStream( file );
                         filter.decode( input, unFilteredStream, this, filterIndex );
@@ -313,6 +469,151 @@ public class COSStream extends COSDictionary
         {
             throw exception;
         }
+        if( metrics != null )
+        {
+            long decoded = unFilteredStream.getLengthWritten();
+            metrics.addTime( PDFMetrics.FILTER, filterName.getName(), System.nanoTime() - start );
+            metrics.addCount( PDFMetrics.FILTER, filterName.getName(), decoded );
+            metrics.addCount( PDFMetrics.SCRATCH, "bytesWritten", decoded );
+        }
+    }
+
+    /**
+     * This will decode the physical byte stream applying all of the filters to
+     * the stream, the result is kept in memory instead of the scratch file.
+     *
+     * @param maxSize The maximum number of bytes any filter may produce.
+     *
+     * @return The decoded data, or null if it is larger than maxSize.
+     *
+     * @throws IOException If there is an error applying a filter to the stream.
+     */
+    private byte[] decodeToArray( long maxSize ) throws IOException
+    {
+        COSBase filters = getFilters();
+        COSArray filterArray;
+        if( filters instanceof COSName )
+        {
+            filterArray = new COSArray();
+            filterArray.add( filters );
+        }
+        else if( filters instanceof COSArray )
+        {
+            filterArray = (COSArray)filters;
+        }
+        else
+        {
+            throw new IOException( "Error: Unknown filter type:" + filters );
+        }
+        FilterManager manager = getFilterManager();
+        byte[] data = null;
+        for( int i=0; i<filterArray.size(); i++ )
+        {
+            COSName filterName = (COSName)filterArray.get( i );
+            Filter filter = manager.getFilter( filterName );
+            long start = metrics == null ? 0 : System.nanoTime();
+            if( data == null )
+            {
+                data = decodeToArray( filter, i, null, filteredStream.getPosition(),
+                    filteredStream.getLength(), filteredStream.getLengthWritten(), maxSize );
+            }
+            else
+            {
+                data = decodeToArray( filter, i, data, 0, data.length, data.length, maxSize );
+            }
+            if( data == null )
+            {
+                return null;
+            }
+            if( metrics != null )
+            {
+                metrics.addTime( PDFMetrics.FILTER, filterName.getName(), System.nanoTime() - start );
+                metrics.addCount( PDFMetrics.FILTER, filterName.getName(), data.length );
+            }
+        }
+        return data;
+    }
+
+    /**
+     * This will decode applying a single filter, reading either from the
+     * scratch file or from the output of the previous filter.  The same
+     * length retries as in doDecode are made.
+     *
+     * @param filter The filter to apply.
+     * @param filterIndex The index of the current filter.
+     * @param input The data to decode, or null to read from the scratch file.
+     * @param position The position of the data in the scratch file.
+     * @param length The length of the data.
+     * @param writtenLength The number of bytes that were actually read for the stream.
+     * @param maxSize The maximum number of bytes the filter may produce.
+     *
+     * @return The decoded data, or null if it is larger than maxSize.
+     *
+     * @throws IOException If there is an error applying the filter.
+     */
+    private byte[] decodeToArray( Filter filter, int filterIndex, byte[] input,
+        long position, long length, long writtenLength, long maxSize ) throws IOException
+    {
+        if( length == 0 )
+        {
+            return new byte[0];
+        }
+        IOException exception = null;
+        for( int pass=0; pass<2; pass++ )
+        {
+            long tryLength = pass == 0 ? length : writtenLength;
+            for( int tryCount=0; tryCount<5; tryCount++ )
+            {
+                try
+                {
+                    InputStream in;
+                    if( input == null )
+                    {
+                        in = getFilteredData( position, tryLength );
+                    }
+                    else
+                    {
+                        in = new ByteArrayInputStream( input, 0, (int)tryLength );
+                    }
+                    LimitedOutputStream output = new LimitedOutputStream( maxSize );
+                    try
+                    {
+                        filter.decode( in, output, this, filterIndex );
+                    }
+                    catch( SizeExceededException e )
+                    {
+                        return null;
+                    }
+                    catch( IOException io )
+                    {
+                        if( output.isExceeded() )
+                        {
+                            //the filter has wrapped the exception
+                            return null;
+                        }
+                        throw io;
+                    }
+                    return output.toByteArray();
+                }
+                catch( IOException io )
+                {
+                    tryLength--;
+                    exception = io;
+                }
+            }
+        }
+        throw exception;
+    }
+
+    /**
+     * This will drop the decoded data of this stream from the cache.
+     */
+    private void invalidateDecodedStream()
+    {
+        if( decodedStreamCache != null )
+        {
+            decodedStreamCache.remove( this );
+        }
     }
 
     /**
@@ -364,6 +665,10 @@ public class COSStream extends COSDictionary
                                                    filteredStream.getLength() ), BUFFER_SIZE );
         filteredStream = new RandomAccessFileOutputStream( file );
         filter.encode( input, filteredStream, this, filterIndex );
+        if( metrics != null )
+        {
+            metrics.addCount( PDFMetrics.SCRATCH, "bytesWritten", filteredStream.getLengthWritten() );
+        }
     }
 
     /**
@@ -393,6 +698,9 @@ public class COSStream extends COSDictionary
     {
         filteredStream = new RandomAccessFileOutputStream( file );
         unFilteredStream = null;
+        decryptor = null;
+        invalidateDecodedStream();
+        setNeedToBeUpdated( true );
         return new BufferedOutputStream( filteredStream, BUFFER_SIZE );
     }
 
@@ -412,6 +720,9 @@ public class COSStream extends COSDictionary
         filteredStream = new RandomAccessFileOutputStream( file );
         filteredStream.setExpectedLength( expectedLength );
         unFilteredStream = null;
+        decryptor = null;
+        invalidateDecodedStream();
+        setNeedToBeUpdated( true );
         return new BufferedOutputStream( filteredStream, BUFFER_SIZE );
     }
 
@@ -424,9 +735,19 @@ public class COSStream extends COSDictionary
      */
     public void setFilters(COSBase filters) throws IOException
     {
+        if( unFilteredStream == null && filteredStream != null &&
+            (decodedStreamCache != null || decryptor != null) )
+        {
+            //the decoded data only lives in the cache or has not been decrypted,
+            //keep it in the scratch file because the filtered data is about to be dropped.
+            doDecode();
+        }
         setItem(COSName.FILTER, filters);
         // kill cached filtered streams
         filteredStream = null;
+        decryptor = null;
+        invalidateDecodedStream();
+        setNeedToBeUpdated( true );
     }
 
     /**
@@ -440,6 +761,59 @@ public class COSStream extends COSDictionary
     {
         unFilteredStream = new RandomAccessFileOutputStream( file );
         filteredStream = null;
+        decryptor = null;
+        invalidateDecodedStream();
+        setNeedToBeUpdated( true );
         return new BufferedOutputStream( unFilteredStream, BUFFER_SIZE );
     }
+
+    /**
+     * An in-memory output stream that refuses to grow beyond a maximum size,
+     * so a stream that expands a lot is not decoded into the heap entirely
+     * just to find out it is too big for the cache.
+     */
+    private static class LimitedOutputStream extends ByteArrayOutputStream
+    {
+        private final long maxSize;
+        private boolean exceeded = false;
+
+        LimitedOutputStream( long max )
+        {
+            maxSize = max;
+        }
+
+        public void write( int b )
+        {
+            checkSize( 1 );
+            super.write( b );
+        }
+
+        public void write( byte[] b, int off, int len )
+        {
+            checkSize( len );
+            super.write( b, off, len );
+        }
+
+        private void checkSize( int len )
+        {
+            if( count + (long)len > maxSize )
+            {
+                exceeded = true;
+                throw new SizeExceededException();
+            }
+        }
+
+        boolean isExceeded()
+        {
+            return exceeded;
+        }
+    }
+
+    /**
+     * Thrown by LimitedOutputStream to stop the filter, it is unchecked because
+     * ByteArrayOutputStream.write does not declare an IOException.
+     */
+    private static class SizeExceededException extends RuntimeException
+    {
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A cache for the decoded data of streams that were read from a PDF file.
+ * Instead of writing every decoded stream to the scratch file, a stream
+ * keeps its filtered bytes and asks this cache for the decoded form; when an
+ * entry has been evicted the stream is simply decoded again.
+ *
+ * Implementations must be safe to use from several threads.
+ *
+ * @version $Revision: 1.0 $
+ */
+public interface DecodedStreamCache
+{
+    /**
+     * This will get the decoded data of a stream.
+     *
+     * @param stream The stream to look up.
+     *
+     * @return A buffer holding the decoded data, or null if the stream is not cached.
+     */
+    public ByteBuffer get( COSStream stream );
+
+    /**
+     * This will store the decoded data of a stream.  The cache takes ownership
+     * of the array and may copy it to another storage, the returned buffer is
+     * valid even if the entry is evicted right away.
+     *
+     * @param stream The stream that was decoded.
+     * @param decoded The decoded data.
+     *
+     * @return A buffer holding the decoded data.
+     */
+    public ByteBuffer put( COSStream stream, byte[] decoded );
+
+    /**
+     * This will drop the cached data of a stream, it is called when the
+     * content of the stream changes.
+     *
+     * @param stream The stream to remove.
+     */
+    public void remove( COSStream stream );
+
+    /**
+     * This will get the largest amount of decoded data that the cache will
+     * hold for a single stream.  Streams that are bigger are not decoded into
+     * memory at all but into the scratch file.
+     *
+     * @return The maximum number of bytes of one entry.
+     */
+    public long getMaxSize();
+
+    /**
+     * This will drop all cached data.
+     */
+    public void clear();
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A decoded stream cache that holds at most a fixed number of bytes and
+ * evicts the least recently used streams first.  The data can be kept on the
+ * java heap or in direct (off-heap) buffers.
+ *
+ * @version $Revision: 1.0 $
+ */
+public class LRUDecodedStreamCache implements DecodedStreamCache
+{
+    /**
+     * The default number of bytes that will be cached.
+     */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    private final LinkedHashMap entries = new LinkedHashMap( 16, 0.75f, true );
+    private final long maxSize;
+    private final boolean direct;
+    private long size = 0;
+
+    /**
+     * Constructor, uses the default size and heap buffers.
+     */
+    public LRUDecodedStreamCache()
+    {
+        this( DEFAULT_MAX_SIZE, false );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes The maximum number of decoded bytes to keep.
+     * @param useDirectBuffers True to keep the data in direct (off-heap) buffers.
+     */
+    public LRUDecodedStreamCache( long maxBytes, boolean useDirectBuffers )
+    {
+        maxSize = maxBytes;
+        direct = useDirectBuffers;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized ByteBuffer get( COSStream stream )
+    {
+        ByteBuffer data = (ByteBuffer)entries.get( stream );
+        return data == null ? null : data.duplicate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized ByteBuffer put( COSStream stream, byte[] decoded )
+    {
+        ByteBuffer data;
+        if( direct )
+        {
+            data = ByteBuffer.allocateDirect( decoded.length );
+            data.put( decoded );
+            data.flip();
+        }
+        else
+        {
+            data = ByteBuffer.wrap( decoded );
+        }
+        remove( stream );
+        if( decoded.length <= maxSize )
+        {
+            entries.put( stream, data );
+            size += decoded.length;
+            Iterator iter = entries.entrySet().iterator();
+            while( size > maxSize && iter.hasNext() )
+            {
+                Map.Entry eldest = (Map.Entry)iter.next();
+                size -= ((ByteBuffer)eldest.getValue()).capacity();
+                iter.remove();
+            }
+        }
+        return data.duplicate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void remove( COSStream stream )
+    {
+        ByteBuffer data = (ByteBuffer)entries.remove( stream );
+        if( data != null )
+        {
+            size -= data.capacity();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * This will get the number of decoded bytes currently held.
+     *
+     * @return The size of the cached data.
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+}
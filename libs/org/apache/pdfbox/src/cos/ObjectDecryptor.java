@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.io.IOException;
+
+/**
+ * Decrypts the indirect objects of an encrypted document when they are first
+ * loaded, see COSDocument.setObjectDecryptor.
+ *
+ * @version $Revision: 1.0 $
+ */
+public interface ObjectDecryptor
+{
+    /**
+     * This will decrypt the strings of an object that has just been parsed and
+     * set up the decryption of its streams.
+     *
+     * @param object The object to decrypt, it is never decrypted twice.
+     *
+     * @throws IOException If there is an error decrypting the object.
+     */
+    public void decryptObject( COSObject object ) throws IOException;
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.cos;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decrypts the data of a stream that was read from an encrypted document.  A
+ * stream keeps its encrypted bytes in the scratch file and the data is
+ * decrypted every time it is read, so streams that are never used are never
+ * decrypted.
+ *
+ * @version $Revision: 1.0 $
+ */
+public interface StreamDecryptor
+{
+    /**
+     * This will wrap the encrypted data of a stream.  Any prefix of the data
+     * must decrypt to a prefix of what the whole data decrypts to, because the
+     * filters are retried with a shorter length when they fail.
+     *
+     * @param encrypted The encrypted data, read from the start of the stream.
+     *
+     * @return A stream that returns the decrypted data.
+     *
+     * @throws IOException If the decryption cannot be set up.
+     */
+    public InputStream decrypt( InputStream encrypted ) throws IOException;
+}
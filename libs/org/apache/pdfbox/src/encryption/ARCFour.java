@@ -28,6 +28,8 @@ import java.io.OutputStream;
  */
 public class ARCFour
 {
+    private static final int BUFFER_SIZE = 8192;
+
     private int[] salt;
     private int b;
     private int c;
@@ -114,6 +116,26 @@ public class ARCFour
         output.write(aByte ^ (byte)salt[saltIndex]);
     }
 
+    /**
+     * This will encrypt or decrypt the data in place.
+     *
+     * @param data The data to encrypt.
+     * @param offset The offset into the array to start at.
+     * @param len The number of bytes to encrypt.
+     */
+    public void process( byte[] data, int offset, int len )
+    {
+        for( int i = offset; i < offset + len; i++ )
+        {
+            b = (b + 1) & 0xff;
+            c = (salt[b] + c) & 0xff;
+            int tmp = salt[b];
+            salt[b] = salt[c];
+            salt[c] = tmp;
+            data[i] ^= (byte)salt[(salt[b] + salt[c]) & 0xff];
+        }
+    }
+
     /**
      * This will encrypt and write the data.
      *
@@ -124,10 +146,7 @@ public class ARCFour
      */
     public void write( byte[] data, OutputStream output ) throws IOException
     {
-        for( int i = 0; i < data.length; i++ )
-        {
-            write( data[i], output );
-        }
+        write( data, 0, data.length, output );
     }
 
     /**
@@ -140,11 +159,12 @@ public class ARCFour
      */
     public void write( InputStream data, OutputStream output ) throws IOException
     {
-        byte[] buffer = new byte[1024];
+        byte[] buffer = new byte[BUFFER_SIZE];
         int amountRead = 0;
         while( (amountRead = data.read( buffer )) != -1 )
         {
-            write( buffer, 0, amountRead, output );
+            process( buffer, 0, amountRead );
+            output.write( buffer, 0, amountRead );
         }
     }
 
@@ -160,9 +180,14 @@ public class ARCFour
      */
     public void write( byte[] data, int offset, int len, OutputStream output) throws IOException
     {
-        for( int i = offset; i < offset + len; i++ )
+        //the caller's data must not be modified so work on a copy of it
+        byte[] buffer = new byte[Math.min( len, BUFFER_SIZE )];
+        for( int start = offset; start < offset + len; start += buffer.length )
         {
-            write( data[i], output );
+            int amount = Math.min( buffer.length, offset + len - start );
+            System.arraycopy( data, start, buffer, 0, amount );
+            process( buffer, 0, amount );
+            output.write( buffer, 0, amount );
         }
     }
 }
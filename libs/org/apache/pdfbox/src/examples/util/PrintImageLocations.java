@@ -120,7 +120,7 @@ public class PrintImageLocations extends PDFStreamEngine
         if( operation.equals( "Do" ) )
         {
             COSName objectName = (COSName)arguments.get( 0 );
-            Map xobjects = getResources().getXObjects();
+            Map xobjects = getXObjects();
             PDXObject xobject = (PDXObject)xobjects.get( objectName.getName() );
             if( xobject instanceof PDXObjectImage )
             {
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.exceptions;
+
+import java.util.logging.Level;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
+
+/**
+ * A problem that PDFBox has recovered from, for example a broken xref entry or
+ * an operator that could not be processed.  The event tells where the problem
+ * was found, so that a listener can collect the problems of a document without
+ * parsing log messages.
+ */
+public class DiagnosticEvent
+{
+    private Level level;
+    private String message;
+    private Throwable cause;
+    private PDPage page;
+    private COSObjectKey objectKey;
+    private String operator;
+
+    /**
+     * Constructor.
+     *
+     * @param eventLevel The severity of the problem.
+     * @param eventMessage A description of the problem.
+     * @param eventCause The exception that caused the problem, or null.
+     * @param eventPage The page that was being processed, or null.
+     * @param key The key of the object that was being parsed, or null.
+     * @param eventOperator The content stream operator that was being processed, or null.
+     */
+    public DiagnosticEvent( Level eventLevel, String eventMessage, Throwable eventCause,
+        PDPage eventPage, COSObjectKey key, String eventOperator )
+    {
+        level = eventLevel;
+        message = eventMessage;
+        cause = eventCause;
+        page = eventPage;
+        objectKey = key;
+        operator = eventOperator;
+    }
+
+    /**
+     * This will get the severity of the problem.
+     *
+     * @return The level of the event.
+     */
+    public Level getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * This will get the description of the problem.
+     *
+     * @return The message of the event.
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * This will get the exception that caused the problem.
+     *
+     * @return The cause of the event, or null.
+     */
+    public Throwable getCause()
+    {
+        return cause;
+    }
+
+    /**
+     * This will get the page that was being processed.
+     *
+     * @return The page, or null if the problem is not related to a page.
+     */
+    public PDPage getPage()
+    {
+        return page;
+    }
+
+    /**
+     * This will get the key of the object that was being parsed.
+     *
+     * @return The object key, or null if it is not known.
+     */
+    public COSObjectKey getObjectKey()
+    {
+        return objectKey;
+    }
+
+    /**
+     * This will get the content stream operator that was being processed.
+     *
+     * @return The operator, or null if no content stream was being processed.
+     */
+    public String getOperator()
+    {
+        return operator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        StringBuffer buffer = new StringBuffer( message );
+        if( objectKey != null )
+        {
+            buffer.append( ", object " ).append( objectKey.getNumber() );
+            buffer.append( ' ' ).append( objectKey.getGeneration() );
+        }
+        if( operator != null )
+        {
+            buffer.append( ", operator " ).append( operator );
+        }
+        if( cause != null )
+        {
+            buffer.append( ": " ).append( cause );
+        }
+        return buffer.toString();
+    }
+}
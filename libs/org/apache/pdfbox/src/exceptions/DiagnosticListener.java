@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.exceptions;
+
+import java.util.logging.Level;
+
+/**
+ * Receives the problems that PDFBox recovers from while it reads and renders
+ * documents.  The listener is asked first if it wants events of a given level,
+ * so no event or message is created for the levels it is not interested in.
+ * Listeners can be called from several threads at once.
+ *
+ * @see LoggingObject#setDiagnosticListener(DiagnosticListener)
+ */
+public interface DiagnosticListener
+{
+    /**
+     * This will tell if events of a level are reported to this listener.
+     *
+     * @param level The level of the event.
+     *
+     * @return true if the events of this level should be reported.
+     */
+    public boolean isEnabled( Level level );
+
+    /**
+     * This is called for every event of an enabled level.
+     *
+     * @param event The event that has occurred.
+     */
+    public void report( DiagnosticEvent event );
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.exceptions;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The default diagnostic listener, it writes the events to a java.util.logging
+ * logger.  The stack trace of the cause is formatted by the log handler, and
+ * only when the event is actually logged.
+ */
+public class LoggingDiagnosticListener implements DiagnosticListener
+{
+    private Logger logger;
+
+    /**
+     * Constructor.
+     *
+     * @param log The logger to write the events to.
+     */
+    public LoggingDiagnosticListener( Logger log )
+    {
+        logger = log;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEnabled( Level level )
+    {
+        return logger.isLoggable( level );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void report( DiagnosticEvent event )
+    {
+        logger.log( event.getLevel(), event.toString(), event.getCause() );
+    }
+}
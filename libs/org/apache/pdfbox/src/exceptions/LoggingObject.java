@@ -17,66 +17,156 @@
 package org.apache.pdfbox.exceptions;
 
 import java.io.IOException;
-import java.util.logging.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
 
 /**
  * Implementation of base object to help with error-handling.
  *
+ * The problems PDFBox recovers from are reported as {@link DiagnosticEvent}s to the
+ * current {@link DiagnosticListener}, which writes them to the "org.apache.pdfbox"
+ * logger by default.  Callers must check {@link #isDiagnosticEnabled(Level)} before
+ * they build a message, so nothing is allocated for disabled levels.
+ *
  * @author <a href="mailto:DanielWilson@users.sourceforge.net">Daniel Wilson</a>
  * @version $Revision: 1.1 $
  */
 public abstract class LoggingObject
 {
-    private static Logger logger_;//dwilson 3/15/07
+    private static final Logger LOGGER = Logger.getLogger( "org.apache.pdfbox" );
 
-    protected Logger logger() throws IOException //dwilson 3/15/07
-    {//I would like to just bury any error here ... but unfortunately an error would result in a Null Reference Exception
-	//Therefore, I might as well throw the original error.
+    private static final DiagnosticListener DEFAULT_LISTENER = new LoggingDiagnosticListener( LOGGER );
 
-    	//http://www.rgagnon.com/javadetails/java-0501.html
-    	if (logger_ == null){
-	    	FileHandler fh = new FileHandler("PDFBox.log", true);
-	    	fh.setFormatter(new SimpleFormatter());
-	        logger_ = Logger.getLogger("TestLog");
-	        logger_.addHandler(fh);
+    private static volatile DiagnosticListener diagnosticListener = DEFAULT_LISTENER;
 
-            /*Set the log level here.
-            The lower your logging level, the more stuff will be logged.
-            Options are:
-                * OFF -- log nothing
-                * SEVERE (highest value)
-                * WARNING
-                * INFO
-                * CONFIG
-                * FINE
-                * FINER
-                * FINEST (lowest value)
-            http://java.sun.com/j2se/1.4.2/docs/api/java/util/logging/Level.html
+    static
+    {
+        /*Unless the level has been configured, only log warnings and errors.
+        The lower your logging level, the more stuff will be logged.
+        Options are:
+            * OFF -- log nothing
+            * SEVERE (highest value)
+            * WARNING
+            * INFO
+            * CONFIG
+            * FINE
+            * FINER
+            * FINEST (lowest value)
+        http://java.sun.com/j2se/1.4.2/docs/api/java/util/logging/Level.html
+        */
+        if( LOGGER.getLevel() == null )
+        {
+            LOGGER.setLevel( Level.WARNING );
+        }
+    }
 
-            I recommend INFO for debug builds and either SEVERE or OFF for production builds.
-            */
-            logger_.setLevel(Level.WARNING);
-    	}
+    /**
+     * This will get the logger of PDFBox.  Messages that are concatenated should
+     * be guarded with Logger.isLoggable.
+     *
+     * @return The "org.apache.pdfbox" logger.
+     *
+     * @throws IOException Never, kept for compatibility.
+     */
+    protected Logger logger() throws IOException
+    {
+        return LOGGER;
+    }
 
-    	return logger_;
+    /**
+     * This will set the listener that receives the diagnostic events.
+     *
+     * @param listener The new listener, or null to log the events again.
+     */
+    public static void setDiagnosticListener( DiagnosticListener listener )
+    {
+        diagnosticListener = listener == null ? DEFAULT_LISTENER : listener;
+    }
 
+    /**
+     * This will get the listener that receives the diagnostic events.
+     *
+     * @return The current listener.
+     */
+    public static DiagnosticListener getDiagnosticListener()
+    {
+        return diagnosticListener;
     }
 
-    protected static String FullStackTrace(Throwable e){
-    	String sRet;
-		int i;
-		StackTraceElement [] L;
+    /**
+     * This will tell if diagnostic events of a level are reported.
+     *
+     * @param level The level of the event.
+     *
+     * @return true if an event of this level would be reported.
+     */
+    protected static boolean isDiagnosticEnabled( Level level )
+    {
+        return diagnosticListener.isEnabled( level );
+    }
+
+    /**
+     * This will report a diagnostic event if its level is enabled.
+     *
+     * @param level The severity of the problem.
+     * @param message A description of the problem.
+     * @param cause The exception that caused the problem, or null.
+     */
+    protected static void report( Level level, String message, Throwable cause )
+    {
+        report( level, message, cause, null, null, null );
+    }
 
-		sRet = new String();
-		L = e.getStackTrace();
-		for (i=0; i<L.length; i++){
-			sRet = sRet + (L[i].toString())+ "\n";
-		}
-		if (e.getCause() != null){
-			sRet = sRet + "Caused By \n\t" + e.getCause().getMessage();
-			sRet = sRet + FullStackTrace(e.getCause());
-		}
+    /**
+     * This will report a diagnostic event if its level is enabled.
+     *
+     * @param level The severity of the problem.
+     * @param message A description of the problem.
+     * @param cause The exception that caused the problem, or null.
+     * @param page The page that was being processed, or null.
+     * @param objectKey The key of the object that was being parsed, or null.
+     * @param operator The content stream operator that was being processed, or null.
+     */
+    protected static void report( Level level, String message, Throwable cause,
+        PDPage page, COSObjectKey objectKey, String operator )
+    {
+        DiagnosticListener listener = diagnosticListener;
+        if( listener.isEnabled( level ) )
+        {
+            listener.report( new DiagnosticEvent( level, message, cause, page, objectKey, operator ) );
+        }
+    }
 
-		return sRet;
+    /**
+     * This will format the stack trace of an exception and its causes.
+     *
+     * @param e The exception to format.
+     *
+     * @return The stack trace.
+     *
+     * @deprecated Report the exception as the cause of a diagnostic event, the
+     * stack trace is then only formatted if the event is logged.
+     */
+    protected static String FullStackTrace( Throwable e )
+    {
+        StringBuffer buffer = new StringBuffer();
+        Throwable current = e;
+        while( current != null )
+        {
+            if( current != e )
+            {
+                buffer.append( "Caused By \n\t" ).append( current.getMessage() );
+            }
+            StackTraceElement[] elements = current.getStackTrace();
+            for( int i=0; i<elements.length; i++ )
+            {
+                buffer.append( elements[i] ).append( '\n' );
+            }
+            current = current.getCause();
+        }
+        return buffer.toString();
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that reads the remaining bytes of a byte buffer.  The
+ * buffer may be a heap, direct or memory mapped buffer.
+ *
+ * @version $Revision: 1.0 $
+ */
+public class ByteBufferInputStream extends InputStream
+{
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor.
+     *
+     * @param data The data to read, its position and limit are not changed.
+     */
+    public ByteBufferInputStream( ByteBuffer data )
+    {
+        buffer = data.duplicate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read()
+    {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read( byte[] b, int off, int len )
+    {
+        if( len == 0 )
+        {
+            return 0;
+        }
+        if( !buffer.hasRemaining() )
+        {
+            return -1;
+        }
+        int amount = Math.min( len, buffer.remaining() );
+        buffer.get( b, off, amount );
+        return amount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long skip( long n )
+    {
+        int amount = (int)Math.max( 0, Math.min( n, buffer.remaining() ) );
+        buffer.position( buffer.position() + amount );
+        return amount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int available()
+    {
+        return buffer.remaining();
+    }
+}
@@ -22,16 +22,34 @@ import java.io.IOException;
 /**
  * A simple subclass that adds a few convience methods.
  *
+ * The data is read through a byte window with an index cursor instead of the
+ * synchronized buffer of java.io.PushbackInputStream, so reading and unreading
+ * a single byte is an array access.  Up to the push back size of bytes that have
+ * already been read are kept in front of the cursor when the window is refilled,
+ * so unreading them never copies; unreading more than that grows the window.
+ *
  * @author <a href="mailto:ben@benlitchfield.com">Ben Litchfield</a>
  * @version $Revision: 1.6 $
  */
 public class PushBackInputStream extends java.io.PushbackInputStream
 {
+    /**
+     * The number of bytes read from the underlying stream at once.
+     */
+    private static final int READ_AHEAD = 16384;
+
     /*
      * The current position in the file. 
      */
-    private int offset = 0;
-    
+    private long offset = 0;
+
+    private final int pushBackSize;
+    private byte[] window;
+    //the index of the next byte to read
+    private int position;
+    //the end of the valid data in the window
+    private int limit;
+
     /**
      * Constructor.
      *
@@ -42,11 +60,71 @@ public class PushBackInputStream extends java.io.PushbackInputStream
      */
     public PushBackInputStream( InputStream input, int size ) throws IOException
     {
-        super( input, size );
+        super( input, 1 );
         if( input == null )
         {
             throw new IOException( "Error: input was null" );
         }
+        pushBackSize = size;
+    }
+
+    /**
+     * This will refill the window once every byte in it has been read.
+     *
+     * @return false if the end of the stream has been reached.
+     *
+     * @throws IOException If there is an error reading from the stream.
+     */
+    private boolean fill() throws IOException
+    {
+        if( window == null )
+        {
+            window = new byte[ pushBackSize + READ_AHEAD ];
+        }
+        else
+        {
+            //keep the last bytes that were read so they can be unread in place
+            int keep = Math.min( position, pushBackSize );
+            System.arraycopy( window, position - keep, window, pushBackSize - keep, keep );
+        }
+        position = pushBackSize;
+        limit = pushBackSize;
+        int amountRead = 0;
+        while( amountRead == 0 )
+        {
+            amountRead = in.read( window, limit, window.length - limit );
+        }
+        if( amountRead < 0 )
+        {
+            return false;
+        }
+        limit += amountRead;
+        return true;
+    }
+
+    /**
+     * This will make sure that a number of bytes can be unread in front of the cursor.
+     *
+     * @param length The number of bytes that will be unread.
+     */
+    private void makeRoom( int length )
+    {
+        if( window == null )
+        {
+            window = new byte[ Math.max( pushBackSize, length ) + READ_AHEAD ];
+            position = Math.max( pushBackSize, length );
+            limit = position;
+        }
+        else if( position < length )
+        {
+            int available = limit - position;
+            int newPosition = Math.max( pushBackSize, length );
+            byte[] newWindow = new byte[ Math.max( window.length, newPosition + available + READ_AHEAD ) ];
+            System.arraycopy( window, position, newWindow, newPosition, available );
+            window = newWindow;
+            position = newPosition;
+            limit = newPosition + available;
+        }
     }
 
     /**
@@ -58,71 +136,151 @@ public class PushBackInputStream extends java.io.PushbackInputStream
      */
     public int peek() throws IOException
     {
-        int result = read();
-        if( result != -1 )
+        if( position == limit && !fill() )
         {
-            unread( result );
+            return -1;
         }
-        return result;
+        return window[position] & 0xff;
     }
-    
+
     /**
      * Returns the current byte offset in the file
-     * @return the int byte offset
+     * @return the long byte offset
      */
-    public int getOffset(){
+    public long getOffset(){
         return offset;
     }
-    
+
     /**
-     * {@inheritDoc} 
+     * {@inheritDoc}
      */
     public int read() throws IOException{
-        int retval = super.read();
-        if (retval != -1)
-            offset++;
-        return retval;
+        if( position == limit && !fill() )
+        {
+            return -1;
+        }
+        offset++;
+        return window[position++] & 0xff;
     }
-    
+
     /**
-     * {@inheritDoc} 
+     * {@inheritDoc}
      */
     public int read(byte[] b) throws IOException{
         return this.read(b, 0, b.length);
     }
+
     /**
-     * {@inheritDoc} 
+     * This will read up to len bytes, it only returns less at the end of the stream.
+     *
+     * @param b The buffer to read into.
+     * @param off The offset in the buffer.
+     * @param len The maximum number of bytes to read.
+     *
+     * @return The number of bytes read, or -1 at the end of the stream.
+     *
+     * @throws IOException If there is an error reading from the stream.
      */
     public int read(byte[] b, int off, int len) throws IOException{
-        int retval = super.read(b, off, len);
-        if (retval != -1)
-            offset += retval;
-        return retval;
+        int totalRead = 0;
+        while( totalRead < len )
+        {
+            if( position == limit && !fill() )
+            {
+                break;
+            }
+            int amount = Math.min( limit - position, len - totalRead );
+            System.arraycopy( window, position, b, off + totalRead, amount );
+            position += amount;
+            totalRead += amount;
+        }
+        if( totalRead == 0 && len > 0 )
+        {
+            return -1;
+        }
+        offset += totalRead;
+        return totalRead;
     }
-    
+
     /**
-     * {@inheritDoc} 
+     * {@inheritDoc}
      */
     public void unread(int b) throws IOException{
+        if( position == 0 || window == null )
+        {
+            makeRoom( 1 );
+        }
         offset--;
-        super.unread(b);
+        window[--position] = (byte)b;
     }
-    
+
     /**
-     * {@inheritDoc} 
+     * {@inheritDoc}
      */
     public void unread(byte[] b) throws IOException{
         this.unread(b, 0, b.length);
     }
-    
+
     /**
-     * {@inheritDoc} 
+     * {@inheritDoc}
      */
     public void unread(byte[] b, int off, int len) throws IOException{
+        if( position < len || window == null )
+        {
+            makeRoom( len );
+        }
         offset -= len;
-        super.unread(b, off, len);
+        position -= len;
+        System.arraycopy( b, off, window, position, len );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int available() throws IOException
+    {
+        return (limit - position) + in.available();
     }
-    
+
+    /**
+     * {@inheritDoc}
+     */
+    public long skip( long n ) throws IOException
+    {
+        long skipped = 0;
+        while( skipped < n )
+        {
+            if( position == limit && !fill() )
+            {
+                break;
+            }
+            int amount = (int)Math.min( limit - position, n - skipped );
+            position += amount;
+            skipped += amount;
+        }
+        offset += skipped;
+        return skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException
+    {
+        window = null;
+        position = 0;
+        limit = 0;
+        in.close();
+    }
+
     /**
      * A simple test to see if we are at the end of the stream.
      *
@@ -146,18 +304,27 @@ public class PushBackInputStream extends java.io.PushbackInputStream
      */
     public void fillBuffer() throws IOException
     {
-        int bufferLength = buf.length;
-        byte[] tmpBuffer = new byte[bufferLength];
-        int amountRead = 0;
-        int totalAmountRead = 0;
-        while( amountRead != -1 && totalAmountRead < bufferLength )
+        if( position == limit )
+        {
+            fill();
+        }
+        if( window != null && limit < window.length )
         {
-            amountRead = this.read( tmpBuffer, totalAmountRead, bufferLength - totalAmountRead );
-            if( amountRead != -1 )
+            //move the unread data to the front of the free space and read the rest
+            int available = limit - position;
+            int keep = Math.min( position, pushBackSize );
+            System.arraycopy( window, position - keep, window, pushBackSize - keep, keep + available );
+            position = pushBackSize;
+            limit = pushBackSize + available;
+            int amountRead = 0;
+            while( amountRead != -1 && limit < window.length )
             {
-                totalAmountRead += amountRead;
+                amountRead = in.read( window, limit, window.length - limit );
+                if( amountRead > 0 )
+                {
+                    limit += amountRead;
+                }
             }
         }
-        this.unread( tmpBuffer, 0, totalAmountRead );
     }
 }
@@ -50,7 +50,18 @@ public class RandomAccessFileInputStream extends InputStream
      */
     public int available()
     {
-        return (int)(endPosition - currentPosition);
+        //the section can be longer than an int can count
+        return (int)Math.min( Integer.MAX_VALUE, remaining() );
+    }
+
+    /**
+     * This will get the number of bytes left in the section.
+     *
+     * @return The number of bytes that have not been read yet.
+     */
+    private long remaining()
+    {
+        return endPosition - currentPosition;
     }
     /**
      * {@inheritDoc}
@@ -82,14 +93,14 @@ public class RandomAccessFileInputStream extends InputStream
     public int read( byte[] b, int offset, int length ) throws IOException
     {
         //only allow a read of the amount available.
-        if( length > available() )
+        if( length > remaining() )
         {
-            length = available();
+            length = (int)remaining();
         }
         int amountRead = -1;
         //only read if there are bytes actually available, otherwise
         //return -1 if the EOF has been reached.
-        if( available() > 0 )
+        if( remaining() > 0 )
         {
             synchronized(file)
             {
@@ -110,7 +121,7 @@ public class RandomAccessFileInputStream extends InputStream
      */
     public long skip( long amountToSkip )
     {
-        long amountSkipped = Math.min( amountToSkip, available() );
+        long amountSkipped = Math.max( 0, Math.min( amountToSkip, remaining() ) );
         currentPosition+= amountSkipped;
         return amountSkipped;
     }
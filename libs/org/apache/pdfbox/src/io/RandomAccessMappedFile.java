@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A random access implementation that uses memory mapped windows of a file
+ * instead of a system call for every read or write.  The file is mapped in
+ * fixed size chunks on demand, so files larger than 2GB are supported.
+ *
+ * When opened for writing the chunks are mapped read/write, which grows the
+ * file on disk to the end of the last touched chunk; the logical length is
+ * tracked separately and the file is truncated back to it on close.  Writable
+ * files use much smaller chunks, so a scratch file only grows a little ahead
+ * of the data that is actually written to it.
+ *
+ * The chunks are unmapped on close where the JVM allows it, otherwise the
+ * mapping, and on some platforms the lock on the file, lasts until the
+ * buffers are garbage collected.
+ *
+ * @version $Revision: 1.0 $
+ */
+public class RandomAccessMappedFile implements RandomAccess
+{
+    //64MB windows for reading
+    private static final int READ_CHUNK_SHIFT = 26;
+    //1MB windows for writing
+    private static final int WRITE_CHUNK_SHIFT = 20;
+
+    private final int chunkShift;
+    private final long chunkSize;
+    private final long chunkMask;
+
+    private java.io.RandomAccessFile ras;
+    private FileChannel channel;
+    private boolean writable;
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private long pointer;
+    private long length;
+
+    /**
+     * Constructor.
+     *
+     * @param file The file to map.
+     * @param mode The access mode, "r" for read only or "rw" for read/write.
+     * @throws IOException If the file cannot be opened.
+     */
+    public RandomAccessMappedFile( File file, String mode ) throws IOException
+    {
+        ras = new java.io.RandomAccessFile( file, mode );
+        channel = ras.getChannel();
+        writable = !mode.equals( "r" );
+        length = channel.size();
+        chunkShift = writable ? WRITE_CHUNK_SHIFT : READ_CHUNK_SHIFT;
+        chunkSize = 1L << chunkShift;
+        chunkMask = chunkSize - 1;
+    }
+
+    /**
+     * This will get the mapped window for a chunk, mapping it if this is the
+     * first access.
+     *
+     * @param index The index of the chunk.
+     * @return The mapped window.
+     * @throws IOException If there is an error mapping the file.
+     */
+    private MappedByteBuffer getChunk( int index ) throws IOException
+    {
+        if( chunks == null )
+        {
+            throw new IOException( "RandomAccessMappedFile already closed" );
+        }
+        if( index >= chunks.length )
+        {
+            MappedByteBuffer[] newChunks = new MappedByteBuffer[ Math.max( index + 1, chunks.length * 2 ) ];
+            System.arraycopy( chunks, 0, newChunks, 0, chunks.length );
+            chunks = newChunks;
+        }
+        MappedByteBuffer chunk = chunks[index];
+        if( chunk == null )
+        {
+            long start = ((long)index) << chunkShift;
+            if( writable )
+            {
+                chunk = channel.map( FileChannel.MapMode.READ_WRITE, start, chunkSize );
+            }
+            else
+            {
+                chunk = channel.map( FileChannel.MapMode.READ_ONLY, start, Math.min( chunkSize, length - start ) );
+            }
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void close() throws IOException
+    {
+        //the streams that read this file synchronize on it, so no read is using
+        //a chunk while it is unmapped
+        MappedByteBuffer[] mapped = chunks;
+        chunks = null;
+        if( mapped != null )
+        {
+            for( int i=0; i<mapped.length; i++ )
+            {
+                if( mapped[i] != null )
+                {
+                    if( writable )
+                    {
+                        mapped[i].force();
+                    }
+                    unmap( mapped[i] );
+                }
+            }
+        }
+        try
+        {
+            if( writable && channel.size() > length )
+            {
+                channel.truncate( length );
+            }
+        }
+        catch( IOException e )
+        {
+            //some platforms refuse to truncate a file that is still mapped,
+            //the extra bytes are beyond the logical end so it is safe to keep them.
+        }
+        finally
+        {
+            ras.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void seek( long position ) throws IOException
+    {
+        if( position < 0 )
+        {
+            throw new IOException( "Negative seek offset" );
+        }
+        pointer = position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read() throws IOException
+    {
+        if( pointer >= length )
+        {
+            return -1;
+        }
+        int b = getChunk( (int)(pointer >>> chunkShift) ).get( (int)(pointer & chunkMask) ) & 0xff;
+        pointer++;
+        return b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read( byte[] b, int offset, int len ) throws IOException
+    {
+        if( pointer >= length )
+        {
+            return -1;
+        }
+        int total = (int)Math.min( len, length - pointer );
+        int remaining = total;
+        while( remaining > 0 )
+        {
+            MappedByteBuffer chunk = getChunk( (int)(pointer >>> chunkShift) );
+            int chunkOffset = (int)(pointer & chunkMask);
+            int amount = (int)Math.min( remaining, chunkSize - chunkOffset );
+            chunk.position( chunkOffset );
+            chunk.get( b, offset, amount );
+            offset += amount;
+            remaining -= amount;
+            pointer += amount;
+        }
+        return total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long length() throws IOException
+    {
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write( byte[] b, int offset, int len ) throws IOException
+    {
+        checkWritable();
+        while( len > 0 )
+        {
+            MappedByteBuffer chunk = getChunk( (int)(pointer >>> chunkShift) );
+            int chunkOffset = (int)(pointer & chunkMask);
+            int amount = (int)Math.min( len, chunkSize - chunkOffset );
+            chunk.position( chunkOffset );
+            chunk.put( b, offset, amount );
+            offset += amount;
+            len -= amount;
+            pointer += amount;
+        }
+        if( pointer > length )
+        {
+            length = pointer;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void write( int b ) throws IOException
+    {
+        checkWritable();
+        getChunk( (int)(pointer >>> chunkShift) ).put( (int)(pointer & chunkMask), (byte)b );
+        pointer++;
+        if( pointer > length )
+        {
+            length = pointer;
+        }
+    }
+
+    /**
+     * This will release a mapping right away instead of when the buffer is garbage
+     * collected, so the file can be truncated, deleted or overwritten.  There is no
+     * public API for this, so the cleaner of the buffer is called through reflection:
+     * Unsafe.invokeCleaner() on newer JVMs and the buffer's cleaner() on older ones.
+     * If neither works the mapping is left to the garbage collector.
+     *
+     * @param buffer The mapping to release, it must not be used afterwards.
+     */
+    private static void unmap( MappedByteBuffer buffer )
+    {
+        try
+        {
+            Class unsafeClass = Class.forName( "sun.misc.Unsafe" );
+            Method invokeCleaner = unsafeClass.getMethod( "invokeCleaner", new Class[] { java.nio.ByteBuffer.class } );
+            Field theUnsafe = unsafeClass.getDeclaredField( "theUnsafe" );
+            theUnsafe.setAccessible( true );
+            invokeCleaner.invoke( theUnsafe.get( null ), new Object[] { buffer } );
+            return;
+        }
+        catch( Exception e )
+        {
+            //not available, try the older way below
+        }
+        try
+        {
+            Method cleanerMethod = buffer.getClass().getMethod( "cleaner", new Class[0] );
+            cleanerMethod.setAccessible( true );
+            Object cleaner = cleanerMethod.invoke( buffer, new Object[0] );
+            if( cleaner != null )
+            {
+                Method clean = cleaner.getClass().getMethod( "clean", new Class[0] );
+                clean.setAccessible( true );
+                clean.invoke( cleaner, new Object[0] );
+            }
+        }
+        catch( Exception e )
+        {
+            //leave the mapping to the garbage collector
+        }
+    }
+
+    private void checkWritable() throws IOException
+    {
+        if( !writable )
+        {
+            throw new IOException( "RandomAccessMappedFile opened read only" );
+        }
+    }
+}
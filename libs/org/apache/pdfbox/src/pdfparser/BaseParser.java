@@ -16,7 +16,6 @@
  */
 package org.apache.pdfbox.pdfparser;
 
-import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -32,6 +31,7 @@ import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSBoolean;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSFloat;
 import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
@@ -42,6 +42,7 @@ import org.apache.pdfbox.cos.COSString;
 
 import org.apache.pdfbox.persistence.util.COSObjectKey;
 import org.apache.pdfbox.exceptions.LoggingObject;
+import org.apache.pdfbox.util.PDFMetrics;
 /**
  * This class is used to contain parsing logic that will be used by both the
  * PDFParser and the COSStreamParser.
@@ -71,6 +72,38 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
     protected PushBackInputStream pdfSource;
 
     protected COSDocument document;
+
+    /**
+     * The number of recently parsed names that are remembered by each parser.
+     */
+    private static final int NAME_CACHE_SIZE = 256;
+
+    /**
+     * Numbers with more digits than this are left to COSNumber.get(), this is the
+     * most that a long and a double hold without losing precision.
+     */
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+    static
+    {
+        POWERS_OF_TEN[0] = 1;
+        for( int i=1; i<POWERS_OF_TEN.length; i++ )
+        {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+        }
+    }
+
+    /**
+     * The characters of the name or number that is being read, reused for every token.
+     */
+    private char[] tokenChars = new char[64];
+
+    /**
+     * Names are looked up here by hash before COSName.getPDFName() is called, so the
+     * names that repeat in every dictionary do not create a String each time.
+     */
+    private final COSName[] nameCache = new COSName[NAME_CACHE_SIZE];
     
     /**
      * Constructor.
@@ -82,7 +115,7 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
     public BaseParser( InputStream input) throws IOException
     {
         //pdfSource = new PushBackByteArrayStream( input );
-        pdfSource = new PushBackInputStream( new BufferedInputStream( input, 16384 ), 4096 );
+        pdfSource = new PushBackInputStream( input, 4096 );
     }
 
     /**
@@ -217,6 +250,8 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
         {
             throw new IOException( "expected='>' actual='" + ch + "'" );
         }
+        //an object is only changed by edits made after it was parsed
+        obj.setNeedToBeUpdated( false );
         return obj;
     }
 
@@ -233,6 +268,14 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
     protected COSStream parseCOSStream( COSDictionary dic, RandomAccess file ) throws IOException
     {
         COSStream stream = new COSStream( dic, file );
+        PDFMetrics metrics = null;
+        if( document != null )
+        {
+            stream.setDecodedStreamCache( document.getDecodedStreamCache() );
+            metrics = document.getMetrics();
+            stream.setMetrics( metrics );
+        }
+        long scratchLength = metrics == null ? 0 : file.length();
         OutputStream out = null;
         try
         {
@@ -334,6 +377,11 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
                 out.close();
             }
         }
+        if( metrics != null )
+        {
+            metrics.addCount( PDFMetrics.SCRATCH, "bytesWritten", file.length() - scratchLength );
+        }
+        stream.setNeedToBeUpdated( false );
         return stream;
     }
     /**
@@ -653,13 +701,14 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
             }
             else
             {
-                logger().log(Level.WARNING, "Corrupt object reference" );
+                report( Level.WARNING, "Corrupt object reference", null );
                 //it could be a bad object in the array which is just skipped
             }
             skipSpaces();
         }
         pdfSource.read(); //read ']'
         skipSpaces();
+        po.setNeedToBeUpdated( false );
         return po;
     }
 
@@ -693,7 +742,8 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
             throw new IOException("expected='/' actual='" + (char)c + "'-" + c + " " + pdfSource );
         }
         // costruisce il nome
-        StringBuffer buffer = new StringBuffer();
+        int length = 0;
+        int hash = 0;
         c = pdfSource.read();
         while( c != -1 )
         {
@@ -712,22 +762,17 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
                 //
                 if (isHexDigit(ch1) && isHexDigit(ch2))
                 {
-                    String hex = "" + ch1 + ch2;
-                    try
-                    {
-                        buffer.append( (char) Integer.parseInt(hex, 16));
-                    }
-                    catch (NumberFormatException e)
-                    {
-                        throw new IOException("Error: expected hex number, actual='" + hex + "'");
-                    }
+                    char decoded = (char)((Character.digit( ch1, 16 ) << 4) + Character.digit( ch2, 16 ));
+                    length = appendTokenChar( length, decoded );
+                    hash = 31 * hash + decoded;
                     c = pdfSource.read();
                 }
                 else
                 {
                     pdfSource.unread(ch2);
                     c = ch1;
-                    buffer.append( ch );
+                    length = appendTokenChar( length, ch );
+                    hash = 31 * hash + ch;
                 }
             }
             else if (isEndOfName(ch))
@@ -736,7 +781,8 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
             }
             else
             {
-                buffer.append( ch );
+                length = appendTokenChar( length, ch );
+                hash = 31 * hash + ch;
                 c = pdfSource.read();
             }
         }
@@ -744,10 +790,129 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
         {
             pdfSource.unread(c);
         }
-        retval = COSName.getPDFName( buffer.toString() );
+        retval = getCachedName( length, hash );
         return retval;
     }
 
+    /**
+     * This will get the name made of the token characters, the hash is calculated
+     * the same way as String.hashCode() so it can be compared to the cached name.
+     *
+     * @param length The number of token characters in the name.
+     * @param hash The hash of the token characters.
+     *
+     * @return The PDF name.
+     */
+    private COSName getCachedName( int length, int hash )
+    {
+        int slot = (hash ^ (hash >>> 8)) & (NAME_CACHE_SIZE - 1);
+        COSName cached = nameCache[slot];
+        if( cached != null && cached.hashCode() == hash )
+        {
+            String name = cached.getName();
+            if( name.length() == length )
+            {
+                int i = 0;
+                while( i < length && name.charAt( i ) == tokenChars[i] )
+                {
+                    i++;
+                }
+                if( i == length )
+                {
+                    return cached;
+                }
+            }
+        }
+        COSName retval = COSName.getPDFName( new String( tokenChars, 0, length ) );
+        nameCache[slot] = retval;
+        return retval;
+    }
+
+    /**
+     * This will add a character to the token that is being read.
+     *
+     * @param length The number of token characters so far.
+     * @param ch The character to add.
+     *
+     * @return The new number of token characters.
+     */
+    protected int appendTokenChar( int length, char ch )
+    {
+        if( length == tokenChars.length )
+        {
+            char[] newChars = new char[ length * 2 ];
+            System.arraycopy( tokenChars, 0, newChars, 0, length );
+            tokenChars = newChars;
+        }
+        tokenChars[length] = ch;
+        return length + 1;
+    }
+
+    /**
+     * This will convert the token characters to a number.  Plain integers and decimal
+     * reals are calculated directly, anything else, like exponents or very long numbers,
+     * is handed to COSNumber.get() so the result is the same as it always was.
+     *
+     * @param length The number of token characters.
+     *
+     * @return The number.
+     *
+     * @throws IOException If the token is not a number.
+     */
+    protected COSNumber getNumber( int length ) throws IOException
+    {
+        int i = 0;
+        boolean negative = false;
+        if( length > 0 && tokenChars[0] == '-' )
+        {
+            negative = true;
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for( ; i<length; i++ )
+        {
+            char ch = tokenChars[i];
+            if( ch >= '0' && ch <= '9' )
+            {
+                mantissa = mantissa * 10 + (ch - '0');
+                digits++;
+                if( scale >= 0 )
+                {
+                    scale++;
+                }
+            }
+            else if( ch == '.' && scale < 0 )
+            {
+                scale = 0;
+            }
+            else
+            {
+                digits = MAX_FAST_DIGITS + 1;
+                break;
+            }
+        }
+        if( digits == 0 || digits > MAX_FAST_DIGITS )
+        {
+            return COSNumber.get( new String( tokenChars, 0, length ) );
+        }
+        if( scale < 0 )
+        {
+            if( length == 1 && mantissa == 0 )
+            {
+                return COSNumber.ZERO;
+            }
+            else if( length == 1 && mantissa == 1 )
+            {
+                return COSNumber.ONE;
+            }
+            return COSInteger.get( negative ? -mantissa : mantissa );
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return new COSFloat( (float)(negative ? -value : value) );
+    }
+
     /**
      * This will parse a boolean object from the stream.
      *
@@ -888,7 +1053,7 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
         {
             if( Character.isDigit(c) || c == '-' || c == '+' || c == '.')
             {
-                StringBuffer buf = new StringBuffer();
+                int length = 0;
                 int ic = pdfSource.read();
                 c = (char)ic;
                 while( Character.isDigit( c )||
@@ -898,7 +1063,7 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
                         c == 'E' ||
                         c == 'e' )
                 {
-                    buf.append( c );
+                    length = appendTokenChar( length, c );
                     ic = pdfSource.read();
                     c = (char)ic;
                 }
@@ -906,7 +1071,7 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
                 {
                     pdfSource.unread( ic );
                 }
-                retval = COSNumber.get( buf.toString() );
+                retval = getNumber( length );
             }
             else
             {
@@ -1172,7 +1337,7 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
         int retval = 0;
 
         int lastByte = 0;
-        StringBuffer intBuffer = new StringBuffer();
+        int length = 0;
         while( (lastByte = pdfSource.read() ) != 32 &&
                 lastByte != 10 &&
                 lastByte != 13 &&
@@ -1180,21 +1345,42 @@ public abstract class BaseParser extends org.apache.pdfbox.exceptions.LoggingObj
                 lastByte != 0 && //See sourceforge bug 853328
                 lastByte != -1 )
         {
-            intBuffer.append( (char)lastByte );
+            length = appendTokenChar( length, (char)lastByte );
         }
         if( lastByte != -1 )
         {
             pdfSource.unread( lastByte );
         }
 
+        //nine digits always fit in an int, anything else goes through Integer.parseInt()
+        int start = length > 0 && tokenChars[0] == '-' ? 1 : 0;
+        boolean simple = length > start && length - start <= 9;
+        for( int i=start; simple && i<length; i++ )
+        {
+            char ch = tokenChars[i];
+            if( ch >= '0' && ch <= '9' )
+            {
+                retval = retval * 10 + (ch - '0');
+            }
+            else
+            {
+                simple = false;
+            }
+        }
+        if( simple )
+        {
+            return start == 1 ? -retval : retval;
+        }
+
+        String intString = new String( tokenChars, 0, length );
         try
         {
-            retval = Integer.parseInt( intBuffer.toString() );
+            retval = Integer.parseInt( intString );
         }
         catch( NumberFormatException e )
         {
-            pdfSource.unread(intBuffer.toString().getBytes());
-            throw new IOException( "Error: Expected an integer type, actual='" + intBuffer + "'" );
+            pdfSource.unread(intString.getBytes());
+            throw new IOException( "Error: Expected an integer type, actual='" + intString + "'" );
         }
         return retval;
     }
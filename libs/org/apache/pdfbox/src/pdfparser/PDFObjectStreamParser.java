@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDocument;
@@ -85,7 +86,10 @@ public class PDFObjectStreamParser extends BaseParser
                     new COSInteger( ((Integer)objectNumbers.get( objectCounter)).intValue() );
                 object.setObjectNumber( objNum );
                 streamObjects.add( object );
-                logger().fine( "parsed=" + object );
+                if( logger().isLoggable( Level.FINE ) )
+                {
+                    logger().fine( "parsed=" + object );
+                }
                 objectCounter++;
             }
         }
@@ -16,31 +16,41 @@
  */
 package org.apache.pdfbox.pdfparser;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
+import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.exceptions.LoggingObject;
 import org.apache.pdfbox.exceptions.WrappedIOException;
+import org.apache.pdfbox.io.PushBackInputStream;
 import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.RandomAccessFileInputStream;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 import org.apache.pdfbox.pdmodel.fdf.FDFDocument;
 
 import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.util.PDFMetrics;
 
 /**
  * This class will handle the parsing of the PDF document.
@@ -54,6 +64,18 @@ public class PDFParser extends BaseParser
 
     private static final String PDF_HEADER = "%PDF-";
     private static final String FDF_HEADER = "%FDF-";
+    private static final String STARTXREF = "startxref";
+
+    /**
+     * The number of bytes at the end of the file that are searched for startxref.
+     */
+    private static final int STARTXREF_SEARCH_LENGTH = 1024;
+
+    /**
+     * The buffer size used when the parser is positioned at an xref offset.
+     */
+    private static final int SEEK_BUFFER_SIZE = 4096;
+
     private boolean forceParsing = false; 
     
     /**
@@ -69,6 +91,35 @@ public class PDFParser extends BaseParser
 
     private RandomAccess raf = null;
 
+    /**
+     * The source of the document when it can be read through its xref table,
+     * null when the document is parsed sequentially from a stream.
+     */
+    private RandomAccess source = null;
+
+    /**
+     * Maps the keys of objects that are stored in object streams to the
+     * number of the object stream that contains them.
+     */
+    private Map compressedObjects = new HashMap();
+
+    /**
+     * The numbers of objects that a newer xref section marks as free.
+     */
+    private Set freeObjects = new HashSet();
+
+    /**
+     * True while the xref sections are read, the newest section is read first
+     * so its entries must not be replaced by the older ones.
+     */
+    private boolean parsingXRefChain = false;
+
+    /**
+     * True if an xref entry turned out to be wrong and the whole document
+     * has been parsed sequentially instead.
+     */
+    private boolean xrefBroken = false;
+
     /**
      * Constructor.
      *
@@ -112,6 +163,26 @@ public class PDFParser extends BaseParser
         this.forceParsing = force;
     }
 
+    /**
+     * Constructor to read a document through its xref table.  Only the xref
+     * sections and the trailer are read by parse(), the objects are parsed from the
+     * source when they are first accessed.  If the xref information is broken then
+     * the document is parsed sequentially instead.  The source will be closed
+     * when the document is closed.
+     *
+     * @param input The random access source that contains the PDF document.
+     * @param rafi The RandomAccessFile to be used in internal COSDocument
+     *
+     * @throws IOException If there is an error initializing the source.
+     */
+    public PDFParser(RandomAccess input, RandomAccess rafi)
+        throws IOException
+    {
+        super( new RandomAccessFileInputStream( input, 0, input.length() ) );
+        this.source = input;
+        this.raf = rafi;
+    }
+
     /**
      * This is the directory where pdfbox will create a temporary file
      * for storing pdf document stream in.  By default this directory will
@@ -152,63 +223,18 @@ public class PDFParser extends BaseParser
                 document = new COSDocument( raf );
             }
             setDocument( document );
+            PDFMetrics metrics = document.getMetrics();
+            long start = metrics == null ? 0 : System.nanoTime();
 
             parseHeader();
-            
-            //Some PDF files have garbage between the header and the
-            //first object
-            skipToNextObj();
-
-            boolean wasLastParsedObjectEOF = false;
-            try{
-                while(true){
-                    if(pdfSource.isEOF()){
-                        break;
-                    }
-                    try{
-                        wasLastParsedObjectEOF = parseObject();
-                    }
-                    catch(IOException e){
-                        if(forceParsing){
-                            /*
-                             * Warning is sent to the PDFBox.log and to the Console that
-                             * we skipped over an object
-                             */
-                            logger().log(Level.WARNING ,"Parsing Error, Skipping Object", e);
-                            skipToNextObj();
-                        }
-                        else{ 
-                            throw e;
-                        }
-                    }
-                    skipSpaces();
-                }
-                //Test if we saw a trailer section. If not, look for an XRef Stream (Cross-Reference Stream) 
-                //For PDF 1.5 and above 
-                if( document.getTrailer() == null ){
-                    COSDictionary trailer = new COSDictionary();
-                    Iterator xrefIter = document.getObjectsByType( "XRef" ).iterator();
-                    while( xrefIter.hasNext() )
-                    {
-                        COSStream next = (COSStream)((COSObject)xrefIter.next()).getObject();
-                        trailer.addAll( next );
-                    }
-                    document.setTrailer( trailer );
-                }
-                if( !document.isEncrypted() )
-                {
-                    document.dereferenceObjectStreams();
-                }
-                ConflictObj.resolveConflicts(document, conflictList);     
+
+            if( source == null || !parseXRefChain() )
+            {
+                parseSequentially();
             }
-            catch( IOException e ){
-                /*
-                 * PDF files may have random data after the EOF marker. Ignore errors if
-                 * last object processed is EOF. 
-                 */
-                if( !wasLastParsedObjectEOF ){
-                    throw e;
-                } 
+            if( metrics != null )
+            {
+                metrics.addTime( PDFMetrics.PARSE, "document", System.nanoTime() - start );
             }
         }
         catch( Throwable t )
@@ -231,6 +257,76 @@ public class PDFParser extends BaseParser
         finally
         {
             pdfSource.close();
+            if( source != null && (document == null || !document.isLazy()) )
+            {
+                close();
+            }
+        }
+    }
+
+    /**
+     * This will parse all objects from the current position to the end of the
+     * stream and add them to the document.
+     *
+     * @throws IOException If there is an error reading from the stream or corrupt data
+     * is found.
+     */
+    private void parseSequentially() throws IOException
+    {
+        //Some PDF files have garbage between the header and the
+        //first object
+        skipToNextObj();
+
+        boolean wasLastParsedObjectEOF = false;
+        try{
+            while(true){
+                if(pdfSource.isEOF()){
+                    break;
+                }
+                try{
+                    wasLastParsedObjectEOF = parseObject();
+                }
+                catch(IOException e){
+                    if(forceParsing){
+                        /*
+                         * Warning is sent to the PDFBox.log and to the Console that
+                         * we skipped over an object
+                         */
+                        report( Level.WARNING, "Parsing Error, Skipping Object", e );
+                        skipToNextObj();
+                    }
+                    else{ 
+                        throw e;
+                    }
+                }
+                skipSpaces();
+            }
+            //Test if we saw a trailer section. If not, look for an XRef Stream (Cross-Reference Stream) 
+            //For PDF 1.5 and above 
+            if( document.getTrailer() == null ){
+                COSDictionary trailer = new COSDictionary();
+                Iterator xrefIter = document.getObjectsByType( "XRef" ).iterator();
+                while( xrefIter.hasNext() )
+                {
+                    COSStream next = (COSStream)((COSObject)xrefIter.next()).getObject();
+                    trailer.addAll( next );
+                }
+                document.setTrailer( trailer );
+            }
+            if( !document.isEncrypted() )
+            {
+                document.dereferenceObjectStreams();
+            }
+            ConflictObj.resolveConflicts(document, conflictList);     
+        }
+        catch( IOException e ){
+            /*
+             * PDF files may have random data after the EOF marker. Ignore errors if
+             * last object processed is EOF. 
+             */
+            if( !wasLastParsedObjectEOF ){
+                throw e;
+            } 
         }
     }
     
@@ -391,7 +487,7 @@ public class PDFParser extends BaseParser
      * @throws IOException If an IO error occurs.
      */
     private boolean parseObject() throws IOException{
-        int currentObjByteOffset = pdfSource.getOffset();
+        long currentObjByteOffset = pdfSource.getOffset();
         boolean isEndOfFile = false; 
         skipSpaces();
         //peek at the next character to determine the type of object we are parsing
@@ -499,15 +595,15 @@ public class PDFParser extends BaseParser
             }
             
             COSObjectKey key = new COSObjectKey( number, genNum );
-            COSObject pdfObject = document.getObjectFromPool( key );
-            if(pdfObject.getObject() == null){
-                pdfObject.setObject(pb);
+            if( document.getMetrics() != null )
+            {
+                document.getMetrics().addCount( PDFMetrics.PARSE, "objects", 1 );
             }
             /*
-             * If the object we returned already has a baseobject, then we have a conflict
+             * If the pool already has a parsed object for the key, then we have a conflict
              * which we will resolve using information after we parse the xref table.
              */
-            else{
+            if( !document.setParsedObject( key, pb, false ) ){
                 addObjectToConflicts(currentObjByteOffset, key, pb); 
             }
             
@@ -560,7 +656,7 @@ public class PDFParser extends BaseParser
     * @param pb The COSBase of this conflictObj
     * @throws IOException
     */
-    private void addObjectToConflicts(int offset, COSObjectKey key, COSBase pb) throws IOException{
+    private void addObjectToConflicts(long offset, COSObjectKey key, COSBase pb) throws IOException{
         COSObject obj = new COSObject(null);
         obj.setObjectNumber( new COSInteger( key.getNumber() ) );
         obj.setGenerationNumber( new COSInteger( key.getGeneration() ) );
@@ -628,16 +724,25 @@ public class PDFParser extends BaseParser
                 String[] splitString = currentLine.split(" ");
                 if(splitString[2].equals("n")){
                     try{
-                        int currOffset = Integer.parseInt(splitString[0]);
+                        long currOffset = Long.parseLong(splitString[0]);
                         int currGenID = Integer.parseInt(splitString[1]);
                         COSObjectKey objKey = new COSObjectKey(currObjID, currGenID);
-                        document.setXRef(objKey, currOffset);
+                        if( !parsingXRefChain || !isXRefEntryKnown( objKey ) )
+                        {
+                            document.setXRef(objKey, currOffset);
+                        }
                     }
                     catch(NumberFormatException e){
                         throw new IOException(e.getMessage());
                     }
                 }
-                else if(!splitString[2].equals("f")){
+                else if(splitString[2].equals("f")){
+                    if( parsingXRefChain )
+                    {
+                        addFreeEntry( currObjID );
+                    }
+                }
+                else {
                     throw new IOException("Corrupt XRefTable Entry - ObjID:" + currObjID);
                 }
                 currObjID++;
@@ -660,9 +765,34 @@ public class PDFParser extends BaseParser
      */
     private boolean parseTrailer() throws IOException
     {
-        if(pdfSource.peek() != 't'){
+        COSDictionary parsedTrailer = parseTrailerDictionary();
+        if( parsedTrailer == null )
+        {
             return false;
         }
+        COSDictionary docTrailer = document.getTrailer();
+        if( docTrailer == null )
+        {
+            document.setTrailer( parsedTrailer );
+        }
+        else
+        {
+            docTrailer.addAll( parsedTrailer );
+        }
+        return true;
+    }
+
+    /**
+     * This will parse the trailer keyword and the trailer dictionary from the stream.
+     *
+     * @return The trailer dictionary or null if there is no trailer at the current position.
+     * @throws IOException If an IO error occurs.
+     */
+    private COSDictionary parseTrailerDictionary() throws IOException
+    {
+        if(pdfSource.peek() != 't'){
+            return null;
+        }
         //read "trailer"
         String nextLine = readLine();
         if( !nextLine.equals( "trailer" ) ) {
@@ -676,7 +806,7 @@ public class PDFParser extends BaseParser
                 pdfSource.unread(b, len, b.length-len);
             }
             else {
-                return false;
+                return null;
             }
         }
 
@@ -686,17 +816,504 @@ public class PDFParser extends BaseParser
         skipSpaces();
 
         COSDictionary parsedTrailer = parseCOSDictionary();
-        COSDictionary docTrailer = document.getTrailer();
-        if( docTrailer == null )
+        skipSpaces();
+        return parsedTrailer;
+    }
+
+    /**
+     * This will read the xref section that startxref points to and all of the
+     * older sections it refers to with /Prev, and then set the document up so
+     * that objects are parsed when they are first accessed.
+     *
+     * @return false if the xref information is broken and the document has
+     * to be parsed sequentially.
+     *
+     * @throws IOException If there is an error reading from the source.
+     */
+    private boolean parseXRefChain() throws IOException
+    {
+        PDFMetrics metrics = document.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        parsingXRefChain = true;
+        try
         {
-            document.setTrailer( parsedTrailer );
+            List trailers = new ArrayList();
+            Set visited = new HashSet();
+            long offset = findStartXRef();
+            while( offset > 0 && visited.add( Long.valueOf( offset ) ) )
+            {
+                COSDictionary trailer = parseXRefSection( offset );
+                trailers.add( trailer );
+                //hybrid files list their compressed objects in an additional
+                //xref stream which takes precedence over the older sections
+                long xrefStm = trailer.getLong( "XRefStm" );
+                if( xrefStm > 0 && visited.add( Long.valueOf( xrefStm ) ) )
+                {
+                    parseXRefSection( xrefStm );
+                }
+                offset = trailer.getLong( COSName.PREV );
+            }
+
+            //the newest trailer is the first one and its values win
+            COSDictionary trailer = new COSDictionary();
+            for( int i=0; i<trailers.size(); i++ )
+            {
+                COSDictionary next = (COSDictionary)trailers.get( i );
+                Iterator keys = next.keyList().iterator();
+                while( keys.hasNext() )
+                {
+                    COSName key = (COSName)keys.next();
+                    if( trailer.getItem( key ) == null )
+                    {
+                        trailer.setItem( key, next.getItem( key ) );
+                    }
+                }
+            }
+            if( !(trailer.getItem( COSName.ROOT ) instanceof COSObject) )
+            {
+                throw new IOException( "Error: Trailer does not reference a /Root object" );
+            }
+            document.setTrailer( trailer );
+        }
+        catch( IOException e )
+        {
+            report( Level.WARNING, "Unable to read the xref table, parsing the whole document", e );
+            document.setTrailer( null );
+            document.getXrefTable().clear();
+            compressedObjects.clear();
+            freeObjects.clear();
+            seekSource( 0 );
+            parseHeader();
+            return false;
+        }
+        finally
+        {
+            parsingXRefChain = false;
+            if( metrics != null )
+            {
+                metrics.addTime( PDFMetrics.PARSE, "xref", System.nanoTime() - start );
+            }
+        }
+        document.setLazyParser( this );
+        return true;
+    }
+
+    /**
+     * This will find the offset of the last xref section from the startxref
+     * keyword at the end of the source.
+     *
+     * @return The offset of the last xref section.
+     *
+     * @throws IOException If there is no startxref keyword.
+     */
+    private long findStartXRef() throws IOException
+    {
+        long length = source.length();
+        int tailLength = (int)Math.min( length, STARTXREF_SEARCH_LENGTH );
+        byte[] tail = new byte[ tailLength ];
+        int amountRead = 0;
+        synchronized( source )
+        {
+            source.seek( length - tailLength );
+            while( amountRead < tailLength )
+            {
+                int read = source.read( tail, amountRead, tailLength - amountRead );
+                if( read <= 0 )
+                {
+                    break;
+                }
+                amountRead += read;
+            }
+        }
+        int index = new String( tail, 0, amountRead, "ISO-8859-1" ).lastIndexOf( STARTXREF );
+        if( index == -1 )
+        {
+            throw new IOException( "Error: Unable to find '" + STARTXREF + "'" );
+        }
+        seekSource( length - tailLength + index + STARTXREF.length() );
+        String offset = readString();
+        try
+        {
+            return Long.parseLong( offset );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new IOException( "Error: Expected an xref offset, actual='" + offset + "'" );
+        }
+    }
+
+    /**
+     * This will read an xref table and its trailer or an xref stream.
+     *
+     * @param offset The offset of the xref section in the source.
+     *
+     * @return The trailer dictionary, or the dictionary of the xref stream.
+     *
+     * @throws IOException If there is no valid xref section at the offset.
+     */
+    private COSDictionary parseXRefSection( long offset ) throws IOException
+    {
+        if( offset >= source.length() )
+        {
+            throw new IOException( "Error: xref offset " + offset + " is beyond the end of the file" );
+        }
+        seekSource( offset );
+        skipSpaces();
+        COSDictionary trailer = null;
+        if( pdfSource.peek() == 'x' )
+        {
+            if( !parseXrefTable() )
+            {
+                throw new IOException( "Error: Expected an xref table at offset " + offset );
+            }
+            skipSpaces();
+            trailer = parseTrailerDictionary();
+            if( trailer == null )
+            {
+                throw new IOException( "Error: Expected a trailer after the xref table at offset " + offset );
+            }
         }
         else
         {
-            docTrailer.addAll( parsedTrailer );
+            COSBase xrefStream = parseIndirectObject( null );
+            if( !(xrefStream instanceof COSStream) )
+            {
+                throw new IOException( "Error: Expected an xref stream at offset " + offset );
+            }
+            parseXRefStream( (COSStream)xrefStream );
+            trailer = (COSStream)xrefStream;
+        }
+        return trailer;
+    }
+
+    /**
+     * This will read the entries of a cross reference stream.
+     *
+     * @param stream The xref stream.
+     *
+     * @throws IOException If there is an error reading the stream data.
+     */
+    private void parseXRefStream( COSStream stream ) throws IOException
+    {
+        COSBase w = stream.getItem( COSName.W );
+        if( !(w instanceof COSArray) || ((COSArray)w).size() != 3 )
+        {
+            throw new IOException( "Error: xref stream has an invalid /W entry " + w );
+        }
+        int[] widths = new int[3];
+        for( int i=0; i<widths.length; i++ )
+        {
+            widths[i] = ((COSArray)w).getInt( i, 0 );
+        }
+        COSArray index = null;
+        COSBase indexItem = stream.getItem( COSName.getPDFName( "Index" ) );
+        if( indexItem instanceof COSArray )
+        {
+            index = (COSArray)indexItem;
+        }
+        else
+        {
+            index = new COSArray();
+            index.add( COSInteger.ZERO );
+            index.add( new COSInteger( stream.getInt( "Size", 0 ) ) );
+        }
+
+        InputStream data = new BufferedInputStream( stream.getUnfilteredStream() );
+        try
+        {
+            for( int i=0; i+1<index.size(); i+=2 )
+            {
+                int number = index.getInt( i, 0 );
+                int count = index.getInt( i+1, 0 );
+                for( int j=0; j<count; j++, number++ )
+                {
+                    //the type defaults to 1 when its width is zero
+                    long type = widths[0] == 0 ? 1 : readXRefStreamField( data, widths[0] );
+                    long second = readXRefStreamField( data, widths[1] );
+                    long third = readXRefStreamField( data, widths[2] );
+                    if( type == 0 )
+                    {
+                        addFreeEntry( number );
+                    }
+                    else if( type == 1 )
+                    {
+                        COSObjectKey key = new COSObjectKey( number, third );
+                        if( !isXRefEntryKnown( key ) )
+                        {
+                            document.setXRef( key, second );
+                        }
+                    }
+                    else if( type == 2 )
+                    {
+                        COSObjectKey key = new COSObjectKey( number, 0 );
+                        if( !isXRefEntryKnown( key ) )
+                        {
+                            compressedObjects.put( key, Integer.valueOf( (int)second ) );
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            data.close();
+        }
+    }
+
+    /**
+     * This will read a big endian field of an xref stream entry.
+     *
+     * @param data The decoded xref stream.
+     * @param width The number of bytes in the field.
+     *
+     * @return The value of the field.
+     *
+     * @throws IOException If the stream ends before the field is complete.
+     */
+    private long readXRefStreamField( InputStream data, int width ) throws IOException
+    {
+        long value = 0;
+        for( int i=0; i<width; i++ )
+        {
+            int next = data.read();
+            if( next == -1 )
+            {
+                throw new IOException( "Error: Unexpected end of xref stream" );
+            }
+            value = (value << 8) | next;
+        }
+        return value;
+    }
+
+    /**
+     * This will tell if a newer xref section already contains an entry for an object.
+     *
+     * @param key The object key.
+     *
+     * @return true If the object is already in the xref information.
+     */
+    private boolean isXRefEntryKnown( COSObjectKey key )
+    {
+        return document.getXrefTable().containsKey( key ) || compressedObjects.containsKey( key ) ||
+            freeObjects.contains( Long.valueOf( key.getNumber() ) );
+    }
+
+    /**
+     * This will remember that a newer xref section marks an object number as free,
+     * so the entries of older sections for that object, whatever their generation,
+     * do not bring a deleted object back.  Object numbers that a newer section
+     * already lists as in use are not affected.
+     *
+     * @param number The object number of the free entry.
+     */
+    private void addFreeEntry( long number )
+    {
+        if( number == 0 )
+        {
+            //the head of the free list, never a real object
+            return;
+        }
+        Long boxed = Long.valueOf( number );
+        if( freeObjects.contains( boxed ) )
+        {
+            return;
+        }
+        Iterator keys = document.getXrefTable().keySet().iterator();
+        while( keys.hasNext() )
+        {
+            if( ((COSObjectKey)keys.next()).getNumber() == number )
+            {
+                return;
+            }
+        }
+        if( !compressedObjects.containsKey( new COSObjectKey( number, 0 ) ) )
+        {
+            freeObjects.add( boxed );
+        }
+    }
+
+    /**
+     * This will parse an indirect object at the current position of the source
+     * and put it into the object pool.
+     *
+     * @param expected The key the object must have, or null to accept any key.
+     *
+     * @return The parsed object.
+     *
+     * @throws IOException If there is no valid object at the current position.
+     */
+    private COSBase parseIndirectObject( COSObjectKey expected ) throws IOException
+    {
+        skipSpaces();
+        int number = readInt();
+        int genNum = readInt();
+        String objectKey = readString( 3 );
+        if( !objectKey.equals( "obj" ) )
+        {
+            throw new IOException("expected='obj' actual='" + objectKey + "' " + pdfSource);
+        }
+        COSObjectKey key = new COSObjectKey( number, genNum );
+        if( expected != null && !expected.equals( key ) )
+        {
+            throw new IOException( "expected object " + expected + " actual=" + key );
         }
         skipSpaces();
-        return true;
+        COSBase pb = parseDirObject();
+        String endObjectKey = readString();
+        if( endObjectKey.equals( "stream" ) )
+        {
+            pdfSource.unread( endObjectKey.getBytes() );
+            pdfSource.unread( ' ' );
+            if( pb instanceof COSDictionary )
+            {
+                pb = parseCOSStream( (COSDictionary)pb, document.getScratchFile() );
+            }
+            else
+            {
+                throw new IOException("stream not preceded by dictionary");
+            }
+        }
+        document.setParsedObject( key, pb, true );
+        if( document.getMetrics() != null )
+        {
+            document.getMetrics().addCount( PDFMetrics.PARSE, "objects", 1 );
+        }
+        return pb;
+    }
+
+    /**
+     * This will parse an object listed in the xref information and put it into the
+     * object pool, the document calls this the first time the object is accessed.
+     * If the object is not where the xref table says it is then the whole document
+     * is parsed sequentially instead.
+     *
+     * @param key The key of the object to parse.
+     *
+     * @throws IOException If there is an error reading the object.
+     */
+    public void loadObject( COSObjectKey key ) throws IOException
+    {
+        //loading an object can trigger loading another one, for example an
+        //indirect stream /Length, so each load gets its own position
+        PushBackInputStream previousSource = pdfSource;
+        try
+        {
+            Long offset = (Long)document.getXrefTable().get( key );
+            Integer objectStream = (Integer)compressedObjects.get( key );
+            if( xrefBroken )
+            {
+                //the whole document has been parsed, only the objects
+                //of the object streams are left to be loaded
+                if( objectStream != null )
+                {
+                    loadObjectStream( objectStream.intValue() );
+                }
+            }
+            else if( offset != null )
+            {
+                try
+                {
+                    seekSource( offset.longValue() );
+                    parseIndirectObject( key );
+                }
+                catch( IOException e )
+                {
+                    report( Level.WARNING, "Broken xref entry, parsing the whole document", e, null, key, null );
+                    xrefBroken = true;
+                    seekSource( 0 );
+                    parseHeader();
+                    parseSequentially();
+                }
+            }
+            else if( objectStream != null )
+            {
+                loadObjectStream( objectStream.intValue() );
+            }
+        }
+        finally
+        {
+            pdfSource = previousSource;
+        }
+    }
+
+    /**
+     * This will parse an object stream and put the objects that the xref
+     * information says are stored in it into the object pool.
+     *
+     * @param number The object number of the object stream.
+     *
+     * @throws IOException If there is an error reading the object stream.
+     */
+    private void loadObjectStream( int number ) throws IOException
+    {
+        COSBase stream = document.getObjectFromPool( new COSObjectKey( number, 0 ) ).getObject();
+        if( !(stream instanceof COSStream) )
+        {
+            throw new IOException( "Error: Object stream " + number + " 0 R cannot be read" );
+        }
+        PDFObjectStreamParser parser = new PDFObjectStreamParser( (COSStream)stream, document );
+        parser.parse();
+        Integer streamNumber = Integer.valueOf( number );
+        Iterator compressed = parser.getObjects().iterator();
+        while( compressed.hasNext() )
+        {
+            COSObject next = (COSObject)compressed.next();
+            COSObjectKey key = new COSObjectKey( next );
+            //an object may have been updated in a newer section
+            if( streamNumber.equals( compressedObjects.get( key ) ) )
+            {
+                document.getObjectFromPool( key ).setObject( next.getObject() );
+            }
+        }
+    }
+
+    /**
+     * This will get the keys of the objects listed in the xref information that
+     * are parsed when they are first accessed.
+     *
+     * @param includeCompressed true to include the objects stored in object streams.
+     *
+     * @return A list of COSObjectKey objects.
+     */
+    public List getObjectKeys( boolean includeCompressed )
+    {
+        List keys = new ArrayList();
+        if( !xrefBroken )
+        {
+            keys.addAll( document.getXrefTable().keySet() );
+            if( includeCompressed )
+            {
+                keys.addAll( compressedObjects.keySet() );
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * This will position the parser at an offset of the random access source.
+     *
+     * @param offset The offset to read from.
+     *
+     * @throws IOException If there is an error accessing the source.
+     */
+    private void seekSource( long offset ) throws IOException
+    {
+        pdfSource = new PushBackInputStream(
+            new RandomAccessFileInputStream( source, offset, source.length() - offset ), SEEK_BUFFER_SIZE );
+    }
+
+    /**
+     * This will release the random access source the document is read from.
+     *
+     * @throws IOException If there is an error closing the source.
+     */
+    public void close() throws IOException
+    {
+        if( source != null )
+        {
+            source.close();
+            source = null;
+        }
     }
     
     /*
@@ -710,11 +1327,11 @@ public class PDFParser extends BaseParser
      */
     private static class ConflictObj{
 
-        private int offset;
+        private long offset;
         private COSObjectKey key;
         private COSObject pdfObject;
         
-        public ConflictObj(int offset, COSObjectKey key,
+        public ConflictObj(long offset, COSObjectKey key,
                 COSObject pdfObject) {
             this.offset = offset;
             this.key = key;
@@ -736,10 +1353,9 @@ public class PDFParser extends BaseParser
             Iterator conflicts = conflictList.iterator();
             while(conflicts.hasNext()){
                 ConflictObj o = (ConflictObj)conflicts.next();
-                Integer offset = new Integer(o.offset);
+                Long offset = Long.valueOf(o.offset);
                 if(document.getXrefTable().containsValue(offset)){
-                    COSObject pdfObject = document.getObjectFromPool(o.key);
-                    pdfObject.setObject(o.pdfObject.getObject());
+                    document.setParsedObject(o.key, o.pdfObject.getObject(), true);
                 }
             }
         }
@@ -28,7 +28,6 @@ import org.apache.pdfbox.cos.COSBoolean;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNull;
-import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.io.RandomAccess;
@@ -48,6 +47,7 @@ public class PDFStreamParser extends BaseParser
     private List streamObjects = new ArrayList( 100 );
     private RandomAccess file;
     private PDFOperator lastBIToken = null;
+    private boolean closed = false;
 
     /**
      * Constructor that takes a stream to parse.
@@ -120,6 +120,78 @@ public class PDFStreamParser extends BaseParser
         return streamObjects;
     }
 
+    /**
+     * This will parse the next token in the stream.  Unlike parse() the tokens
+     * are not kept by this parser, so they can be processed one at a time.
+     * The stream is closed when the end of the stream is reached.
+     *
+     * @return The next token in the stream or null if there are no more tokens in the stream.
+     *
+     * @throws IOException If there is an error while parsing the stream.
+     */
+    public Object nextToken() throws IOException
+    {
+        if( closed )
+        {
+            return null;
+        }
+        boolean done = true;
+        try
+        {
+            Object token = parseNextToken();
+            done = token == null;
+            return token;
+        }
+        finally
+        {
+            if( done )
+            {
+                close();
+            }
+        }
+    }
+
+    /**
+     * This will parse the next operator in the stream together with the
+     * operands in front of it.  Operands at the end of the stream that are
+     * not followed by an operator are dropped.
+     *
+     * @param operands The list to fill with the operands, it is cleared first.
+     *
+     * @return The next operator in the stream or null if there are no more operators in the stream.
+     *
+     * @throws IOException If there is an error while parsing the stream.
+     */
+    public PDFOperator nextOperator( List operands ) throws IOException
+    {
+        operands.clear();
+        Object token = null;
+        while( (token = nextToken()) != null )
+        {
+            if( token instanceof PDFOperator )
+            {
+                return (PDFOperator)token;
+            }
+            operands.add( token );
+        }
+        operands.clear();
+        return null;
+    }
+
+    /**
+     * This will close the stream that is being parsed.
+     *
+     * @throws IOException If there is an error closing the stream.
+     */
+    public void close() throws IOException
+    {
+        if( !closed )
+        {
+            closed = true;
+            pdfSource.close();
+        }
+    }
+
     /**
      * This will parse the next token in the stream.
      *
@@ -237,13 +309,13 @@ public class PDFStreamParser extends BaseParser
             {
                 if( Character.isDigit(c) || c == '-' || c == '+' || c == '.')
                 {
-                    StringBuffer buf = new StringBuffer();
+                    int length = 0;
                     while( Character.isDigit(( c = (char)pdfSource.peek()) )|| c== '-' || c== '+' || c =='.' )
                     {
-                        buf.append( c );
+                        length = appendTokenChar( length, c );
                         pdfSource.read();
                     }
-                    retval = COSNumber.get( buf.toString() );
+                    retval = getNumber( length );
                 }
                 else
                 {
@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDResources;
@@ -154,8 +155,13 @@ public class PageDrawer extends PDFStreamEngine
             else
             {
                 // TODO: need to implement....
-                logger().warning("Unsupported RenderingMode "+this.getGraphicsState().getTextState().getRenderingMode()+" in PageDrawer.processTextPosition()");
-                logger().warning("Using RenderingMode "+PDTextState.RENDERING_MODE_FILL_TEXT+" instead");
+                if( isDiagnosticEnabled( Level.WARNING ) )
+                {
+                    report( Level.WARNING, "Unsupported RenderingMode "
+                        + this.getGraphicsState().getTextState().getRenderingMode()
+                        + ", using RenderingMode " + PDTextState.RENDERING_MODE_FILL_TEXT + " instead",
+                        null, getCurrentPage(), null, null );
+                }
                 graphics.setColor( this.getGraphicsState().getNonStrokingColorSpace().createColor() );
             }
             PDFont font = text.getFont();
@@ -61,6 +61,19 @@ public class COSStandardOutputStream extends FilterOutputStream
     {
         super(out);
     }
+
+    /**
+     * Constructor for a stream that continues data that has already been written,
+     * for example an incremental update that is appended to a file.
+     *
+     * @param out The underlying stream to write to.
+     * @param position The position of the first byte that is written to this stream.
+     */
+    public COSStandardOutputStream(OutputStream out, long position)
+    {
+        super(out);
+        pos = position;
+    }
     /**
      * This will get the current position in the stream.
      *
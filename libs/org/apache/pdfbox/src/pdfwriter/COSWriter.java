@@ -16,6 +16,7 @@
  */
 package org.apache.pdfbox.pdfwriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -25,13 +26,12 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
@@ -51,12 +51,21 @@ import org.apache.pdfbox.exceptions.CryptographyException;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.encryption.SecurityHandler;
 import org.apache.pdfbox.persistence.util.COSObjectKey;
+import org.apache.pdfbox.util.NumberFormatUtil;
+import org.apache.pdfbox.util.PDFMetrics;
 
 /**
  * this class acts on a in-memory representation of a pdf document.
  *
- * todo no support for incremental updates
  * todo single xref section only
+ *
+ * When object streams are enabled, see setWriteObjectStreams, every object
+ * except streams is packed into compressed /ObjStm streams and the cross
+ * reference is written as an /XRef stream as allowed by PDF 1.5.
+ *
+ * When an incremental update is requested, see setIncrementalUpdate, only the
+ * objects that were changed or added since the document was parsed are written
+ * and the new xref section points back to the original one with /Prev.
  * todo no linearization
  *
  * @author Michael Traut
@@ -145,13 +154,21 @@ public class COSWriter implements ICOSVisitor
      */
     public static final byte[] ENDSTREAM = "endstream".getBytes();
 
+    /**
+     * The maximum number of objects that are packed into one object stream.
+     */
+    public static final int OBJECTS_PER_STREAM = 100;
+
     private NumberFormat formatXrefOffset = new DecimalFormat("0000000000");
     /**
      * The decimal format for the xref object generation number data.
      */
     private NumberFormat formatXrefGeneration = new DecimalFormat("00000");
 
-    private NumberFormat formatDecimal = NumberFormat.getNumberInstance( Locale.US );
+    /**
+     * The buffer that integer and real numbers are formatted in.
+     */
+    private byte[] numberBuffer = new byte[NumberFormatUtil.BUFFER_SIZE];
 
     // the stream where we create the pdf output
     private OutputStream output;
@@ -166,25 +183,28 @@ public class COSWriter implements ICOSVisitor
 
     // maps the object to the keys generated in the writer
     // these are used for indirect refrences in other objects
-    //A hashtable is used on purpose over a hashmap
-    //so that null entries will not get added.
-    private Map objectKeys = new Hashtable();
+    //Objects are compared by identity, two equal strings or numbers
+    //that are separate indirect objects must get separate keys.
+    //Null keys are never added, see getObjectKey.
+    private Map objectKeys = new IdentityHashMap();
 
     // the list of x ref entries to be made so far
     private List xRefEntries = new ArrayList();
 
-    //A list of objects to write.
-    private List objectsToWrite = new ArrayList();
+    //A queue of objects to write, and the same objects as an
+    //identity set so the queue never has to be searched.
+    private LinkedList objectsToWrite = new LinkedList();
+    private Map queuedObjects = new IdentityHashMap();
 
-    //a list of objects already written
-    private Set writtenObjects = new HashSet();
+    //the objects already written, used as an identity set
+    private Map writtenObjects = new IdentityHashMap();
     //An 'actual' is any COSBase that is not a COSObject.
     //need to keep a list of the actuals that are added
     //as well as the objects because there is a problem
     //when adding a COSObject and then later adding
     //the actual for that object, so we will track
     //actuals separately.
-    private Set actualsAdded = new HashSet();
+    private Map actualsAdded = new IdentityHashMap();
 
     private COSObjectKey currentObjectKey = null;
 
@@ -192,6 +212,32 @@ public class COSWriter implements ICOSVisitor
 
     private boolean willEncrypt = false;
 
+    //set by the user, compressObjects is the value actually used
+    //for the current document because encrypted output is always
+    //written with a classic xref table.
+    private boolean writeObjectStreams = false;
+    private boolean compressObjects = false;
+
+    //the object stream that is currently being filled, the header holds
+    //the "number offset" pairs and the entries are added to the xref
+    //once the stream has been written and its number is known.
+    private ByteArrayOutputStream objectStreamData = null;
+    private StringBuffer objectStreamHeader = null;
+    private List objectStreamEntries = new ArrayList();
+
+    //incremental update state, the position where the update starts in the
+    //file and the offset of the xref section of the original file.  Objects
+    //that are in the original file and have not been changed are kept in
+    //unchangedObjects and never written.
+    private boolean incrementalUpdate = false;
+    private long previousStartxref = 0;
+    private Map unchangedObjects = new IdentityHashMap();
+
+    //objects that already have a key but are written later, or never in the case
+    //of the references made by createReference(), mapped to their key.  Unlike
+    //the other maps this one is kept by forgetWrittenObjects().
+    private Map reservedObjects = new IdentityHashMap();
+
     /**
      * COSWriter constructor comment.
      *
@@ -202,8 +248,6 @@ public class COSWriter implements ICOSVisitor
         super();
         setOutput(os);
         setStandardOutput(new COSStandardOutputStream(getOutput()));
-        formatDecimal.setMaximumFractionDigits( 10 );
-        formatDecimal.setGroupingUsed( false );
     }
     /**
      * add an entry in the x ref table for later dump.
@@ -232,6 +276,57 @@ public class COSWriter implements ICOSVisitor
         }
     }
 
+    /**
+     * This will tell if non-stream objects will be written to compressed object
+     * streams with an xref stream instead of a classic xref table.
+     *
+     * @return true If object streams will be written.
+     */
+    public boolean isWriteObjectStreams()
+    {
+        return writeObjectStreams;
+    }
+
+    /**
+     * This will set if non-stream objects should be written to compressed object
+     * streams with an xref stream instead of a classic xref table, this requires
+     * PDF 1.5 and the header will be raised to that version if needed.  This
+     * setting is ignored for encrypted documents.
+     *
+     * @param writeObjStms true to write object streams.
+     */
+    public void setWriteObjectStreams( boolean writeObjStms )
+    {
+        writeObjectStreams = writeObjStms;
+    }
+
+    /**
+     * This will make the writer append an incremental update to an existing file
+     * instead of writing a complete document.  Only the objects that were changed
+     * since they were parsed, see COSBase.isNeedToBeUpdated, and the objects that
+     * were added are written, followed by an xref section with a /Prev entry.
+     * The output stream must continue right after the last byte of the original file.
+     *
+     * @param originalLength The length of the original file.
+     * @param originalStartxref The offset of the last xref section in the original file.
+     */
+    public void setIncrementalUpdate( long originalLength, long originalStartxref )
+    {
+        incrementalUpdate = true;
+        previousStartxref = originalStartxref;
+        setStandardOutput( new COSStandardOutputStream( getOutput(), originalLength ) );
+    }
+
+    /**
+     * This will tell if the writer appends an incremental update.
+     *
+     * @return true If an incremental update is written.
+     */
+    public boolean isIncrementalUpdate()
+    {
+        return incrementalUpdate;
+    }
+
     /**
      * This will get the current object number.
      *
@@ -355,11 +450,7 @@ public class COSWriter implements ICOSVisitor
         }
 
 
-        while( objectsToWrite.size() > 0 )
-        {
-            COSBase nextObject = (COSBase)objectsToWrite.remove( 0 );
-            doWriteObject( nextObject );
-        }
+        writeQueuedObjects();
 
 
         willEncrypt = false;
@@ -369,11 +460,7 @@ public class COSWriter implements ICOSVisitor
             addObjectToWrite( encrypt );
         }
 
-        while( objectsToWrite.size() > 0 )
-        {
-            COSBase nextObject = (COSBase)objectsToWrite.remove( 0 );
-            doWriteObject( nextObject );
-        }
+        writeQueuedObjects();
 
         // write all objects
         /**
@@ -384,6 +471,22 @@ public class COSWriter implements ICOSVisitor
         }**/
     }
 
+    /**
+     * This will write the queued objects, and the objects that they queue, until
+     * the queue is empty.
+     *
+     * @throws COSVisitorException If there is an error writing an object.
+     */
+    private void writeQueuedObjects() throws COSVisitorException
+    {
+        while( !objectsToWrite.isEmpty() )
+        {
+            COSBase nextObject = (COSBase)objectsToWrite.removeFirst();
+            queuedObjects.remove( nextObject );
+            doWriteObject( nextObject );
+        }
+    }
+
     private void addObjectToWrite( COSBase object )
     {
         COSBase actual = object;
@@ -392,14 +495,19 @@ public class COSWriter implements ICOSVisitor
             actual = ((COSObject)actual).getObject();
         }
 
-        if( !writtenObjects.contains( object ) &&
-            !objectsToWrite.contains( object ) &&
-            !actualsAdded.contains( actual ) )
+        if( !writtenObjects.containsKey( object ) &&
+            !queuedObjects.containsKey( object ) &&
+            !reservedObjects.containsKey( object ) &&
+            (actual == null || !reservedObjects.containsKey( actual )) &&
+            !actualsAdded.containsKey( actual ) &&
+            !unchangedObjects.containsKey( object ) &&
+            (actual == null || !unchangedObjects.containsKey( actual )) )
         {
-            objectsToWrite.add( object );
+            objectsToWrite.addLast( object );
+            queuedObjects.put( object, object );
             if( actual != null )
             {
-                actualsAdded.add( actual );
+                actualsAdded.put( actual, actual );
             }
         }
     }
@@ -413,9 +521,14 @@ public class COSWriter implements ICOSVisitor
      */
     public void doWriteObject( COSBase obj ) throws COSVisitorException
     {
+        if( compressObjects && !isStream( obj ) )
+        {
+            doWriteCompressedObject( obj );
+            return;
+        }
         try
         {
-            writtenObjects.add( obj );
+            writtenObjects.put( obj, obj );
             // find the physical reference
             currentObjectKey = getObjectKey( obj );
             // add a x ref entry
@@ -438,6 +551,214 @@ public class COSWriter implements ICOSVisitor
         }
     }
 
+    /**
+     * This will give every object of the original file its own key and queue the
+     * objects that have been changed since they were parsed.
+     *
+     * @param doc The document that the incremental update is written for.
+     */
+    private void prepareIncrementalUpdate( COSDocument doc )
+    {
+        long highestNumber = doc.getTrailer().getInt( "Size", 1 ) - 1;
+        Iterator objects = doc.getObjects().iterator();
+        while( objects.hasNext() )
+        {
+            COSObject object = (COSObject)objects.next();
+            if( object.getObjectNumber() == null || object.getGenerationNumber() == null )
+            {
+                continue;
+            }
+            COSObjectKey key = new COSObjectKey( object );
+            highestNumber = Math.max( highestNumber, key.getNumber() );
+            COSBase actual = object.getObject();
+            objectKeys.put( object, key );
+            if( actual != null )
+            {
+                objectKeys.put( actual, key );
+            }
+            if( actual != null && isChanged( actual ) )
+            {
+                addObjectToWrite( object );
+            }
+            else
+            {
+                unchangedObjects.put( object, object );
+                if( actual != null )
+                {
+                    unchangedObjects.put( actual, actual );
+                }
+            }
+        }
+        //new objects are numbered after the ones in the original file
+        setNumber( highestNumber );
+    }
+
+    /**
+     * An indirect object has changed if it or one of its direct children has
+     * been changed, referenced objects are checked on their own.
+     */
+    private static boolean isChanged( COSBase base )
+    {
+        if( base.isNeedToBeUpdated() )
+        {
+            return true;
+        }
+        Iterator children = null;
+        if( base instanceof COSDictionary )
+        {
+            children = ((COSDictionary)base).getValues().iterator();
+        }
+        else if( base instanceof COSArray )
+        {
+            children = ((COSArray)base).iterator();
+        }
+        while( children != null && children.hasNext() )
+        {
+            COSBase child = (COSBase)children.next();
+            if( child != null && !(child instanceof COSObject) && isChanged( child ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStream( COSBase obj )
+    {
+        COSBase actual = obj;
+        if( actual instanceof COSObject )
+        {
+            actual = ((COSObject)actual).getObject();
+        }
+        return actual instanceof COSStream;
+    }
+
+    /**
+     * This will add an object to the object stream that is currently being filled,
+     * the object stream is written once it holds OBJECTS_PER_STREAM objects.
+     *
+     * @param obj The object to write.
+     *
+     * @throws COSVisitorException If there is an error writing the object.
+     */
+    private void doWriteCompressedObject( COSBase obj ) throws COSVisitorException
+    {
+        try
+        {
+            writtenObjects.put( obj, obj );
+            currentObjectKey = getObjectKey( obj );
+            if( objectStreamData == null )
+            {
+                objectStreamData = new ByteArrayOutputStream();
+                objectStreamHeader = new StringBuffer();
+            }
+            objectStreamHeader.append( currentObjectKey.getNumber() );
+            objectStreamHeader.append( ' ' );
+            objectStreamHeader.append( objectStreamData.size() );
+            objectStreamHeader.append( ' ' );
+            objectStreamEntries.add(
+                new COSWriterXRefEntry( obj, currentObjectKey, objectStreamEntries.size() ) );
+
+            //the visitor methods write to the standard output, so point that
+            //to the object stream while this object is written
+            COSStandardOutputStream fileOutput = getStandardOutput();
+            COSStandardOutputStream streamOutput = new COSStandardOutputStream( objectStreamData );
+            setStandardOutput( streamOutput );
+            try
+            {
+                obj.accept( this );
+                streamOutput.writeEOL();
+            }
+            finally
+            {
+                setStandardOutput( fileOutput );
+            }
+
+            if( objectStreamEntries.size() >= OBJECTS_PER_STREAM )
+            {
+                doWriteObjectStream();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new COSVisitorException(e);
+        }
+    }
+
+    /**
+     * This will write the pending object stream, if there is one, as a Flate
+     * compressed /ObjStm stream and add the xref entries for the objects in it.
+     *
+     * @throws IOException If there is an error writing the stream.
+     * @throws COSVisitorException If there is an error writing the stream dictionary.
+     */
+    protected void doWriteObjectStream() throws IOException, COSVisitorException
+    {
+        if( objectStreamEntries.isEmpty() )
+        {
+            return;
+        }
+        setNumber( getNumber()+1 );
+        COSObjectKey streamKey = new COSObjectKey( getNumber(), 0 );
+
+        byte[] header = objectStreamHeader.toString().getBytes( "ISO-8859-1" );
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflaterOutputStream deflater = new DeflaterOutputStream( compressed );
+        deflater.write( header );
+        objectStreamData.writeTo( deflater );
+        deflater.close();
+
+        COSDictionary streamDict = new COSDictionary();
+        streamDict.setItem( COSName.TYPE, COSName.getPDFName( "ObjStm" ) );
+        streamDict.setInt( COSName.N, objectStreamEntries.size() );
+        streamDict.setInt( COSName.getPDFName( "First" ), header.length );
+        streamDict.setItem( COSName.FILTER, COSName.FLATE_DECODE );
+        streamDict.setInt( COSName.LENGTH, compressed.size() );
+
+        addXRefEntry( new COSWriterXRefEntry( getStandardOutput().getPos(), streamDict, streamKey ) );
+        doWriteStreamObject( streamKey, streamDict, compressed );
+
+        for( int i=0; i<objectStreamEntries.size(); i++ )
+        {
+            COSWriterXRefEntry entry = (COSWriterXRefEntry)objectStreamEntries.get( i );
+            entry.setObjectStreamNumber( streamKey.getNumber() );
+            addXRefEntry( entry );
+        }
+        objectStreamEntries.clear();
+        objectStreamData = null;
+        objectStreamHeader = null;
+    }
+
+    /**
+     * This will write an indirect stream object whose data has already been encoded.
+     *
+     * @param key The key of the object to write.
+     * @param dict The stream dictionary, it must only contain direct values.
+     * @param data The encoded stream data.
+     *
+     * @throws IOException If there is an error writing the object.
+     * @throws COSVisitorException If there is an error writing the dictionary.
+     */
+    private void doWriteStreamObject( COSObjectKey key, COSDictionary dict, ByteArrayOutputStream data )
+        throws IOException, COSVisitorException
+    {
+        getStandardOutput().write(String.valueOf(key.getNumber()).getBytes());
+        getStandardOutput().write(SPACE);
+        getStandardOutput().write(String.valueOf(key.getGeneration()).getBytes());
+        getStandardOutput().write(SPACE);
+        getStandardOutput().write(OBJ);
+        getStandardOutput().writeEOL();
+        visitFromDictionary( dict );
+        getStandardOutput().write(STREAM);
+        getStandardOutput().writeCRLF();
+        data.writeTo( getStandardOutput() );
+        getStandardOutput().writeCRLF();
+        getStandardOutput().write(ENDSTREAM);
+        getStandardOutput().writeEOL();
+        getStandardOutput().write(ENDOBJ);
+        getStandardOutput().writeEOL();
+    }
+
     /**
      * This will write the header to the PDF document.
      *
@@ -447,7 +768,26 @@ public class COSWriter implements ICOSVisitor
      */
     protected void doWriteHeader(COSDocument doc) throws IOException
     {
-        getStandardOutput().write( doc.getHeaderString().getBytes() );
+        String header = doc.getHeaderString();
+        if( compressObjects && doc.getVersion() < 1.5f )
+        {
+            //object and xref streams were introduced with PDF 1.5
+            header = "%PDF-1.5";
+        }
+        writeHeader( header );
+    }
+
+    /**
+     * This will write the header line and the binary comment line.  This is also
+     * the first step when a document is written object by object, see writeObject().
+     *
+     * @param header The header line, for example "%PDF-1.4".
+     *
+     * @throws IOException If there is an error writing to the stream.
+     */
+    public void writeHeader( String header ) throws IOException
+    {
+        getStandardOutput().write( header.getBytes() );
         getStandardOutput().writeEOL();
         getStandardOutput().write(COMMENT);
         getStandardOutput().write(GARBAGE);
@@ -464,16 +804,40 @@ public class COSWriter implements ICOSVisitor
      * @throws COSVisitorException If there is an error while generating the data.
      */
     protected void doWriteTrailer(COSDocument doc) throws IOException, COSVisitorException
+    {
+        doWriteTrailer( doc.getTrailer() );
+    }
+
+    /**
+     * This will write a trailer dictionary, setting its /Size, and the startxref section.
+     *
+     * @param trailer The trailer dictionary.
+     *
+     * @throws IOException If there is an IOError while writing the document.
+     * @throws COSVisitorException If there is an error while generating the data.
+     */
+    protected void doWriteTrailer(COSDictionary trailer) throws IOException, COSVisitorException
     {
         getStandardOutput().write(TRAILER);
         getStandardOutput().writeEOL();
 
-        COSDictionary trailer = doc.getTrailer();
         //sort xref, needed only if object keys not regenerated
         Collections.sort(getXRefEntries());
         COSWriterXRefEntry lastEntry = (COSWriterXRefEntry)getXRefEntries().get( getXRefEntries().size()-1);
-        trailer.setInt(COSName.getPDFName("Size"), (int)lastEntry.getKey().getNumber()+1);
-        trailer.removeItem( COSName.PREV );
+        if( incrementalUpdate )
+        {
+            //the objects of the original file keep their xref entries and the
+            //new section is chained to the original one
+            trailer.setInt(COSName.getPDFName("Size"),
+                (int)Math.max( lastEntry.getKey().getNumber(), getNumber() )+1);
+            trailer.setItem( COSName.PREV, new COSInteger( previousStartxref ) );
+            trailer.removeItem( COSName.getPDFName( "XRefStm" ) );
+        }
+        else
+        {
+            trailer.setInt(COSName.getPDFName("Size"), (int)lastEntry.getKey().getNumber()+1);
+            trailer.removeItem( COSName.PREV );
+        }
         /**
         COSObject catalog = doc.getCatalog();
         if (catalog != null)
@@ -515,6 +879,11 @@ public class COSWriter implements ICOSVisitor
         //
         getStandardOutput().write(XREF);
         getStandardOutput().writeEOL();
+        if( incrementalUpdate )
+        {
+            doWriteXRefSubsections();
+            return;
+        }
         // write start object number and object count for this x ref section
         // we assume starting from scratch
         getStandardOutput().write(String.valueOf(0).getBytes());
@@ -559,6 +928,219 @@ public class COSWriter implements ICOSVisitor
         }
     }
 
+    /**
+     * This will write the cross reference as a Flate compressed /XRef stream, which
+     * also takes the place of the trailer dictionary, followed by the startxref
+     * section.  Objects that are stored in object streams get type 2 entries.
+     *
+     * @param doc The document to write the xref stream for.
+     *
+     * @throws IOException If there is an error writing the data.
+     * @throws COSVisitorException If there is an error writing the stream dictionary.
+     */
+    protected void doWriteXRefStream(COSDocument doc) throws IOException, COSVisitorException
+    {
+        COSDictionary trailer = doc.getTrailer();
+        setNumber( getNumber()+1 );
+        COSObjectKey xrefKey = new COSObjectKey( getNumber(), 0 );
+        COSDictionary xrefDict = new COSDictionary();
+
+        // remember the position where x ref is written, the xref stream
+        // has an entry for itself
+        setStartxref(getStandardOutput().getPos());
+        addXRefEntry( new COSWriterXRefEntry( getStartxref(), xrefDict, xrefKey ) );
+
+        Collections.sort(getXRefEntries());
+        COSWriterXRefEntry lastEntry = (COSWriterXRefEntry)getXRefEntries().get( getXRefEntries().size()-1 );
+        int size = (int)lastEntry.getKey().getNumber()+1;
+
+        // the second field holds offsets or object stream numbers, the third
+        // generations or indexes and must fit the 65535 of free entries
+        long maxSecond = 0;
+        long maxThird = 65535;
+        for (Iterator i = getXRefEntries().iterator(); i.hasNext();)
+        {
+            COSWriterXRefEntry entry = (COSWriterXRefEntry) i.next();
+            if( entry.isCompressed() )
+            {
+                maxSecond = Math.max( maxSecond, entry.getObjectStreamNumber() );
+                maxThird = Math.max( maxThird, entry.getObjectStreamIndex() );
+            }
+            else
+            {
+                maxSecond = Math.max( maxSecond, entry.getOffset() );
+                maxThird = Math.max( maxThird, entry.getKey().getGeneration() );
+            }
+        }
+        int secondWidth = getByteCount( maxSecond );
+        int thirdWidth = getByteCount( maxThird );
+
+        if( incrementalUpdate )
+        {
+            //the objects of the original file keep their xref entries
+            size = Math.max( size, (int)getNumber()+1 );
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflaterOutputStream data = new DeflaterOutputStream( compressed );
+        if( !incrementalUpdate )
+        {
+            writeXRefStreamEntry( data, 0, 0, secondWidth, 65535, thirdWidth );
+        }
+        long lastObjectNumber = 0;
+        for (Iterator i = getXRefEntries().iterator(); i.hasNext();)
+        {
+            COSWriterXRefEntry entry = (COSWriterXRefEntry) i.next();
+            while( !incrementalUpdate && lastObjectNumber<entry.getKey().getNumber()-1 )
+            {
+                writeXRefStreamEntry( data, 0, 0, secondWidth, 65535, thirdWidth );
+                lastObjectNumber++;
+            }
+            lastObjectNumber = entry.getKey().getNumber();
+            if( entry.isCompressed() )
+            {
+                writeXRefStreamEntry( data, 2, entry.getObjectStreamNumber(), secondWidth,
+                                      entry.getObjectStreamIndex(), thirdWidth );
+            }
+            else
+            {
+                writeXRefStreamEntry( data, entry.isFree() ? 0 : 1, entry.getOffset(), secondWidth,
+                                      entry.getKey().getGeneration(), thirdWidth );
+            }
+        }
+        data.close();
+
+        trailer.setInt(COSName.getPDFName("Size"), size);
+        if( incrementalUpdate )
+        {
+            trailer.setItem( COSName.PREV, new COSInteger( previousStartxref ) );
+        }
+        else
+        {
+            trailer.removeItem( COSName.PREV );
+        }
+        for (Iterator i = trailer.keyList().iterator(); i.hasNext();)
+        {
+            COSName key = (COSName)i.next();
+            String name = key.getName();
+            if( !name.equals( "XRefStm" ) && !name.equals( "W" ) && !name.equals( "Index" ) &&
+                !name.equals( "DecodeParms" ) && !key.equals( COSName.FILTER ) &&
+                !key.equals( COSName.LENGTH ) && !key.equals( COSName.TYPE ) )
+            {
+                xrefDict.setItem( key, trailer.getItem( key ) );
+            }
+        }
+        xrefDict.setItem( COSName.TYPE, COSName.getPDFName( "XRef" ) );
+        COSArray index = new COSArray();
+        if( incrementalUpdate )
+        {
+            List subsections = getXRefSubsections();
+            for( int i=0; i<subsections.size(); i++ )
+            {
+                long[] subsection = (long[])subsections.get( i );
+                index.add( new COSInteger( subsection[0] ) );
+                index.add( new COSInteger( subsection[1] ) );
+            }
+        }
+        else
+        {
+            index.add( new COSInteger( 0 ) );
+            index.add( new COSInteger( size ) );
+        }
+        xrefDict.setItem( COSName.getPDFName( "Index" ), index );
+        COSArray widths = new COSArray();
+        widths.add( new COSInteger( 1 ) );
+        widths.add( new COSInteger( secondWidth ) );
+        widths.add( new COSInteger( thirdWidth ) );
+        xrefDict.setItem( COSName.getPDFName( "W" ), widths );
+        xrefDict.setItem( COSName.FILTER, COSName.FLATE_DECODE );
+        xrefDict.setInt( COSName.LENGTH, compressed.size() );
+        doWriteStreamObject( xrefKey, xrefDict, compressed );
+
+        getStandardOutput().write(STARTXREF);
+        getStandardOutput().writeEOL();
+        getStandardOutput().write(String.valueOf(getStartxref()).getBytes());
+        getStandardOutput().writeEOL();
+        getStandardOutput().write(EOF);
+    }
+
+    /**
+     * This will split the sorted xref entries into runs of consecutive object numbers.
+     *
+     * @return A list of long[] { first object number, number of entries }.
+     */
+    private List getXRefSubsections()
+    {
+        List subsections = new ArrayList();
+        long[] current = null;
+        for (Iterator i = getXRefEntries().iterator(); i.hasNext();)
+        {
+            long number = ((COSWriterXRefEntry) i.next()).getKey().getNumber();
+            if( current == null || number != current[0] + current[1] )
+            {
+                current = new long[] { number, 0 };
+                subsections.add( current );
+            }
+            current[1]++;
+        }
+        return subsections;
+    }
+
+    private static int getByteCount( long value )
+    {
+        int count = 1;
+        while( (value >>>= 8) != 0 )
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeXRefStreamEntry(
+        OutputStream out, int type, long second, int secondWidth, long third, int thirdWidth )
+        throws IOException
+    {
+        out.write( type );
+        for( int shift=(secondWidth-1)*8; shift>=0; shift-=8 )
+        {
+            out.write( (int)(second >>> shift) & 0xff );
+        }
+        for( int shift=(thirdWidth-1)*8; shift>=0; shift-=8 )
+        {
+            out.write( (int)(third >>> shift) & 0xff );
+        }
+    }
+
+    /**
+     * This will write the entries of an incremental update as one xref
+     * subsection per run of consecutive object numbers.
+     *
+     * @throws IOException If there is an error writing the data.
+     */
+    private void doWriteXRefSubsections() throws IOException
+    {
+        Iterator entries = getXRefEntries().iterator();
+        List subsections = getXRefSubsections();
+        for( int i=0; i<subsections.size(); i++ )
+        {
+            long[] subsection = (long[])subsections.get( i );
+            getStandardOutput().write(String.valueOf(subsection[0]).getBytes());
+            getStandardOutput().write(SPACE);
+            getStandardOutput().write(String.valueOf(subsection[1]).getBytes());
+            getStandardOutput().writeEOL();
+            for( long j=0; j<subsection[1]; j++ )
+            {
+                COSWriterXRefEntry entry = (COSWriterXRefEntry) entries.next();
+                getStandardOutput().write(formatXrefOffset.format(entry.getOffset()).getBytes());
+                getStandardOutput().write(SPACE);
+                getStandardOutput().write(formatXrefGeneration.format(entry.getKey().getGeneration()).getBytes());
+                getStandardOutput().write(SPACE);
+                getStandardOutput().write(entry.isFree() ? XREF_FREE : XREF_USED);
+                getStandardOutput().writeCRLF();
+            }
+        }
+    }
+
     /**
      * This will get the object key for the object.
      *
@@ -568,11 +1150,24 @@ public class COSWriter implements ICOSVisitor
      */
     private COSObjectKey getObjectKey( COSBase obj )
     {
+        COSObjectKey reserved = (COSObjectKey)reservedObjects.get( obj );
+        if( reserved != null )
+        {
+            return reserved;
+        }
         COSBase actual = obj;
         if( actual instanceof COSObject )
         {
             actual = ((COSObject)obj).getObject();
         }
+        if( actual != null && actual != obj )
+        {
+            reserved = (COSObjectKey)reservedObjects.get( actual );
+            if( reserved != null )
+            {
+                return reserved;
+            }
+        }
         COSObjectKey key = null;
         if( actual != null )
         {
@@ -764,10 +1359,27 @@ public class COSWriter implements ICOSVisitor
     {
         try
         {
-            doWriteHeader(doc);
+            if( incrementalUpdate )
+            {
+                //the original file does not have to end with a newline
+                getStandardOutput().write( COSStandardOutputStream.EOL );
+                prepareIncrementalUpdate( doc );
+            }
+            else
+            {
+                doWriteHeader(doc);
+            }
             doWriteBody(doc);
-            doWriteXRef(doc);
-            doWriteTrailer(doc);
+            if( compressObjects )
+            {
+                doWriteObjectStream();
+                doWriteXRefStream(doc);
+            }
+            else
+            {
+                doWriteXRef(doc);
+                doWriteTrailer(doc);
+            }
             return null;
         }
         catch (IOException e)
@@ -790,7 +1402,7 @@ public class COSWriter implements ICOSVisitor
 
         try
         {
-            obj.writePDF( getStandardOutput() );
+            NumberFormatUtil.writeDecimal( getStandardOutput(), obj.floatValue(), 10, numberBuffer );
             return null;
         }
         catch (IOException e)
@@ -812,7 +1424,7 @@ public class COSWriter implements ICOSVisitor
     {
         try
         {
-            obj.writePDF( getStandardOutput() );
+            NumberFormatUtil.writeLong( getStandardOutput(), obj.longValue(), numberBuffer );
             return null;
         }
         catch (IOException e)
@@ -904,7 +1516,7 @@ public class COSWriter implements ICOSVisitor
         {
             if(willEncrypt)
             {
-                document.getSecurityHandler().decryptStream(
+                document.getSecurityHandler().encryptStream(
                     obj,
                     currentObjectKey.getNumber(),
                     currentObjectKey.getGeneration());
@@ -955,7 +1567,7 @@ public class COSWriter implements ICOSVisitor
         {
             if(willEncrypt)
             {
-                document.getSecurityHandler().decryptString(
+                document.getSecurityHandler().encryptString(
                     obj,
                     currentObjectKey.getNumber(),
                     currentObjectKey.getGeneration());
@@ -970,6 +1582,95 @@ public class COSWriter implements ICOSVisitor
         return null;
     }
 
+    /**
+     * This will give an object its key without writing it, references to the object
+     * are written with that key and the object itself is written by a later call to
+     * writeObject().  This is how objects that must be referenced before they are
+     * complete, like the page tree nodes of a merged document, are written.
+     *
+     * @param obj The object to reserve a key for.
+     *
+     * @return The key of the object.
+     */
+    public COSObjectKey reserveObject( COSBase obj )
+    {
+        COSObjectKey key = getObjectKey( obj );
+        reservedObjects.put( obj, key );
+        return key;
+    }
+
+    /**
+     * This will create an object that is written as a reference to a key.  It lets
+     * a document that is written object by object refer to an object that has been
+     * written, without keeping the object itself in memory.
+     *
+     * @param key The key of the object to refer to.
+     *
+     * @return The reference.
+     *
+     * @throws IOException If the reference can not be created.
+     */
+    public COSBase createReference( COSObjectKey key ) throws IOException
+    {
+        COSObject reference = new COSObject( null );
+        reservedObjects.put( reference, key );
+        return reference;
+    }
+
+    /**
+     * This will write an object and everything that it refers to that has not been
+     * written yet, without writing a whole document.  Together with writeHeader(),
+     * forgetWrittenObjects() and writeTrailer() this writes a document piece by
+     * piece, so objects can be dropped as soon as they have been written.
+     *
+     * @param obj The object to write, it may have been reserved with reserveObject().
+     *
+     * @throws COSVisitorException If there is an error writing the objects.
+     */
+    public void writeObject( COSBase obj ) throws COSVisitorException
+    {
+        COSObjectKey reserved = (COSObjectKey)reservedObjects.remove( obj );
+        if( reserved != null )
+        {
+            objectKeys.put( obj, reserved );
+        }
+        addObjectToWrite( obj );
+        writeQueuedObjects();
+    }
+
+    /**
+     * This will forget the objects that have been written so they can be garbage
+     * collected, only their xref entries and the reserved objects are kept.  An
+     * object that is referenced again after this is written again with a new key.
+     */
+    public void forgetWrittenObjects()
+    {
+        objectKeys.clear();
+        writtenObjects.clear();
+        queuedObjects.clear();
+        actualsAdded.clear();
+        for( int i=0; i<xRefEntries.size(); i++ )
+        {
+            ((COSWriterXRefEntry)xRefEntries.get( i )).setObject( null );
+        }
+    }
+
+    /**
+     * This will finish a document that was written with writeObject() by writing
+     * the xref table, the trailer and the startxref section.
+     *
+     * @param trailer The trailer dictionary, its /Root and /Info must have been written.
+     *
+     * @throws IOException If there is an error writing to the stream.
+     * @throws COSVisitorException If there is an error writing the trailer.
+     */
+    public void writeTrailer( COSDictionary trailer ) throws IOException, COSVisitorException
+    {
+        doWriteXRef( null );
+        doWriteTrailer( trailer );
+        getStandardOutput().flush();
+    }
+
     /**
      * This will write the pdf document.
      *
@@ -993,8 +1694,15 @@ public class COSWriter implements ICOSVisitor
     public void write(PDDocument doc) throws COSVisitorException
     {
         document = doc;
+        PDFMetrics metrics = doc.getDocument().getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
 
         SecurityHandler securityHandler = document.getSecurityHandler();
+        if(securityHandler != null && incrementalUpdate)
+        {
+            throw new COSVisitorException(
+                new IOException( "Incremental updates of encrypted documents are not supported" ) );
+        }
         if(securityHandler != null)
         {
             try
@@ -1015,6 +1723,7 @@ public class COSWriter implements ICOSVisitor
         {
                 this.willEncrypt = false;
         }
+        compressObjects = writeObjectStreams && !willEncrypt;
 
         COSDocument cosDoc = document.getDocument();
         COSDictionary trailer = cosDoc.getTrailer();
@@ -1068,5 +1777,9 @@ public class COSWriter implements ICOSVisitor
             }
         }*/
         cosDoc.accept(this);
+        if( metrics != null )
+        {
+            metrics.addTime( PDFMetrics.WRITE, "document", System.nanoTime() - start );
+        }
     }
 }
@@ -33,6 +33,8 @@ public class COSWriterXRefEntry implements Comparable
     private COSBase object;
     private COSObjectKey key;
     private boolean free = false;
+    private long objectStreamNumber = -1;
+    private int objectStreamIndex = 0;
 
 
 
@@ -125,6 +127,60 @@ public class COSWriterXRefEntry implements Comparable
         setKey(keyValue);
     }
 
+    /**
+     * Constructor for an object that is stored in a compressed object stream
+     * rather than at an offset in the file.
+     *
+     * @param obj The COS object that this entry represents.
+     * @param keyValue The key to the COS object.
+     * @param streamIndex The index of the object within its object stream.
+     */
+    public COSWriterXRefEntry(COSBase obj, COSObjectKey keyValue, int streamIndex)
+    {
+        this(0, obj, keyValue);
+        objectStreamIndex = streamIndex;
+    }
+
+    /**
+     * This will tell if the object is stored in an object stream.
+     *
+     * @return true If this entry is for a compressed object.
+     */
+    public boolean isCompressed()
+    {
+        return objectStreamNumber != -1;
+    }
+
+    /**
+     * This will get the number of the object stream that holds this object.
+     *
+     * @return The object stream number, or -1 if the object is not compressed.
+     */
+    public long getObjectStreamNumber()
+    {
+        return objectStreamNumber;
+    }
+
+    /**
+     * This will set the number of the object stream that holds this object.
+     *
+     * @param streamNumber The object number of the object stream.
+     */
+    public void setObjectStreamNumber(long streamNumber)
+    {
+        objectStreamNumber = streamNumber;
+    }
+
+    /**
+     * This will get the index of the object within its object stream.
+     *
+     * @return The index into the object stream.
+     */
+    public int getObjectStreamIndex()
+    {
+        return objectStreamIndex;
+    }
+
     /**
      * This will get the object.
      *
@@ -140,7 +196,7 @@ public class COSWriterXRefEntry implements Comparable
      *
      * @param newObject The object that is being set.
      */
-    private void setObject(COSBase newObject)
+    void setObject(COSBase newObject)
     {
         object = newObject;
     }
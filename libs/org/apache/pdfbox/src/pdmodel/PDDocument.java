@@ -30,6 +30,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import org.apache.pdfbox.cos.COSArray;
@@ -42,6 +46,8 @@ import org.apache.pdfbox.exceptions.COSVisitorException;
 import org.apache.pdfbox.exceptions.CryptographyException;
 import org.apache.pdfbox.exceptions.InvalidPasswordException;
 import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.RandomAccessFileInputStream;
+import org.apache.pdfbox.io.RandomAccessMappedFile;
 import org.apache.pdfbox.pdfparser.PDFParser;
 import org.apache.pdfbox.pdfwriter.COSWriter;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
@@ -55,6 +61,9 @@ import org.apache.pdfbox.pdmodel.encryption.SecurityHandler;
 import org.apache.pdfbox.pdmodel.encryption.SecurityHandlersManager;
 import org.apache.pdfbox.pdmodel.encryption.StandardDecryptionMaterial;
 import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.apache.pdfbox.pdmodel.graphics.xobject.DecodedImageCache;
+import org.apache.pdfbox.pdmodel.graphics.xobject.PDXObjectImage;
+import org.apache.pdfbox.util.PDFMetrics;
 
 /**
  * This is the in-memory representation of the PDF document.  You need to call
@@ -97,6 +106,11 @@ public class PDDocument implements Pageable
      */
     private SecurityHandler securityHandler = null;
 
+    /**
+     * The file this document was loaded from, it is the base of an incremental save.
+     */
+    private File sourceFile = null;
+
 
     /**
      * Constructor, creates a new PDF Document with no pages.  You need to add
@@ -129,17 +143,14 @@ public class PDDocument implements Pageable
 
     /**
      * This will add a page to the document.  This is a convenience method, that
-     * will add the page to the root of the hierarchy and set the parent of the
-     * page to the root.
+     * will add the page after the last page of the hierarchy and set the parent of
+     * the page, see PDPageNode.addPage().
      *
      * @param page The page to add to the document.
      */
     public void addPage( PDPage page )
     {
-        PDPageNode rootPages = getDocumentCatalog().getPages();
-        rootPages.getKids().add( page );
-        page.setParent( rootPages );
-        rootPages.updateCount();
+        getDocumentCatalog().getPages().addPage( page );
     }
 
     /**
@@ -152,12 +163,14 @@ public class PDDocument implements Pageable
     public boolean removePage( PDPage page )
     {
         PDPageNode parent = page.getParent();
-        boolean retval = parent.getKids().remove( page );
+        List kids = parent.getKids();
+        boolean retval = kids.contains( page );
         if( retval )
         {
-            //do a recursive updateCount starting at the root
-            //of the document
-            getDocumentCatalog().getPages().updateCount();
+            //only the nodes above the page change their count, it is done before
+            //the page is removed because a node without /Count counts its pages
+            parent.adjustCount( -1 );
+            kids.remove( page );
         }
         return retval;
     }
@@ -171,11 +184,18 @@ public class PDDocument implements Pageable
     public boolean removePage( int pageNumber )
     {
         boolean removed = false;
-        List allPages = getDocumentCatalog().getAllPages();
-        if( allPages.size() > pageNumber)
+        PDPageNode rootPages = getDocumentCatalog().getPages();
+        if( pageNumber >= 0 && rootPages.getCount() > pageNumber)
         {
-            PDPage page = (PDPage)allPages.get( pageNumber );
-            removed = removePage( page );
+            try
+            {
+                PDPage page = rootPages.getPage( pageNumber );
+                removed = removePage( page );
+            }
+            catch( IndexOutOfBoundsException e )
+            {
+                //the /Count of the pages is larger than the real number of pages
+            }
         }
         return removed;
     }
@@ -249,6 +269,17 @@ public class PDDocument implements Pageable
         return document;
     }
 
+    /**
+     * This will get the metrics of this document, they are only recorded if
+     * PDFMetrics.setEnabled( true ) was called before the document was loaded.
+     *
+     * @return The metrics of this document, or null if they are not recorded.
+     */
+    public PDFMetrics getMetrics()
+    {
+        return document.getMetrics();
+    }
+
     /**
      * This will get the document info dictionary.  This is guaranteed to not return null.
      *
@@ -627,7 +658,7 @@ public class PDDocument implements Pageable
      */
     public static PDDocument load( String filename ) throws IOException
     {
-        return load( new FileInputStream( filename ) );
+        return load( new File( filename ) );
     }
     
     /**
@@ -658,7 +689,7 @@ public class PDDocument implements Pageable
      */
     public static PDDocument load( String filename, RandomAccess scratchFile ) throws IOException
     {
-        return load( new FileInputStream( filename ), scratchFile );
+        return load( new File( filename ), scratchFile );
     }
 
     /**
@@ -672,7 +703,7 @@ public class PDDocument implements Pageable
      */
     public static PDDocument load( File file ) throws IOException
     {
-        return load( new FileInputStream( file ) );
+        return load( file, null );
     }
 
     /**
@@ -687,7 +718,22 @@ public class PDDocument implements Pageable
      */
     public static PDDocument load( File file, RandomAccess scratchFile ) throws IOException
     {
-        return load( new FileInputStream( file ) );
+        //the file is read through memory mapped windows, they are unmapped when
+        //parsing is done so the file can be overwritten by a later save.
+        RandomAccess source = new RandomAccessMappedFile( file, "r" );
+        try
+        {
+            PDFParser parser = new PDFParser(
+                new RandomAccessFileInputStream( source, 0, source.length() ), scratchFile );
+            parser.parse();
+            PDDocument doc = parser.getPDDocument();
+            doc.sourceFile = file;
+            return doc;
+        }
+        finally
+        {
+            source.close();
+        }
     }
 
     /**
@@ -755,6 +801,26 @@ public class PDDocument implements Pageable
         return parser.getPDDocument();
     }
 
+    /**
+     * This will load a document through its xref table.  Only the xref sections and
+     * the trailer are read up front, every other object is parsed from the source
+     * the first time it is accessed.  If the xref table is broken then the whole
+     * document is parsed as usual.  The source is closed when the document is closed.
+     *
+     * @param source The random access source that contains the document.
+     * @param scratchFile A location to store temp PDFBox data for this document.
+     *
+     * @return The document that was loaded.
+     *
+     * @throws IOException If there is an error reading from the source.
+     */
+    public static PDDocument load( RandomAccess source, RandomAccess scratchFile ) throws IOException
+    {
+        PDFParser parser = new PDFParser( source, scratchFile );
+        parser.parse();
+        return parser.getPDDocument();
+    }
+
     /**
      * This will save this document to the filesystem.
      *
@@ -768,6 +834,21 @@ public class PDDocument implements Pageable
         save( new FileOutputStream( fileName ) );
     }
 
+    /**
+     * This will save this document to the filesystem.
+     *
+     * @param fileName The file to save as.
+     * @param useObjectStreams true to pack the objects into compressed object streams
+     * and write an xref stream, see COSWriter.setWriteObjectStreams.
+     *
+     * @throws IOException If there is an error saving the document.
+     * @throws COSVisitorException If an error occurs while generating the data.
+     */
+    public void save( String fileName, boolean useObjectStreams ) throws IOException, COSVisitorException
+    {
+        save( new FileOutputStream( fileName ), useObjectStreams );
+    }
+
     /**
      * This will save the document to an output stream.
      *
@@ -777,6 +858,21 @@ public class PDDocument implements Pageable
      * @throws COSVisitorException If an error occurs while generating the data.
      */
     public void save( OutputStream output ) throws IOException, COSVisitorException
+    {
+        save( output, false );
+    }
+
+    /**
+     * This will save the document to an output stream.
+     *
+     * @param output The stream to write to.
+     * @param useObjectStreams true to pack the objects into compressed object streams
+     * and write an xref stream, see COSWriter.setWriteObjectStreams.
+     *
+     * @throws IOException If there is an error writing the document.
+     * @throws COSVisitorException If an error occurs while generating the data.
+     */
+    public void save( OutputStream output, boolean useObjectStreams ) throws IOException, COSVisitorException
     {
         //update the count in case any pages have been added behind the scenes.
         getDocumentCatalog().getPages().updateCount();
@@ -784,6 +880,7 @@ public class PDDocument implements Pageable
         try
         {
             writer = new COSWriter( output );
+            writer.setWriteObjectStreams( useObjectStreams );
             writer.write( this );
             writer.close();
         }
@@ -796,6 +893,141 @@ public class PDDocument implements Pageable
         }
     }
 
+    /**
+     * This will save the changes made to this document as an incremental update.
+     * Only the objects that were changed or added since the document was loaded
+     * are written after the bytes of the original file, together with a new xref
+     * section.  If the file name is the file this document was loaded from then
+     * the update is appended to it in place, otherwise the original file is copied first.
+     * The document must have been loaded from a file and must not be encrypted.
+     *
+     * @param fileName The file to save as.
+     *
+     * @throws IOException If there is an error saving the document.
+     * @throws COSVisitorException If an error occurs while generating the data.
+     */
+    public void saveIncremental( String fileName ) throws IOException, COSVisitorException
+    {
+        File target = new File( fileName );
+        if( sourceFile != null && target.getCanonicalFile().equals( sourceFile.getCanonicalFile() ) )
+        {
+            saveIncremental( new FileOutputStream( target, true ), false );
+        }
+        else
+        {
+            saveIncremental( new FileOutputStream( target ), true );
+        }
+    }
+
+    /**
+     * This will write the original file this document was loaded from followed
+     * by an incremental update with the changes made to this document, see
+     * saveIncremental( String ).
+     *
+     * @param output The stream to write to.
+     *
+     * @throws IOException If there is an error writing the document.
+     * @throws COSVisitorException If an error occurs while generating the data.
+     */
+    public void saveIncremental( OutputStream output ) throws IOException, COSVisitorException
+    {
+        saveIncremental( output, true );
+    }
+
+    private void saveIncremental( OutputStream output, boolean copySource )
+        throws IOException, COSVisitorException
+    {
+        COSWriter writer = null;
+        FileInputStream input = null;
+        try
+        {
+            if( sourceFile == null )
+            {
+                throw new IOException( "Incremental save requires a document that was loaded from a file" );
+            }
+            if( isEncrypted() || encParameters != null )
+            {
+                throw new IOException( "Incremental save of encrypted documents is not supported" );
+            }
+            input = new FileInputStream( sourceFile );
+            FileChannel source = input.getChannel();
+            long length = source.size();
+            long startxref = findStartxref( source );
+            if( copySource )
+            {
+                WritableByteChannel target = output instanceof FileOutputStream ?
+                    ((FileOutputStream)output).getChannel() : Channels.newChannel( output );
+                long position = 0;
+                while( position < length )
+                {
+                    position += source.transferTo( position, length - position, target );
+                }
+            }
+
+            //update the count in case any pages have been added behind the scenes.
+            getDocumentCatalog().getPages().updateCount();
+            writer = new COSWriter( output );
+            writer.setIncrementalUpdate( length, startxref );
+            //an update to a file with xref streams must use an xref stream too
+            writer.setWriteObjectStreams( !startsWith( source, startxref, "xref" ) );
+            writer.write( this );
+        }
+        finally
+        {
+            if( input != null )
+            {
+                input.close();
+            }
+            if( writer != null )
+            {
+                writer.close();
+            }
+            else
+            {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * This will find the offset of the last xref section from the startxref
+     * keyword at the end of the file.
+     */
+    private static long findStartxref( FileChannel file ) throws IOException
+    {
+        int tailLength = (int)Math.min( file.size(), 1024 );
+        ByteBuffer tail = ByteBuffer.allocate( tailLength );
+        file.read( tail, file.size() - tailLength );
+        String text = new String( tail.array(), 0, tail.position(), "ISO-8859-1" );
+        int keyword = text.lastIndexOf( "startxref" );
+        if( keyword == -1 )
+        {
+            throw new IOException( "Error: startxref not found at the end of the file" );
+        }
+        int start = keyword + "startxref".length();
+        while( start < text.length() && !Character.isDigit( text.charAt( start ) ) )
+        {
+            start++;
+        }
+        int end = start;
+        while( end < text.length() && Character.isDigit( text.charAt( end ) ) )
+        {
+            end++;
+        }
+        if( start == end )
+        {
+            throw new IOException( "Error: startxref has no offset" );
+        }
+        return Long.parseLong( text.substring( start, end ) );
+    }
+
+    private static boolean startsWith( FileChannel file, long offset, String keyword ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( keyword.length() );
+        file.read( buffer, offset );
+        return new String( buffer.array(), 0, buffer.position(), "ISO-8859-1" ).equals( keyword );
+    }
+
     /**
      * This will return the total page count of the PDF document.  Note: This method
      * is deprecated in favor of the getNumberOfPages method.  The getNumberOfPages is
@@ -824,7 +1056,7 @@ public class PDDocument implements Pageable
      */
     public PageFormat getPageFormat(int pageIndex)
     {
-        PDPage page = (PDPage)getDocumentCatalog().getAllPages().get( pageIndex );
+        PDPage page = getDocumentCatalog().getPages().getPage( pageIndex );
         PDRectangle mediaBox = page.findMediaBox();
         PageFormat format = new PageFormat();
         Paper paper = new Paper();
@@ -866,7 +1098,7 @@ public class PDDocument implements Pageable
      */
     public Printable getPrintable(int pageIndex)
     {
-        return (Printable)getDocumentCatalog().getAllPages().get( pageIndex );
+        return getDocumentCatalog().getPages().getPage( pageIndex );
     }
 
     /**
@@ -952,12 +1184,18 @@ public class PDDocument implements Pageable
     }
 
     /**
-     * This will close the underlying COSDocument object.
+     * This will close the underlying COSDocument object and drop the decoded
+     * images of this document from the image cache.
      *
      * @throws IOException If there is an error releasing resources.
      */
     public void close() throws IOException
     {
+        DecodedImageCache imageCache = PDXObjectImage.getImageCache();
+        if( imageCache != null )
+        {
+            imageCache.remove( document );
+        }
         document.close();
     }
 
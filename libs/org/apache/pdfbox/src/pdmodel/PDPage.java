@@ -40,10 +40,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
-import java.awt.image.ImagingOpException;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
@@ -54,7 +51,6 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
-import java.util.logging.Level;
 
 /**
  * This represents a single page in a PDF document.
@@ -99,6 +95,11 @@ public class PDPage extends LoggingObject implements COSObjectable, Printable
      */
     public static final PDRectangle PAGE_SIZE_A6 = new PDRectangle( 298, 421 );
 
+    /**
+     * The resolution of the default user space, one unit is 1/72 of an inch.
+     */
+    public static final int DEFAULT_USER_SPACE_UNIT_DPI = 72;
+
 
     /**
      * Creates a new instance of PDPage with a size of 8.5x11.
@@ -642,7 +643,7 @@ public class PDPage extends LoggingObject implements COSObjectable, Printable
     }
 
     /**
-     * Convert this page to an output image.
+     * Convert this page to an output image with 144 dpi and an indexed color model.
      *
      * @return A graphical representation of this page.
      *
@@ -650,36 +651,84 @@ public class PDPage extends LoggingObject implements COSObjectable, Printable
      */
     public BufferedImage convertToImage() throws IOException
     {
-        int scaling = 2;
-        PDRectangle mBox = findMediaBox();
-        int width = (int)(mBox.getWidth());//*2);
-        int height = (int)(mBox.getHeight());//*2);
-        Dimension pageDimension = new Dimension( width, height );
-
         //note we are doing twice as many pixels because
         //the default size is not really good resolution,
         //so create an image that is twice the size
         //and let the client scale it down.
-        BufferedImage retval = new BufferedImage( width*scaling, height*scaling, BufferedImage.TYPE_BYTE_INDEXED );
-        Graphics2D graphics = (Graphics2D)retval.getGraphics();
-        graphics.setColor( Color.WHITE );
-        graphics.fillRect(0,0,width*scaling, height*scaling);
-        graphics.scale( scaling, scaling );
-        PageDrawer drawer = new PageDrawer();
-        drawer.drawPage( graphics, this, pageDimension );
-
-        try{
-            int rotation = findRotation();
-            if (rotation == 90 || rotation == 270) {
-                AffineTransformOp transform = new AffineTransformOp(
-                        AffineTransform.getRotateInstance(Math.toRadians(rotation)),
-                        AffineTransformOp.TYPE_BILINEAR);
-                retval = transform.filter(retval, null);
+        return convertToImage( BufferedImage.TYPE_BYTE_INDEXED, 2 * DEFAULT_USER_SPACE_UNIT_DPI );
+    }
+
+    /**
+     * Convert this page to an output image.  The page rotation is applied while
+     * the page is drawn, so the returned image is already upright.  An image type
+     * with an alpha channel keeps a transparent background, every other type gets
+     * a white background.
+     *
+     * @param imageType The BufferedImage type of the image, for example
+     * BufferedImage.TYPE_BYTE_GRAY, TYPE_INT_RGB or TYPE_INT_ARGB.
+     * @param resolution The resolution of the image in dots per inch.
+     *
+     * @return A graphical representation of this page.
+     *
+     * @throws IOException If there is an error drawing to the image.
+     */
+    public BufferedImage convertToImage( int imageType, int resolution ) throws IOException
+    {
+        PDRectangle mBox = findMediaBox();
+        float scaling = resolution / (float)DEFAULT_USER_SPACE_UNIT_DPI;
+        int widthPx = Math.round( mBox.getWidth() * scaling );
+        int heightPx = Math.round( mBox.getHeight() * scaling );
+        Dimension pageDimension = new Dimension( (int)mBox.getWidth(), (int)mBox.getHeight() );
+
+        int rotation = findRotation() % 360;
+        if( rotation < 0 )
+        {
+            rotation += 360;
+        }
+        BufferedImage retval;
+        if( rotation == 90 || rotation == 270 )
+        {
+            retval = new BufferedImage( heightPx, widthPx, imageType );
+        }
+        else
+        {
+            retval = new BufferedImage( widthPx, heightPx, imageType );
+        }
+        Graphics2D graphics = retval.createGraphics();
+        try
+        {
+            if( !retval.getColorModel().hasAlpha() )
+            {
+                graphics.setColor( Color.WHITE );
+                graphics.fillRect( 0, 0, retval.getWidth(), retval.getHeight() );
             }
-        } catch (ImagingOpException e){
-            logger().log(Level.WARNING, "Unable to rotate page image", e);
+            //rotate clockwise around the origin and move the page back into the image
+            switch( rotation )
+            {
+                case 90:
+                    graphics.translate( heightPx, 0 );
+                    break;
+                case 180:
+                    graphics.translate( widthPx, heightPx );
+                    break;
+                case 270:
+                    graphics.translate( 0, widthPx );
+                    break;
+                default:
+                    rotation = 0;
+            }
+            if( rotation != 0 )
+            {
+                graphics.rotate( Math.toRadians( rotation ) );
+            }
+            graphics.scale( scaling, scaling );
+            PageDrawer drawer = new PageDrawer();
+            drawer.drawPage( graphics, this, pageDimension );
+        }
+        finally
+        {
+            graphics.dispose();
         }
-
         return retval;
     }
 
@@ -39,6 +39,11 @@ import java.util.List;
  */
 public class PDPageNode implements COSObjectable
 {
+    /**
+     * The most kids that addPage() puts in one page node before it starts a new node.
+     */
+    private static final int MAX_KIDS = 32;
+
     private COSDictionary page;
 
     /**
@@ -93,13 +98,256 @@ public class PDPageNode implements COSObjectable
     }
 
     /**
-     * This will get the count of descendent page objects.
+     * This will get the count of descendent page objects, the pages are counted
+     * if this node has no /Count.
      *
      * @return The total number of descendent page objects.
      */
     public long getCount()
     {
-        return ((COSNumber)page.getDictionaryObject( COSName.COUNT )).intValue();
+        return getCount( page );
+    }
+
+    /**
+     * This will add to the count of this node and of all nodes above it, this is
+     * what needs to be done when pages are added to or removed from this node.
+     *
+     * @param delta The number of pages that were added, negative if pages were removed.
+     */
+    public void adjustCount( long delta )
+    {
+        COSDictionary node = page;
+        while( node != null )
+        {
+            node.setItem( COSName.COUNT, COSInteger.get( getCount( node ) + delta ) );
+            node = (COSDictionary)node.getDictionaryObject( "Parent", "P" );
+        }
+    }
+
+    /**
+     * This will get a page below this node by its index, only the nodes on the way
+     * to the page are read and their /Count is used to skip the others.
+     *
+     * @param index The zero based index of the page within this node.
+     *
+     * @return The page at the index.
+     *
+     * @throws IndexOutOfBoundsException If there is no page with that index.
+     */
+    public PDPage getPage( int index )
+    {
+        if( index < 0 )
+        {
+            throw new IndexOutOfBoundsException( "Page index " + index + " is out of range" );
+        }
+        COSDictionary node = page;
+        long remaining = index;
+        while( node != null )
+        {
+            COSArray kids = (COSArray)node.getDictionaryObject( COSName.KIDS );
+            COSDictionary next = null;
+            for( int i=0; kids != null && i<kids.size() && next == null; i++ )
+            {
+                COSBase obj = kids.getObject( i );
+                if( obj instanceof COSDictionary )
+                {
+                    COSDictionary kid = (COSDictionary)obj;
+                    if( isPage( kid ) )
+                    {
+                        if( remaining == 0 )
+                        {
+                            return new PDPage( kid );
+                        }
+                        remaining--;
+                    }
+                    else
+                    {
+                        long count = getCount( kid );
+                        if( remaining < count )
+                        {
+                            next = kid;
+                        }
+                        else
+                        {
+                            remaining -= count;
+                        }
+                    }
+                }
+            }
+            node = next;
+        }
+        throw new IndexOutOfBoundsException( "Page index " + index + " is out of range" );
+    }
+
+    /**
+     * This will add a page after the last page below this node.  The tree is kept
+     * balanced: the page goes into the last node at the bottom of the tree, and when
+     * that node is full new nodes are started so all pages stay at the same depth.
+     * Only the /Count of the nodes on the way to the page is changed.
+     *
+     * Nodes that have inheritable attributes are not descended into, so the page
+     * does not inherit resources or boxes that were meant for other pages.
+     *
+     * @param newPage The page to add.
+     */
+    public void addPage( PDPage newPage )
+    {
+        List path = new ArrayList();
+        path.add( page );
+        COSDictionary last = getLastKid( page );
+        while( last != null && !isPage( last ) && !hasInheritableAttributes( last ) )
+        {
+            path.add( last );
+            last = getLastKid( last );
+        }
+
+        //find the deepest node on the path that still has room
+        int level = path.size() - 1;
+        while( level >= 0 && getKidsArray( (COSDictionary)path.get( level ) ).size() >= MAX_KIDS )
+        {
+            level--;
+        }
+        if( level < 0 )
+        {
+            //every node is full, so move the kids of this node one level down
+            COSArray kids = getKidsArray( page );
+            COSDictionary child = createNode( page );
+            child.setItem( COSName.KIDS, kids );
+            child.setItem( COSName.COUNT, COSInteger.get( getCount( page ) ) );
+            for( int i=0; i<kids.size(); i++ )
+            {
+                COSBase obj = kids.getObject( i );
+                if( obj instanceof COSDictionary )
+                {
+                    ((COSDictionary)obj).setItem( COSName.PARENT, child );
+                }
+            }
+            COSArray rootKids = new COSArray();
+            rootKids.add( child );
+            page.setItem( COSName.KIDS, rootKids );
+            path.add( 1, child );
+            level = 0;
+        }
+
+        for( int i=0; i<=level; i++ )
+        {
+            COSDictionary node = (COSDictionary)path.get( i );
+            node.setItem( COSName.COUNT, COSInteger.get( getCount( node ) + 1 ) );
+        }
+        COSDictionary parent = (COSDictionary)path.get( level );
+        for( int i=level+1; i<path.size(); i++ )
+        {
+            COSDictionary child = createNode( parent );
+            child.setItem( COSName.COUNT, COSInteger.get( 1 ) );
+            getKidsArray( parent ).add( child );
+            parent = child;
+        }
+        getKidsArray( parent ).add( newPage.getCOSDictionary() );
+        newPage.getCOSDictionary().setItem( COSName.PARENT, parent );
+    }
+
+    /**
+     * This will create an empty page node.
+     *
+     * @param parent The parent of the new node.
+     *
+     * @return The new page node.
+     */
+    private static COSDictionary createNode( COSDictionary parent )
+    {
+        COSDictionary node = new COSDictionary();
+        node.setItem( COSName.TYPE, COSName.PAGES );
+        node.setItem( COSName.KIDS, new COSArray() );
+        node.setItem( COSName.PARENT, parent );
+        return node;
+    }
+
+    /**
+     * This will get the kids array of a page node, creating it if it is missing.
+     *
+     * @param node The page node.
+     *
+     * @return The kids of the page node.
+     */
+    private static COSArray getKidsArray( COSDictionary node )
+    {
+        COSArray kids = (COSArray)node.getDictionaryObject( COSName.KIDS );
+        if( kids == null )
+        {
+            kids = new COSArray();
+            node.setItem( COSName.KIDS, kids );
+        }
+        return kids;
+    }
+
+    /**
+     * This will get the last kid of a page node.
+     *
+     * @param node The page node.
+     *
+     * @return The last kid or null if the node has no kids.
+     */
+    private static COSDictionary getLastKid( COSDictionary node )
+    {
+        COSArray kids = (COSArray)node.getDictionaryObject( COSName.KIDS );
+        COSDictionary last = null;
+        if( kids != null && kids.size() > 0 )
+        {
+            COSBase obj = kids.getObject( kids.size() - 1 );
+            if( obj instanceof COSDictionary )
+            {
+                last = (COSDictionary)obj;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * This will tell if the dictionary is a page, everything else in the kids of
+     * a page node is treated as a page node.
+     *
+     * @param dic The kid of a page node.
+     *
+     * @return true if the dictionary is a page.
+     */
+    private static boolean isPage( COSDictionary dic )
+    {
+        return COSName.PAGE.equals( dic.getDictionaryObject( COSName.TYPE ) );
+    }
+
+    /**
+     * This will tell if a page node has attributes that its pages inherit.
+     *
+     * @param node The page node.
+     *
+     * @return true if any inheritable attribute is set on the node.
+     */
+    private static boolean hasInheritableAttributes( COSDictionary node )
+    {
+        return node.getDictionaryObject( COSName.RESOURCES ) != null ||
+               node.getDictionaryObject( COSName.MEDIA_BOX ) != null ||
+               node.getDictionaryObject( COSName.CROP_BOX ) != null ||
+               node.getDictionaryObject( COSName.ROTATE ) != null;
+    }
+
+    /**
+     * This will get the /Count of a page node, or count its pages if the /Count
+     * is missing.
+     *
+     * @param node The page node.
+     *
+     * @return The number of pages below the node.
+     */
+    private static long getCount( COSDictionary node )
+    {
+        COSBase count = node.getDictionaryObject( COSName.COUNT );
+        if( count instanceof COSNumber )
+        {
+            return ((COSNumber)count).longValue();
+        }
+        List pages = new ArrayList();
+        getAllKids( pages, node, true );
+        return pages.size();
     }
 
     /**
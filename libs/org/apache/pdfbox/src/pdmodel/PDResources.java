@@ -102,14 +102,18 @@ public class PDResources implements COSObjectable
         Map retval = null;
         COSDictionary fonts = (COSDictionary)resources.getDictionaryObject( COSName.FONT );
 
+        Map actuals = new HashMap();
         if( fonts == null )
         {
+            //the font dictionary is added to the resources when a font is
+            //put in the map, reading the fonts doesn't modify the resources.
             fonts = new COSDictionary();
-            resources.setItem( COSName.FONT, fonts );
+            retval = new COSDictionaryMap( actuals, fonts, resources, COSName.FONT );
+        }
+        else
+        {
+            retval = new COSDictionaryMap( actuals, fonts );
         }
-
-        Map actuals = new HashMap();
-        retval = new COSDictionaryMap( actuals, fonts );
         Iterator fontNames = fonts.keyList().iterator();
         while( fontNames.hasNext() )
         {
@@ -151,14 +155,16 @@ public class PDResources implements COSObjectable
         Map retval = null;
         COSDictionary xobjects = (COSDictionary)resources.getDictionaryObject( "XObject" );
 
+        Map actuals = new HashMap();
         if( xobjects == null )
         {
             xobjects = new COSDictionary();
-            resources.setItem( "XObject", xobjects );
+            retval = new COSDictionaryMap( actuals, xobjects, resources, COSName.XOBJECT );
+        }
+        else
+        {
+            retval = new COSDictionaryMap( actuals, xobjects );
         }
-
-        Map actuals = new HashMap();
-        retval = new COSDictionaryMap( actuals, xobjects );
         Iterator imageNames = xobjects.keyList().iterator();
         while( imageNames.hasNext() )
         {
@@ -188,14 +194,16 @@ public class PDResources implements COSObjectable
         Map retval = null;
         COSDictionary images = (COSDictionary)resources.getDictionaryObject( "XObject" );
 
+        Map actuals = new HashMap();
         if( images == null )
         {
             images = new COSDictionary();
-            resources.setItem( "XObject", images );
+            retval = new COSDictionaryMap( actuals, images, resources, COSName.XOBJECT );
+        }
+        else
+        {
+            retval = new COSDictionaryMap( actuals, images );
         }
-
-        Map actuals = new HashMap();
-        retval = new COSDictionaryMap( actuals, images );
         Iterator imageNames = images.keyList().iterator();
         while( imageNames.hasNext() )
         {
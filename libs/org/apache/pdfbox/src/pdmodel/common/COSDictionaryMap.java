@@ -43,6 +43,11 @@ public class COSDictionaryMap implements Map
     private COSDictionary map;
     private Map actuals;
 
+    //these are only used when the dictionary is not in its parent yet, it
+    //is added to the parent the first time an item is put in the map.
+    private COSDictionary parentDict;
+    private COSName dictKey;
+
     /**
      * Constructor for this map.
      *
@@ -55,6 +60,24 @@ public class COSDictionaryMap implements Map
         map = dicMap;
     }
 
+    /**
+     * Constructor for a map whose dictionary is not stored in the parent
+     * dictionary yet.  In the case where we get the map and never modify it
+     * we don't want to add an empty dictionary to the parent, so the dictionary
+     * is only set in the parent when an item is put in the map.
+     *
+     * @param actualsMap The map with standard java objects as values.
+     * @param dicMap The map with COSBase objects as values.
+     * @param dictionary The dictionary that will hold dicMap when an item is added.
+     * @param dictionaryKey The key into the dictionary to set dicMap.
+     */
+    public COSDictionaryMap( Map actualsMap, COSDictionary dicMap, COSDictionary dictionary, COSName dictionaryKey )
+    {
+        this( actualsMap, dicMap );
+        parentDict = dictionary;
+        dictKey = dictionaryKey;
+    }
+
 
     /**
      * {@inheritDoc}
@@ -103,6 +126,12 @@ public class COSDictionaryMap implements Map
     {
         COSObjectable object = (COSObjectable)value;
 
+        if( parentDict != null )
+        {
+            parentDict.setItem( dictKey, map );
+            //clear the parent dict so it doesn't happen again
+            parentDict = null;
+        }
         map.setItem( COSName.getPDFName( (String)key ), object.getCOSObject() );
         return actuals.put( key, value );
     }
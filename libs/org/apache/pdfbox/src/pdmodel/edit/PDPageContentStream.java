@@ -22,11 +22,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import java.text.NumberFormat;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -49,6 +47,7 @@ import org.apache.pdfbox.pdmodel.graphics.color.PDSeparation;
 import org.apache.pdfbox.pdmodel.graphics.xobject.PDXObject;
 import org.apache.pdfbox.pdmodel.graphics.xobject.PDXObjectImage;
 import org.apache.pdfbox.util.MapUtil;
+import org.apache.pdfbox.util.NumberFormatUtil;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSDictionary;
@@ -80,7 +79,8 @@ public class PDPageContentStream
     //cached storage component for getting color values
     private float[] colorComponents = new float[4];
 
-    private NumberFormat formatDecimal = NumberFormat.getNumberInstance( Locale.US );
+    //cached storage for formatting numbers
+    private byte[] numberBuffer = new byte[NumberFormatUtil.BUFFER_SIZE];
 
     private static final String BEGIN_TEXT = "BT\n";
     private static final String END_TEXT = "ET\n";
@@ -202,8 +202,6 @@ public class PDPageContentStream
             sourcePage.setContents( contents );
             output = contents.createOutputStream();
         }
-        formatDecimal.setMaximumFractionDigits( 10 );
-        formatDecimal.setGroupingUsed( false );
     }
 
     /**
@@ -257,7 +255,7 @@ public class PDPageContentStream
         appendRawCommands( "/");
         appendRawCommands( fontMapping );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( fontSize ) );
+        appendNumber( fontSize );
         appendRawCommands( SPACE );
         appendRawCommands( SET_FONT );
     }
@@ -307,17 +305,17 @@ public class PDPageContentStream
             xobjects.put( objMapping, xobject );
         }
         appendRawCommands( SAVE_GRAPHICS_STATE );
-        appendRawCommands( formatDecimal.format( width ) );
+        appendNumber( width );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( 0 ) );
+        appendNumber( 0 );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( 0 ) );
+        appendNumber( 0 );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( height ) );
+        appendNumber( height );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( x ) );
+        appendNumber( x );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( y ) );
+        appendNumber( y );
         appendRawCommands( SPACE );
         appendRawCommands( CONCATENATE_MATRIX );
         appendRawCommands( SPACE );
@@ -341,9 +339,9 @@ public class PDPageContentStream
         {
             throw new IOException( "Error: must call beginText() before moveTextPositionByAmount");
         }
-        appendRawCommands( formatDecimal.format( x ) );
+        appendNumber( x );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( y ) );
+        appendNumber( y );
         appendRawCommands( SPACE );
         appendRawCommands( MOVE_TEXT_POSITION );
     }
@@ -442,7 +440,7 @@ public class PDPageContentStream
     {
         for( int i=0; i< components.length; i++ )
         {
-            appendRawCommands( formatDecimal.format( components[i] ) );
+            appendNumber( components[i] );
             appendRawCommands( SPACE );
         }
         if( currentStrokingColorSpace instanceof PDSeparation ||
@@ -526,11 +524,11 @@ public class PDPageContentStream
      */
     public void setStrokingColor( int r, int g, int b ) throws IOException
     {
-        appendRawCommands( formatDecimal.format( r/255d ) );
+        appendNumber( r/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( g/255d ) );
+        appendNumber( g/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( b/255d ) );
+        appendNumber( b/255d );
         appendRawCommands( SPACE );
         appendRawCommands( RG_STROKING );
     }
@@ -546,13 +544,13 @@ public class PDPageContentStream
      */
     public void setStrokingColor( int c, int m, int y, int k) throws IOException
     {
-        appendRawCommands( formatDecimal.format( c/255d ) );
+        appendNumber( c/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( m/255d ) );
+        appendNumber( m/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( y/255d ) );
+        appendNumber( y/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( k/255d ) );
+        appendNumber( k/255d );
         appendRawCommands( SPACE );
         appendRawCommands( K_STROKING );
     }
@@ -568,13 +566,13 @@ public class PDPageContentStream
      */
     public void setStrokingColor( double c, double m, double y, double k) throws IOException
     {
-        appendRawCommands( formatDecimal.format( c ) );
+        appendNumber( c );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( m ) );
+        appendNumber( m );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( y ) );
+        appendNumber( y );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( k ) );
+        appendNumber( k );
         appendRawCommands( SPACE );
         appendRawCommands( K_STROKING );
     }
@@ -587,7 +585,7 @@ public class PDPageContentStream
      */
     public void setStrokingColor( int g ) throws IOException
     {
-        appendRawCommands( formatDecimal.format( g/255d ) );
+        appendNumber( g/255d );
         appendRawCommands( SPACE );
         appendRawCommands( G_STROKING );
     }
@@ -600,7 +598,7 @@ public class PDPageContentStream
      */
     public void setStrokingColor( double g ) throws IOException
     {
-        appendRawCommands( formatDecimal.format( g ) );
+        appendNumber( g );
         appendRawCommands( SPACE );
         appendRawCommands( G_STROKING );
     }
@@ -615,7 +613,7 @@ public class PDPageContentStream
     {
         for( int i=0; i< components.length; i++ )
         {
-            appendRawCommands( formatDecimal.format( components[i] ) );
+            appendNumber( components[i] );
             appendRawCommands( SPACE );
         }
         if( currentNonStrokingColorSpace instanceof PDSeparation ||
@@ -641,11 +639,11 @@ public class PDPageContentStream
      */
     public void setNonStrokingColor( int r, int g, int b ) throws IOException
     {
-        appendRawCommands( formatDecimal.format( r/255d ) );
+        appendNumber( r/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( g/255d ) );
+        appendNumber( g/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( b/255d ) );
+        appendNumber( b/255d );
         appendRawCommands( SPACE );
         appendRawCommands( RG_NON_STROKING );
     }
@@ -661,13 +659,13 @@ public class PDPageContentStream
      */
     public void setNonStrokingColor( int c, int m, int y, int k) throws IOException
     {
-        appendRawCommands( formatDecimal.format( c/255d ) );
+        appendNumber( c/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( m/255d ) );
+        appendNumber( m/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( y/255d ) );
+        appendNumber( y/255d );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( k/255d ) );
+        appendNumber( k/255d );
         appendRawCommands( SPACE );
         appendRawCommands( K_NON_STROKING );
     }
@@ -683,13 +681,13 @@ public class PDPageContentStream
      */
     public void setNonStrokingColor( double c, double m, double y, double k) throws IOException
     {
-        appendRawCommands( formatDecimal.format( c ) );
+        appendNumber( c );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( m ) );
+        appendNumber( m );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( y ) );
+        appendNumber( y );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( k ) );
+        appendNumber( k );
         appendRawCommands( SPACE );
         appendRawCommands( K_NON_STROKING );
     }
@@ -702,7 +700,7 @@ public class PDPageContentStream
      */
     public void setNonStrokingColor( int g ) throws IOException
     {
-        appendRawCommands( formatDecimal.format( g/255d ) );
+        appendNumber( g/255d );
         appendRawCommands( SPACE );
         appendRawCommands( G_NON_STROKING );
     }
@@ -715,7 +713,7 @@ public class PDPageContentStream
      */
     public void setNonStrokingColor( double g ) throws IOException
     {
-        appendRawCommands( formatDecimal.format( g ) );
+        appendNumber( g );
         appendRawCommands( SPACE );
         appendRawCommands( G_NON_STROKING );
     }
@@ -731,13 +729,13 @@ public class PDPageContentStream
      */
     public void fillRect( float x, float y, float width, float height ) throws IOException
     {
-        appendRawCommands( formatDecimal.format( x ) );
+        appendNumber( x );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( y ) );
+        appendNumber( y );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( width ) );
+        appendNumber( width );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( height ) );
+        appendNumber( height );
         appendRawCommands( SPACE );
         appendRawCommands( APPEND_RECTANGLE );
         appendRawCommands( FILL );
@@ -755,15 +753,15 @@ public class PDPageContentStream
     public void drawLine( float xStart, float yStart, float xEnd, float yEnd ) throws IOException
     {
         // moveTo
-        appendRawCommands( formatDecimal.format( xStart) );
+        appendNumber( xStart );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( yStart) );
+        appendNumber( yStart );
         appendRawCommands( SPACE );
         appendRawCommands( MOVE_TO );
         // lineTo
-        appendRawCommands( formatDecimal.format( xEnd ) );
+        appendNumber( xEnd );
         appendRawCommands( SPACE );
-        appendRawCommands( formatDecimal.format( yEnd ) );
+        appendNumber( yEnd );
         appendRawCommands( SPACE );
         appendRawCommands( LINE_TO );
         // stroke
@@ -779,10 +777,21 @@ public class PDPageContentStream
      */
     public void setLineWidth(float lineWidth) throws IOException
     {
-        appendRawCommands( formatDecimal.format( lineWidth ) );
+        appendNumber( lineWidth );
         appendRawCommands( SPACE );
         appendRawCommands( LINE_WIDTH );
     }
+    /**
+     * This will append a number to the content stream, with at most ten fraction digits.
+     *
+     * @param value The number to append to the stream.
+     * @throws IOException If an error occurs while writing to the stream.
+     */
+    private void appendNumber( double value ) throws IOException
+    {
+        NumberFormatUtil.writeDecimal( output, value, 10, numberBuffer );
+    }
+
     /**
      * This will append raw commands to the content stream.
      *
@@ -65,6 +65,11 @@ public class PDEncryptionDictionary
      */
     public static final String DEFAULT_NAME = "Standard";
 
+    /**
+     * The name of the crypt filter that leaves the data unchanged.
+     */
+    public static final String IDENTITY_FILTER = "Identity";
+
     /**
      * The default length for the encryption key.
      */
@@ -271,6 +276,206 @@ public class PDEncryptionDictionary
         return u;
     }
 
+    /**
+     * This will set the OE entry in the standard encryption dictionary, the
+     * file encryption key encrypted with the owner password for revision 6.
+     *
+     * @param oe A 32 byte array.
+     *
+     * @throws IOException If there is an error setting the data.
+     */
+    public void setOwnerEncryptionKey(byte[] oe) throws IOException
+    {
+        setBytes( "OE", oe );
+    }
+
+    /**
+     * This will get the OE entry in the standard encryption dictionary.
+     *
+     * @return A 32 byte array or null if there is no owner encryption key.
+     *
+     * @throws IOException If there is an error accessing the data.
+     */
+    public byte[] getOwnerEncryptionKey() throws IOException
+    {
+        return getBytes( "OE" );
+    }
+
+    /**
+     * This will set the UE entry in the standard encryption dictionary, the
+     * file encryption key encrypted with the user password for revision 6.
+     *
+     * @param ue A 32 byte array.
+     *
+     * @throws IOException If there is an error setting the data.
+     */
+    public void setUserEncryptionKey(byte[] ue) throws IOException
+    {
+        setBytes( "UE", ue );
+    }
+
+    /**
+     * This will get the UE entry in the standard encryption dictionary.
+     *
+     * @return A 32 byte array or null if there is no user encryption key.
+     *
+     * @throws IOException If there is an error accessing the data.
+     */
+    public byte[] getUserEncryptionKey() throws IOException
+    {
+        return getBytes( "UE" );
+    }
+
+    /**
+     * This will set the Perms entry in the standard encryption dictionary, the
+     * encrypted copy of the permissions for revision 6.
+     *
+     * @param perms A 16 byte array.
+     *
+     * @throws IOException If there is an error setting the data.
+     */
+    public void setPerms(byte[] perms) throws IOException
+    {
+        setBytes( "Perms", perms );
+    }
+
+    /**
+     * This will get the Perms entry in the standard encryption dictionary.
+     *
+     * @return A 16 byte array or null if there is no Perms entry.
+     *
+     * @throws IOException If there is an error accessing the data.
+     */
+    public byte[] getPerms() throws IOException
+    {
+        return getBytes( "Perms" );
+    }
+
+    private void setBytes( String key, byte[] data ) throws IOException
+    {
+        COSString string = new COSString();
+        string.append( data );
+        encryptionDictionary.setItem( COSName.getPDFName( key ), string );
+    }
+
+    private byte[] getBytes( String key ) throws IOException
+    {
+        byte[] data = null;
+        COSString string = (COSString)encryptionDictionary.getDictionaryObject( COSName.getPDFName( key ) );
+        if( string != null )
+        {
+            data = string.getBytes();
+        }
+        return data;
+    }
+
+    /**
+     * This will tell if the metadata streams of the document are encrypted,
+     * this is the EncryptMetadata entry which is only used with version 4 and 5.
+     *
+     * @return false If the metadata streams are left in clear text.
+     */
+    public boolean isEncryptMetaData()
+    {
+        return encryptionDictionary.getBoolean( "EncryptMetadata", true );
+    }
+
+    /**
+     * This will get the name of the crypt filter used for the streams, this is the
+     * StmF entry which is only used with version 4 and 5.
+     *
+     * @return The name of the crypt filter, Identity by default.
+     */
+    public String getStreamFilterName()
+    {
+        return encryptionDictionary.getNameAsString( "StmF", IDENTITY_FILTER );
+    }
+
+    /**
+     * This will set the name of the crypt filter used for the streams.
+     *
+     * @param name The name of a crypt filter in the CF dictionary.
+     */
+    public void setStreamFilterName(String name)
+    {
+        encryptionDictionary.setName( "StmF", name );
+    }
+
+    /**
+     * This will get the name of the crypt filter used for the strings, this is the
+     * StrF entry which is only used with version 4 and 5.
+     *
+     * @return The name of the crypt filter, Identity by default.
+     */
+    public String getStringFilterName()
+    {
+        return encryptionDictionary.getNameAsString( "StrF", IDENTITY_FILTER );
+    }
+
+    /**
+     * This will set the name of the crypt filter used for the strings.
+     *
+     * @param name The name of a crypt filter in the CF dictionary.
+     */
+    public void setStringFilterName(String name)
+    {
+        encryptionDictionary.setName( "StrF", name );
+    }
+
+    /**
+     * This will get the method of a crypt filter, this is the CFM entry of the
+     * filter in the CF dictionary: None, V2 for RC4, AESV2 or AESV3 for AES.
+     *
+     * @param name The name of the crypt filter.
+     *
+     * @return The method of the crypt filter, None for the Identity filter and
+     * null if the crypt filter is not defined.
+     */
+    public String getCryptFilterMethod(String name)
+    {
+        String method = null;
+        if( IDENTITY_FILTER.equals( name ) )
+        {
+            method = "None";
+        }
+        else
+        {
+            COSDictionary filters = (COSDictionary)encryptionDictionary.getDictionaryObject( "CF" );
+            if( filters != null )
+            {
+                COSDictionary filter = (COSDictionary)filters.getDictionaryObject( name );
+                if( filter != null )
+                {
+                    method = filter.getNameAsString( "CFM", "None" );
+                }
+            }
+        }
+        return method;
+    }
+
+    /**
+     * This will add a crypt filter to the CF dictionary.
+     *
+     * @param name The name of the crypt filter.
+     * @param method The method of the crypt filter, V2, AESV2 or AESV3.
+     * @param length The length of the key in bytes.
+     */
+    public void setCryptFilter(String name, String method, int length)
+    {
+        COSDictionary filters = (COSDictionary)encryptionDictionary.getDictionaryObject( "CF" );
+        if( filters == null )
+        {
+            filters = new COSDictionary();
+            encryptionDictionary.setItem( "CF", filters );
+        }
+        COSDictionary filter = new COSDictionary();
+        filter.setName( "Type", "CryptFilter" );
+        filter.setName( "CFM", method );
+        filter.setName( "AuthEvent", "DocOpen" );
+        filter.setInt( "Length", length );
+        filters.setItem( name, filter );
+    }
+
     /**
      * This will set the permissions bit mask.
      *
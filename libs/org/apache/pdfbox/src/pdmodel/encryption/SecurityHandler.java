@@ -19,16 +19,24 @@ package org.apache.pdfbox.pdmodel.encryption;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
@@ -36,8 +44,11 @@ import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.cos.ObjectDecryptor;
+import org.apache.pdfbox.cos.StreamDecryptor;
 import org.apache.pdfbox.encryption.ARCFour;
 import org.apache.pdfbox.exceptions.CryptographyException;
+import org.apache.pdfbox.exceptions.WrappedIOException;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 /**
@@ -59,6 +70,17 @@ public abstract class SecurityHandler
 
     private static final int DEFAULT_KEY_LENGTH = 40;
 
+    //the crypt filter methods
+    private static final int METHOD_NONE = 0;
+    private static final int METHOD_RC4 = 1;
+    private static final int METHOD_AES = 2;
+
+    private static final int AES_BLOCK_SIZE = 16;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] AES_SALT = { (byte)0x73, (byte)0x41, (byte)0x6C, (byte)0x54 };
+
     /**
      * The value of V field of the Encryption dictionary.
      */
@@ -85,10 +107,18 @@ public abstract class SecurityHandler
      */
     protected ARCFour rc4 = new ARCFour();
 
-    private Set objects = new HashSet();
+    //the objects that have been decrypted, used as an identity set because
+    //equal strings in different objects are encrypted with different keys
+    private Map objects = new IdentityHashMap();
 
     private Set potentialSignatures = new HashSet();
 
+    private int streamMethod = METHOD_RC4;
+    private int stringMethod = METHOD_RC4;
+    private boolean encryptMetadata = true;
+
+    private SecureRandom random;
+
     /**
      * The access permission granted to the current user for the document. These
      * permissions are computed during decryption and are in read only mode.
@@ -118,9 +148,69 @@ public abstract class SecurityHandler
         throws CryptographyException, IOException;
 
 
+    /**
+     * This will set up the methods used for the streams and the strings from the
+     * crypt filters of the encryption dictionary, before version 4 everything is
+     * encrypted with RC4.  The version must have been set before calling this method.
+     *
+     * @param dictionary The encryption dictionary of the document.
+     *
+     * @throws CryptographyException If a crypt filter is missing or not supported.
+     */
+    protected void setCryptFilters( PDEncryptionDictionary dictionary ) throws CryptographyException
+    {
+        if( version >= PDEncryptionDictionary.VERSION4_SECURITY_HANDLER )
+        {
+            streamMethod = getCryptFilterMethod( dictionary, dictionary.getStreamFilterName() );
+            stringMethod = getCryptFilterMethod( dictionary, dictionary.getStringFilterName() );
+            encryptMetadata = dictionary.isEncryptMetaData();
+        }
+        else
+        {
+            streamMethod = METHOD_RC4;
+            stringMethod = METHOD_RC4;
+            encryptMetadata = true;
+        }
+    }
+
+    /**
+     * This will tell if the metadata streams are encrypted, as set up by
+     * setCryptFilters.  With revision 4 the key depends on it as well.
+     *
+     * @return false if the EncryptMetadata entry of the crypt filters is false.
+     */
+    protected boolean isEncryptMetadata()
+    {
+        return encryptMetadata;
+    }
+
+    private int getCryptFilterMethod( PDEncryptionDictionary dictionary, String filterName )
+        throws CryptographyException
+    {
+        String method = dictionary.getCryptFilterMethod( filterName );
+        if( method == null )
+        {
+            throw new CryptographyException( "Error: Crypt filter '" + filterName + "' is not defined" );
+        }
+        else if( method.equals( "None" ) )
+        {
+            return METHOD_NONE;
+        }
+        else if( method.equals( "V2" ) )
+        {
+            return METHOD_RC4;
+        }
+        else if( method.equals( "AESV2" ) || method.equals( "AESV3" ) )
+        {
+            return METHOD_AES;
+        }
+        throw new CryptographyException( "Error: Crypt filter method '" + method + "' is not supported" );
+    }
+
     /**
      * This method must be called by an implementation of this class to really proceed
-     * to decryption.
+     * to decryption.  The objects are not decrypted right away but when they are
+     * first loaded, and the data of a stream is decrypted while it is read.
      *
      * @throws IOException If there is an error in the decryption.
      * @throws CryptographyException If there is an error in the decryption.
@@ -142,12 +232,14 @@ public abstract class SecurityHandler
             }
         }
 
-        List allObjects = document.getDocument().getObjects();
-        Iterator objectIter = allObjects.iterator();
-        while( objectIter.hasNext() )
+        //the encryption dictionary itself is never encrypted
+        COSBase encrypt = trailer.getDictionaryObject( COSName.getPDFName( "Encrypt" ) );
+        if( encrypt != null )
         {
-            decryptObject( (COSObject)objectIter.next() );
+            objects.put( encrypt, encrypt );
         }
+
+        document.getDocument().setObjectDecryptor( new LazyDecryptor() );
         document.setEncryptionDictionary( null );
     }
 
@@ -181,18 +273,142 @@ public abstract class SecurityHandler
     public void encryptData(long objectNumber, long genNumber, InputStream data, OutputStream output)
         throws CryptographyException, IOException
     {
-        byte[] newKey = new byte[ encryptionKey.length + 5 ];
+        cryptData( streamMethod, objectNumber, genNumber, data, output, false );
+    }
+
+    /**
+     * Decrypt a set of data.
+     *
+     * @param objectNumber The data object number.
+     * @param genNumber The data generation number.
+     * @param data The data to decrypt.
+     * @param output The output to write the decrypted data to.
+     *
+     * @throws CryptographyException If there is an error during the decryption.
+     * @throws IOException If there is an error reading the data.
+     */
+    public void decryptData(long objectNumber, long genNumber, InputStream data, OutputStream output)
+        throws CryptographyException, IOException
+    {
+        cryptData( streamMethod, objectNumber, genNumber, data, output, true );
+    }
+
+    /**
+     * This will encrypt or decrypt data with one of the crypt filter methods.  RC4
+     * and AES both work on whole buffers, AES through the JCE provider which uses the
+     * AES instructions of the processor when they are available.
+     *
+     * @param method The crypt filter method.
+     * @param objectNumber The data object number.
+     * @param genNumber The data generation number.
+     * @param data The data to process.
+     * @param output The output to write the processed data to.
+     * @param decrypt true to decrypt the data, false to encrypt it.
+     *
+     * @throws CryptographyException If there is an error during the encryption.
+     * @throws IOException If there is an error reading the data.
+     */
+    private void cryptData( int method, long objectNumber, long genNumber, InputStream data,
+        OutputStream output, boolean decrypt ) throws CryptographyException, IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int amountRead = 0;
+        if( method == METHOD_AES )
+        {
+            byte[] key = computeObjectKey( objectNumber, genNumber, true );
+            if( decrypt )
+            {
+                InputStream decrypted = new AESInputStream( data, key );
+                while( (amountRead = decrypted.read( buffer )) != -1 )
+                {
+                    output.write( buffer, 0, amountRead );
+                }
+            }
+            else
+            {
+                try
+                {
+                    //every encrypted data starts with its own random initialization vector
+                    byte[] iv = new byte[AES_BLOCK_SIZE];
+                    if( random == null )
+                    {
+                        random = new SecureRandom();
+                    }
+                    random.nextBytes( iv );
+                    output.write( iv );
+                    Cipher cipher = createAESCipher( "AES/CBC/PKCS5Padding", key, iv, Cipher.ENCRYPT_MODE );
+                    byte[] encrypted = new byte[BUFFER_SIZE + AES_BLOCK_SIZE];
+                    while( (amountRead = data.read( buffer )) != -1 )
+                    {
+                        output.write( encrypted, 0, cipher.update( buffer, 0, amountRead, encrypted, 0 ) );
+                    }
+                    output.write( encrypted, 0, cipher.doFinal( encrypted, 0 ) );
+                }
+                catch( GeneralSecurityException e )
+                {
+                    throw new CryptographyException( e );
+                }
+            }
+        }
+        else if( method == METHOD_RC4 )
+        {
+            rc4.setKey( computeObjectKey( objectNumber, genNumber, false ) );
+            rc4.write( data, output );
+        }
+        else
+        {
+            while( (amountRead = data.read( buffer )) != -1 )
+            {
+                output.write( buffer, 0, amountRead );
+            }
+        }
+        output.flush();
+    }
+
+    private static Cipher createAESCipher( String transformation, byte[] key, byte[] iv, int mode )
+        throws GeneralSecurityException
+    {
+        Cipher cipher = Cipher.getInstance( transformation );
+        cipher.init( mode, new SecretKeySpec( key, "AES" ), new IvParameterSpec( iv ) );
+        return cipher;
+    }
+
+    /**
+     * This will compute the RC4 or AES key of an object from the encryption key.
+     * With AES-256 the encryption key is used for all the objects.
+     *
+     * @param objectNumber The object number.
+     * @param genNumber The generation number.
+     * @param aes true if the key is for AES, false for RC4.
+     *
+     * @return The key for the data of the object.
+     *
+     * @throws CryptographyException If MD5 is not available.
+     */
+    private byte[] computeObjectKey(long objectNumber, long genNumber, boolean aes) throws CryptographyException
+    {
+        if( aes && encryptionKey.length == 32 )
+        {
+            return encryptionKey;
+        }
+        byte[] newKey = new byte[ encryptionKey.length + 5 + (aes ? AES_SALT.length : 0) ];
         System.arraycopy( encryptionKey, 0, newKey, 0, encryptionKey.length );
         //PDF 1.4 reference pg 73
         //step 1
         //we have the reference
 
         //step 2
-        newKey[newKey.length -5] = (byte)(objectNumber & 0xff);
-        newKey[newKey.length -4] = (byte)((objectNumber >> 8) & 0xff);
-        newKey[newKey.length -3] = (byte)((objectNumber >> 16) & 0xff);
-        newKey[newKey.length -2] = (byte)(genNumber & 0xff);
-        newKey[newKey.length -1] = (byte)((genNumber >> 8) & 0xff);
+        int index = encryptionKey.length;
+        newKey[index++] = (byte)(objectNumber & 0xff);
+        newKey[index++] = (byte)((objectNumber >> 8) & 0xff);
+        newKey[index++] = (byte)((objectNumber >> 16) & 0xff);
+        newKey[index++] = (byte)(genNumber & 0xff);
+        newKey[index++] = (byte)((genNumber >> 8) & 0xff);
+        if( aes )
+        {
+            //AESV2 adds the sAlT string to the key
+            System.arraycopy( AES_SALT, 0, newKey, index, AES_SALT.length );
+        }
 
 
         //step 3
@@ -208,14 +424,10 @@ public abstract class SecurityHandler
         }
 
         //step 4
-        int length = Math.min( newKey.length, 16 );
+        int length = Math.min( encryptionKey.length + 5, 16 );
         byte[] finalKey = new byte[ length ];
         System.arraycopy( digestedKey, 0, finalKey, 0, length );
-
-        rc4.setKey( finalKey );
-        rc4.write( data, output );
-        output.flush();
-
+        return finalKey;
     }
 
 
@@ -230,6 +442,10 @@ public abstract class SecurityHandler
     private void decryptObject( COSObject object )
         throws CryptographyException, IOException
     {
+        if( object.getObjectNumber() == null || object.getGenerationNumber() == null )
+        {
+            return;
+        }
         long objNum = object.getObjectNumber().intValue();
         long genNum = object.getGenerationNumber().intValue();
         COSBase base = object.getObject();
@@ -249,9 +465,9 @@ public abstract class SecurityHandler
     private void decrypt( Object obj, long objNum, long genNum )
         throws CryptographyException, IOException
     {
-        if( !objects.contains( obj ) )
+        if( !objects.containsKey( obj ) )
         {
-            objects.add( obj );
+            objects.put( obj, obj );
 
             if( obj instanceof COSString )
             {
@@ -259,7 +475,10 @@ public abstract class SecurityHandler
             }
             else if( obj instanceof COSStream )
             {
-                decryptStream( (COSStream)obj, objNum, genNum );
+                if( !isXRefStream( (COSStream)obj ) )
+                {
+                    prepareStreamDecryption( (COSStream)obj, objNum, genNum );
+                }
             }
             else if( obj instanceof COSDictionary )
             {
@@ -285,12 +504,91 @@ public abstract class SecurityHandler
     public void decryptStream( COSStream stream, long objNum, long genNum )
         throws CryptographyException, IOException
     {
+        if( isXRefStream( stream ) )
+        {
+            return;
+        }
         decryptDictionary( stream, objNum, genNum );
-        InputStream encryptedStream = stream.getFilteredStream();
-        encryptData( objNum,
-                                genNum,
-                                encryptedStream,
-                                stream.createFilteredStream() );
+        if( isEncryptedStream( stream ) )
+        {
+            InputStream encryptedStream = stream.getFilteredStream();
+            decryptData( objNum,
+                         genNum,
+                         encryptedStream,
+                         stream.createFilteredStream() );
+        }
+    }
+
+    /**
+     * This will encrypt the data of a stream, the strings of its dictionary are
+     * encrypted separately with encryptString.
+     *
+     * @param stream The stream to encrypt.
+     * @param objNum The object number.
+     * @param genNum The object generation number.
+     *
+     * @throws CryptographyException If there is an error encrypting the stream.
+     * @throws IOException If there is an error getting the stream data.
+     */
+    public void encryptStream( COSStream stream, long objNum, long genNum )
+        throws CryptographyException, IOException
+    {
+        if( isEncryptedStream( stream ) )
+        {
+            InputStream clearStream = stream.getFilteredStream();
+            encryptData( objNum,
+                         genNum,
+                         clearStream,
+                         stream.createFilteredStream() );
+        }
+    }
+
+    /**
+     * Cross reference streams are never encrypted, not even the strings of their dictionary.
+     */
+    private boolean isXRefStream( COSStream stream )
+    {
+        return "XRef".equals( stream.getNameAsString( COSName.TYPE ) );
+    }
+
+    /**
+     * This will tell if the data of a stream is encrypted, which depends on the crypt
+     * filter of the streams and on the EncryptMetadata entry for the metadata streams.
+     */
+    private boolean isEncryptedStream( COSStream stream )
+    {
+        return streamMethod != METHOD_NONE &&
+            !isXRefStream( stream ) &&
+            (encryptMetadata || !"Metadata".equals( stream.getNameAsString( COSName.TYPE ) ));
+    }
+
+    /**
+     * This will decrypt the dictionary of a stream and set up the decryption of
+     * its data, which is decrypted every time it is read instead of being
+     * rewritten to the scratch file.
+     *
+     * @param stream The stream to decrypt.
+     * @param objNum The object number.
+     * @param genNum The object generation number.
+     *
+     * @throws CryptographyException If there is an error computing the key.
+     * @throws IOException If there is an error decrypting the dictionary.
+     */
+    private void prepareStreamDecryption( COSStream stream, long objNum, long genNum )
+        throws CryptographyException, IOException
+    {
+        decryptDictionary( stream, objNum, genNum );
+        if( isEncryptedStream( stream ) )
+        {
+            if( streamMethod == METHOD_AES )
+            {
+                stream.setDecryptor( new AESStreamDecryptor( computeObjectKey( objNum, genNum, true ) ) );
+            }
+            else
+            {
+                stream.setDecryptor( new RC4StreamDecryptor( computeObjectKey( objNum, genNum, false ) ) );
+            }
+        }
     }
 
     /**
@@ -337,7 +635,27 @@ public abstract class SecurityHandler
     {
         ByteArrayInputStream data = new ByteArrayInputStream( string.getBytes() );
         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        encryptData( objNum, genNum, data, buffer );
+        cryptData( stringMethod, objNum, genNum, data, buffer, true );
+        string.reset();
+        string.append( buffer.toByteArray() );
+    }
+
+    /**
+     * This will encrypt a string.
+     *
+     * @param string the string to encrypt.
+     * @param objNum The object number.
+     * @param genNum The object generation number.
+     *
+     * @throws CryptographyException If an error occurs during encryption.
+     * @throws IOException If an error occurs writing the new string.
+     */
+    public void encryptString( COSString string, long objNum, long genNum )
+        throws CryptographyException, IOException
+    {
+        ByteArrayInputStream data = new ByteArrayInputStream( string.getBytes() );
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        cryptData( stringMethod, objNum, genNum, data, buffer, false );
         string.reset();
         string.append( buffer.toByteArray() );
     }
@@ -391,4 +709,275 @@ public abstract class SecurityHandler
     {
         return currentAccessPermission;
     }
+
+    /**
+     * Decrypts the objects of the document when they are loaded.
+     */
+    private class LazyDecryptor implements ObjectDecryptor
+    {
+        public void decryptObject( COSObject object ) throws IOException
+        {
+            try
+            {
+                SecurityHandler.this.decryptObject( object );
+            }
+            catch( CryptographyException e )
+            {
+                throw new WrappedIOException( e );
+            }
+        }
+    }
+
+    /**
+     * Decrypts the data of a stream with the RC4 key of its object.
+     */
+    private static class RC4StreamDecryptor implements StreamDecryptor
+    {
+        private byte[] key;
+
+        RC4StreamDecryptor( byte[] objectKey )
+        {
+            key = objectKey;
+        }
+
+        public InputStream decrypt( InputStream encrypted )
+        {
+            ARCFour cipher = new ARCFour();
+            cipher.setKey( key );
+            return new RC4InputStream( encrypted, cipher );
+        }
+    }
+
+    /**
+     * A stream that decrypts the data of another stream with RC4.
+     */
+    private static class RC4InputStream extends FilterInputStream
+    {
+        private ARCFour cipher;
+        private byte[] single = new byte[1];
+
+        RC4InputStream( InputStream encrypted, ARCFour rc4Cipher )
+        {
+            super( encrypted );
+            cipher = rc4Cipher;
+        }
+
+        public int read() throws IOException
+        {
+            return read( single, 0, 1 ) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        public int read( byte[] buffer, int offset, int length ) throws IOException
+        {
+            int amountRead = in.read( buffer, offset, length );
+            if( amountRead > 0 )
+            {
+                cipher.process( buffer, offset, amountRead );
+            }
+            return amountRead;
+        }
+
+        public long skip( long n ) throws IOException
+        {
+            //the key stream has to advance over the skipped bytes
+            byte[] buffer = new byte[(int)Math.min( n, 4096 )];
+            long skipped = 0;
+            while( skipped < n )
+            {
+                int amountRead = read( buffer, 0, (int)Math.min( n - skipped, buffer.length ) );
+                if( amountRead <= 0 )
+                {
+                    break;
+                }
+                skipped += amountRead;
+            }
+            return skipped;
+        }
+
+        public boolean markSupported()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Decrypts the data of a stream with the AES key of its object.
+     */
+    private static class AESStreamDecryptor implements StreamDecryptor
+    {
+        private byte[] key;
+
+        AESStreamDecryptor( byte[] objectKey )
+        {
+            key = objectKey;
+        }
+
+        public InputStream decrypt( InputStream encrypted )
+        {
+            return new AESInputStream( encrypted, key );
+        }
+    }
+
+    /**
+     * A stream that decrypts the data of another stream with AES in CBC mode, the
+     * first block of the data is the initialization vector.  The data is read and
+     * decrypted in large blocks.
+     *
+     * The padding is removed here instead of by the cipher, so that a shortened
+     * stream decrypts to a prefix of the data as StreamDecryptor requires: the
+     * last decrypted block is held back until the end of the data, and it is only
+     * unpadded when the data ends on a block boundary.  The bytes of an
+     * incomplete last block are dropped.
+     */
+    private static class AESInputStream extends FilterInputStream
+    {
+        private byte[] key;
+        private Cipher cipher;
+        private byte[] input = new byte[BUFFER_SIZE];
+        private byte[] output = new byte[BUFFER_SIZE + 2 * AES_BLOCK_SIZE];
+        private int outputOffset = 0;
+        private int outputLength = 0;
+        private byte[] lastBlock = new byte[AES_BLOCK_SIZE];
+        private int lastBlockLength = 0;
+        private long inputLength = 0;
+        private boolean finished = false;
+        private byte[] single = new byte[1];
+
+        AESInputStream( InputStream encrypted, byte[] objectKey )
+        {
+            super( encrypted );
+            key = objectKey;
+        }
+
+        public int read() throws IOException
+        {
+            return read( single, 0, 1 ) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        public int read( byte[] buffer, int offset, int length ) throws IOException
+        {
+            while( outputOffset >= outputLength )
+            {
+                if( finished )
+                {
+                    return -1;
+                }
+                fill();
+            }
+            int amount = Math.min( length, outputLength - outputOffset );
+            System.arraycopy( output, outputOffset, buffer, offset, amount );
+            outputOffset += amount;
+            return amount;
+        }
+
+        private void fill() throws IOException
+        {
+            outputOffset = 0;
+            outputLength = 0;
+            try
+            {
+                if( cipher == null )
+                {
+                    byte[] iv = new byte[AES_BLOCK_SIZE];
+                    int ivLength = 0;
+                    int amountRead = 0;
+                    while( ivLength < iv.length &&
+                           (amountRead = in.read( iv, ivLength, iv.length - ivLength )) != -1 )
+                    {
+                        ivLength += amountRead;
+                    }
+                    if( ivLength < iv.length )
+                    {
+                        //there is no data without the initialization vector
+                        finished = true;
+                        return;
+                    }
+                    cipher = createAESCipher( "AES/CBC/NoPadding", key, iv, Cipher.DECRYPT_MODE );
+                }
+                int amountRead = in.read( input );
+                if( amountRead == -1 )
+                {
+                    finished = true;
+                    outputLength = lastBlockLength;
+                    if( lastBlockLength > 0 && inputLength % AES_BLOCK_SIZE == 0 )
+                    {
+                        outputLength -= getPaddingLength( lastBlock );
+                    }
+                    System.arraycopy( lastBlock, 0, output, 0, outputLength );
+                    lastBlockLength = 0;
+                }
+                else
+                {
+                    inputLength += amountRead;
+                    System.arraycopy( lastBlock, 0, output, 0, lastBlockLength );
+                    int decrypted = lastBlockLength + cipher.update( input, 0, amountRead, output, lastBlockLength );
+                    //without padding the cipher only returns whole blocks
+                    lastBlockLength = decrypted == 0 ? 0 : AES_BLOCK_SIZE;
+                    outputLength = decrypted - lastBlockLength;
+                    System.arraycopy( output, outputLength, lastBlock, 0, lastBlockLength );
+                }
+            }
+            catch( GeneralSecurityException e )
+            {
+                throw new WrappedIOException( e );
+            }
+        }
+
+        /**
+         * This will get the number of PKCS#5 padding bytes at the end of the
+         * last block, invalid padding is kept as data.
+         *
+         * @param block The last decrypted block.
+         *
+         * @return The number of bytes to remove.
+         */
+        private static int getPaddingLength( byte[] block )
+        {
+            int padding = block[block.length - 1] & 0xff;
+            if( padding == 0 || padding > block.length )
+            {
+                return 0;
+            }
+            for( int i=block.length - padding; i<block.length; i++ )
+            {
+                if( (block[i] & 0xff) != padding )
+                {
+                    return 0;
+                }
+            }
+            return padding;
+        }
+
+        public int available() throws IOException
+        {
+            //FlateFilter only reads a stream that reports available data, so
+            //the first blocks are decrypted here instead of reporting nothing
+            while( outputOffset >= outputLength && !finished )
+            {
+                fill();
+            }
+            return outputLength - outputOffset;
+        }
+
+        public long skip( long n ) throws IOException
+        {
+            byte[] buffer = new byte[(int)Math.min( n, BUFFER_SIZE )];
+            long skipped = 0;
+            while( skipped < n )
+            {
+                int amountRead = read( buffer, 0, (int)Math.min( n - skipped, buffer.length ) );
+                if( amountRead <= 0 )
+                {
+                    break;
+                }
+                skipped += amountRead;
+            }
+            return skipped;
+        }
+
+        public boolean markSupported()
+        {
+            return false;
+        }
+    }
 }
@@ -44,6 +44,7 @@ public class StandardProtectionPolicy extends ProtectionPolicy
 
     private String userPassword = "";
 
+    private boolean preferAES = false;
 
     /**
      * Creates an new instance of the standard protection policy
@@ -119,4 +120,26 @@ public class StandardProtectionPolicy extends ProtectionPolicy
     {
         this.userPassword = userPass;
     }
+
+    /**
+     * Tell if AES is used instead of RC4 for a 128 bits key.  A 256 bits key
+     * always uses AES.
+     *
+     * @return true If the document is encrypted with AES.
+     */
+    public boolean isPreferAES()
+    {
+        return preferAES;
+    }
+
+    /**
+     * Set if AES is used instead of RC4 for a 128 bits key, which requires
+     * a PDF 1.6 viewer.
+     *
+     * @param aes true to encrypt the document with AES.
+     */
+    public void setPreferAES(boolean aes)
+    {
+        this.preferAES = aes;
+    }
 }
@@ -20,8 +20,14 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSString;
@@ -54,6 +60,12 @@ public class StandardSecurityHandler extends SecurityHandler
 
     private static final int DEFAULT_REVISION = 3;
 
+    //the name of the crypt filter used for the streams and the strings with AES
+    private static final String CRYPT_FILTER = "StdCF";
+
+    //the hash functions of algorithm 2.B, selected by the remainder of a division by 3
+    private static final String[] REVISION6_HASHES = { "SHA-256", "SHA-384", "SHA-512" };
+
     private int revision = DEFAULT_REVISION;
 
     private StandardProtectionPolicy policy;
@@ -101,7 +113,8 @@ public class StandardSecurityHandler extends SecurityHandler
     /**
      * Computes the version number of the StandardSecurityHandler
      * regarding the encryption key length.
-     * See PDF Spec 1.6 p 93
+     * See PDF Spec 1.6 p 93, a 128 bits AES key uses crypt filters
+     * and a 256 bits key is always AES.
      *
      * @return The computed cersion number.
      */
@@ -111,6 +124,14 @@ public class StandardSecurityHandler extends SecurityHandler
         {
             return DEFAULT_VERSION;
         }
+        else if(keyLength == 256)
+        {
+            return 5;
+        }
+        else if(policy.isPreferAES())
+        {
+            return PDEncryptionDictionary.VERSION4_SECURITY_HANDLER;
+        }
         return 2;
     }
 
@@ -123,6 +144,14 @@ public class StandardSecurityHandler extends SecurityHandler
      */
     private int computeRevisionNumber()
     {
+        if(version == 5)
+        {
+            return 6;
+        }
+        if(version == PDEncryptionDictionary.VERSION4_SECURITY_HANDLER)
+        {
+            return 4;
+        }
         if(version == 2
             && !policy.getPermissions().canFillInForm()
             && !policy.getPermissions().canExtractForAccessibility()
@@ -165,6 +194,15 @@ public class StandardSecurityHandler extends SecurityHandler
         int dicRevision = dictionary.getRevision();
         int dicLength = dictionary.getLength()/8;
 
+        version = dictionary.getVersion();
+        setCryptFilters( dictionary );
+        if( version == PDEncryptionDictionary.VERSION4_SECURITY_HANDLER &&
+            "AESV2".equals( dictionary.getCryptFilterMethod( dictionary.getStreamFilterName() ) ) )
+        {
+            //the Length entry is optional with crypt filters, AESV2 always uses 128 bits
+            dicLength = 16;
+        }
+
         //some documents may have not document id, see
         //test\encryption\encrypted_doc_no_id.pdf
         COSArray documentIDArray = document.getDocument().getDocumentID();
@@ -182,6 +220,13 @@ public class StandardSecurityHandler extends SecurityHandler
         byte[] u = dictionary.getUserKey();
         byte[] o = dictionary.getOwnerKey();
 
+        if( dicRevision == 5 || dicRevision == 6 )
+        {
+            decryptDocumentAES256( dictionary, password, u, o, dicPermissions, dicRevision );
+            this.proceedDecryption();
+            return;
+        }
+
         boolean isUserPassword =
             isUserPassword(
                 password.getBytes(),
@@ -257,6 +302,13 @@ public class StandardSecurityHandler extends SecurityHandler
         encryptionDictionary.setVersion(version);
         encryptionDictionary.setRevision(revision);
         encryptionDictionary.setLength(keyLength);
+        if(version >= PDEncryptionDictionary.VERSION4_SECURITY_HANDLER)
+        {
+            encryptionDictionary.setCryptFilter(CRYPT_FILTER, version == 5 ? "AESV3" : "AESV2", keyLength/8);
+            encryptionDictionary.setStreamFilterName(CRYPT_FILTER);
+            encryptionDictionary.setStringFilterName(CRYPT_FILTER);
+        }
+        setCryptFilters(encryptionDictionary);
 
         String ownerPassword = policy.getOwnerPassword();
         String userPassword = policy.getUserPassword();
@@ -307,6 +359,14 @@ public class StandardSecurityHandler extends SecurityHandler
             }
         }
 
+        if( version == 5 )
+        {
+            prepareAES256( encryptionDictionary, ownerPassword, userPassword, permissionInt );
+            document.setEncryptionDictionary( encryptionDictionary );
+            document.getDocument().setEncryptionDictionary(encryptionDictionary.getCOSDictionary());
+            return;
+        }
+
         COSString id = (COSString)idArray.getObject( 0 );
 
         byte[] o = computeOwnerPassword(
@@ -516,6 +576,12 @@ public class StandardSecurityHandler extends SecurityHandler
 
                 //step 5
                 md.update( id );
+
+                //with revision 4 the metadata which is not encrypted changes the key
+                if( encRevision == 4 && !isEncryptMetadata() )
+                {
+                    md.update( new byte[] { (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff } );
+                }
                 byte[] digest = md.digest();
 
                 //step 6
@@ -710,6 +776,234 @@ public class StandardSecurityHandler extends SecurityHandler
         }
 
 
+    /**
+     * Check the password of a document encrypted with AES-256, revision 5 or 6, and
+     * decrypt the file encryption key with the OE or UE entry.
+     *
+     * @param dictionary The encryption dictionary.
+     * @param password The plaintext password.
+     * @param u The u entry of the encryption dictionary.
+     * @param o The o entry of the encryption dictionary.
+     * @param permissions The permissions set in the the PDF.
+     * @param encRevision The revision of the encryption algorithm.
+     *
+     * @throws CryptographyException If the password is wrong or if there is an error with decryption.
+     * @throws IOException If there is an error accessing data.
+     */
+    private void decryptDocumentAES256( PDEncryptionDictionary dictionary, String password,
+        byte[] u, byte[] o, int permissions, int encRevision ) throws CryptographyException, IOException
+    {
+        if( u == null || u.length < 48 || o == null || o.length < 48 )
+        {
+            throw new CryptographyException( "Error: The O and U entries must be 48 bytes long" );
+        }
+        byte[] passwordBytes = truncate127( password.getBytes( "UTF-8" ) );
+        byte[] userKey = new byte[48];
+        System.arraycopy( u, 0, userKey, 0, 48 );
+
+        byte[] intermediateKey = null;
+        byte[] encryptedKey = null;
+        if( arraysEqual( o, computeHash( passwordBytes, o, 32, userKey, encRevision ), 32 ) )
+        {
+            currentAccessPermission = AccessPermission.getOwnerAccessPermission();
+            intermediateKey = computeHash( passwordBytes, o, 40, userKey, encRevision );
+            encryptedKey = dictionary.getOwnerEncryptionKey();
+        }
+        else if( arraysEqual( u, computeHash( passwordBytes, u, 32, new byte[0], encRevision ), 32 ) )
+        {
+            currentAccessPermission = new AccessPermission( permissions );
+            intermediateKey = computeHash( passwordBytes, u, 40, new byte[0], encRevision );
+            encryptedKey = dictionary.getUserEncryptionKey();
+        }
+        else
+        {
+            throw new CryptographyException(
+                "Error: The supplied password does not match either the owner or user password in the document." );
+        }
+        if( encryptedKey == null || encryptedKey.length < 32 )
+        {
+            throw new CryptographyException( "Error: The OE and UE entries must be 32 bytes long" );
+        }
+
+        try
+        {
+            Cipher cipher = Cipher.getInstance( "AES/CBC/NoPadding" );
+            cipher.init( Cipher.DECRYPT_MODE, new SecretKeySpec( intermediateKey, "AES" ),
+                new IvParameterSpec( new byte[16] ) );
+            encryptionKey = cipher.doFinal( encryptedKey, 0, 32 );
+
+            //the Perms entry is an encrypted copy of the permissions
+            byte[] perms = dictionary.getPerms();
+            if( perms != null && perms.length >= 16 )
+            {
+                cipher = Cipher.getInstance( "AES/ECB/NoPadding" );
+                cipher.init( Cipher.DECRYPT_MODE, new SecretKeySpec( encryptionKey, "AES" ) );
+                byte[] decryptedPerms = cipher.doFinal( perms, 0, 16 );
+                int decryptedPermissions = (decryptedPerms[0] & 0xff) | (decryptedPerms[1] & 0xff) << 8 |
+                    (decryptedPerms[2] & 0xff) << 16 | (decryptedPerms[3] & 0xff) << 24;
+                if( decryptedPerms[9] != 'a' || decryptedPerms[10] != 'd' || decryptedPerms[11] != 'b' ||
+                    decryptedPermissions != permissions )
+                {
+                    throw new CryptographyException( "Error: The Perms entry does not match the permissions" );
+                }
+            }
+        }
+        catch( GeneralSecurityException e )
+        {
+            throw new CryptographyException( e );
+        }
+    }
+
+    /**
+     * Compute the U, UE, O, OE and Perms entries of a document encrypted with AES-256
+     * and revision 6, the file encryption key is a random key.
+     *
+     * @param encryptionDictionary The encryption dictionary to fill.
+     * @param ownerPassword The plaintext owner password.
+     * @param userPassword The plaintext user password.
+     * @param permissions The permissions for the document.
+     *
+     * @throws CryptographyException If there is an error with encryption.
+     * @throws IOException If there is an error accessing data.
+     */
+    private void prepareAES256( PDEncryptionDictionary encryptionDictionary, String ownerPassword,
+        String userPassword, int permissions ) throws CryptographyException, IOException
+    {
+        SecureRandom random = new SecureRandom();
+        encryptionKey = new byte[32];
+        random.nextBytes( encryptionKey );
+
+        byte[] ownerBytes = truncate127( ownerPassword.getBytes( "UTF-8" ) );
+        byte[] userBytes = truncate127( userPassword.getBytes( "UTF-8" ) );
+
+        //validation salt and key salt
+        byte[] userSalts = new byte[16];
+        random.nextBytes( userSalts );
+        byte[] u = new byte[48];
+        System.arraycopy( computeHash( userBytes, userSalts, 0, new byte[0], revision ), 0, u, 0, 32 );
+        System.arraycopy( userSalts, 0, u, 32, 16 );
+
+        byte[] ownerSalts = new byte[16];
+        random.nextBytes( ownerSalts );
+        byte[] o = new byte[48];
+        System.arraycopy( computeHash( ownerBytes, ownerSalts, 0, u, revision ), 0, o, 0, 32 );
+        System.arraycopy( ownerSalts, 0, o, 32, 16 );
+
+        try
+        {
+            Cipher cipher = Cipher.getInstance( "AES/CBC/NoPadding" );
+            cipher.init( Cipher.ENCRYPT_MODE,
+                new SecretKeySpec( computeHash( userBytes, userSalts, 8, new byte[0], revision ), "AES" ),
+                new IvParameterSpec( new byte[16] ) );
+            byte[] ue = cipher.doFinal( encryptionKey );
+            cipher.init( Cipher.ENCRYPT_MODE,
+                new SecretKeySpec( computeHash( ownerBytes, ownerSalts, 8, u, revision ), "AES" ),
+                new IvParameterSpec( new byte[16] ) );
+            byte[] oe = cipher.doFinal( encryptionKey );
+
+            byte[] perms = new byte[16];
+            random.nextBytes( perms );
+            perms[0] = (byte)permissions;
+            perms[1] = (byte)(permissions >>> 8);
+            perms[2] = (byte)(permissions >>> 16);
+            perms[3] = (byte)(permissions >>> 24);
+            perms[4] = (byte)0xff;
+            perms[5] = (byte)0xff;
+            perms[6] = (byte)0xff;
+            perms[7] = (byte)0xff;
+            perms[8] = (byte)(isEncryptMetadata() ? 'T' : 'F');
+            perms[9] = (byte)'a';
+            perms[10] = (byte)'d';
+            perms[11] = (byte)'b';
+            cipher = Cipher.getInstance( "AES/ECB/NoPadding" );
+            cipher.init( Cipher.ENCRYPT_MODE, new SecretKeySpec( encryptionKey, "AES" ) );
+
+            encryptionDictionary.setOwnerKey( o );
+            encryptionDictionary.setUserKey( u );
+            encryptionDictionary.setOwnerEncryptionKey( oe );
+            encryptionDictionary.setUserEncryptionKey( ue );
+            encryptionDictionary.setPerms( cipher.doFinal( perms ) );
+        }
+        catch( GeneralSecurityException e )
+        {
+            throw new CryptographyException( e );
+        }
+    }
+
+    /**
+     * This will compute the password hash of revision 5, a SHA-256 digest, or of
+     * revision 6 which is algorithm 2.B of ISO 32000-2.
+     *
+     * @param password The password, at most 127 bytes of UTF-8.
+     * @param salt The array that contains the 8 bytes of salt.
+     * @param saltOffset The offset of the salt in the array.
+     * @param userKey The 48 bytes of the U entry for the owner password, an empty array otherwise.
+     * @param encRevision The revision of the encryption algorithm.
+     *
+     * @return The 32 bytes hash.
+     *
+     * @throws CryptographyException If a digest or AES is not available.
+     */
+    private static byte[] computeHash( byte[] password, byte[] salt, int saltOffset, byte[] userKey, int encRevision )
+        throws CryptographyException
+    {
+        try
+        {
+            MessageDigest md = MessageDigest.getInstance( "SHA-256" );
+            md.update( password );
+            md.update( salt, saltOffset, 8 );
+            md.update( userKey );
+            byte[] k = md.digest();
+            if( encRevision == 6 )
+            {
+                Cipher cipher = Cipher.getInstance( "AES/CBC/NoPadding" );
+                byte[] e = null;
+                for( int round = 0; round < 64 || (e[e.length - 1] & 0xff) > round - 32; round++ )
+                {
+                    int length = password.length + k.length + userKey.length;
+                    byte[] k1 = new byte[ 64 * length ];
+                    for( int i=0; i<64; i++ )
+                    {
+                        System.arraycopy( password, 0, k1, i * length, password.length );
+                        System.arraycopy( k, 0, k1, i * length + password.length, k.length );
+                        System.arraycopy( userKey, 0, k1, i * length + password.length + k.length, userKey.length );
+                    }
+                    cipher.init( Cipher.ENCRYPT_MODE, new SecretKeySpec( k, 0, 16, "AES" ),
+                        new IvParameterSpec( k, 16, 16 ) );
+                    e = cipher.doFinal( k1 );
+                    int sum = 0;
+                    for( int i=0; i<16; i++ )
+                    {
+                        sum += e[i] & 0xff;
+                    }
+                    k = MessageDigest.getInstance( REVISION6_HASHES[ sum % 3 ] ).digest( e );
+                }
+                byte[] hash = new byte[32];
+                System.arraycopy( k, 0, hash, 0, 32 );
+                k = hash;
+            }
+            return k;
+        }
+        catch( GeneralSecurityException e )
+        {
+            throw new CryptographyException( e );
+        }
+    }
+
+    /**
+     * The passwords of revision 5 and 6 are truncated to 127 bytes.
+     */
+    private static byte[] truncate127( byte[] password )
+    {
+        byte[] truncated = password;
+        if( password.length > 127 )
+        {
+            truncated = new byte[127];
+            System.arraycopy( password, 0, truncated, 0, 127 );
+        }
+        return truncated;
+    }
+
     /**
      * This will take the password and truncate or pad it as necessary.
      *
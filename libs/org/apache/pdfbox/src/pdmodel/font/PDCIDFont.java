@@ -21,8 +21,7 @@ import java.awt.geom.AffineTransform;
 
 import java.io.IOException;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
@@ -40,7 +39,12 @@ import org.apache.pdfbox.pdmodel.common.PDRectangle;
  */
 public abstract class PDCIDFont extends PDFont
 {
-    private Map widthCache = new HashMap();
+    /**
+     * The widths of the W array in rows of 256 codes, built the first time a width
+     * is needed.  The codes that are not in the W array have no row or a NaN width.
+     */
+    private float[][] widthTable = null;
+    private float fontHeight = Float.NaN;
 
     /**
      * Constructor.
@@ -145,55 +149,80 @@ public abstract class PDCIDFont extends PDFont
      */
     public float getFontWidth( byte[] c, int offset, int length ) throws IOException
     {
-
         float retval = 0.0f;
         int code = getCodeFromArray( c, offset, length );
-
-        Float widthFloat = (Float)widthCache.get( new Integer( code ) );
-        if( widthFloat == null )
+        if( widthTable == null )
+        {
+            widthTable = createWidthTable();
+        }
+        if( code <= 0xffff )
         {
-            COSArray widths = (COSArray)font.getDictionaryObject( COSName.W );
+            float[] row = widthTable[code >> 8];
+            if( row != null && !Float.isNaN( row[code & 0xff] ) )
+            {
+                retval = row[code & 0xff];
+            }
+        }
+        return retval;
+    }
 
-            if( widths != null )
+    /**
+     * This will read the W array once into a table of the two byte codes, when
+     * the array has the same code more than once the first width is used.
+     *
+     * @return The rows of the widths.
+     */
+    private float[][] createWidthTable()
+    {
+        float[][] table = new float[256][];
+        COSArray widths = (COSArray)font.getDictionaryObject( COSName.W );
+        if( widths != null )
+        {
+            for( int i=0; i<widths.size(); i++ )
             {
-                boolean foundWidth = false;
-                for( int i=0; !foundWidth && i<widths.size(); i++ )
+                COSNumber firstCode = (COSNumber)widths.getObject( i++ );
+                COSBase next = widths.getObject( i );
+                if( next instanceof COSArray )
                 {
-                    COSNumber firstCode = (COSNumber)widths.getObject( i++ );
-                    COSBase next = widths.getObject( i );
-                    if( next instanceof COSArray )
+                    COSArray array = (COSArray)next;
+                    for( int j=0; j<array.size(); j++ )
                     {
-                        COSArray array = (COSArray)next;
-                        if( code >= firstCode.intValue() &&
-                            code < firstCode.intValue() + array.size() )
-                        {
-                            COSNumber rangeWidth =
-                                (COSNumber)array.get( code - firstCode.intValue() );
-                            retval = rangeWidth.floatValue();
-                            foundWidth = true;
-                        }
+                        COSNumber rangeWidth = (COSNumber)array.get( j );
+                        setWidth( table, firstCode.intValue() + j, rangeWidth.floatValue() );
                     }
-                    else
+                }
+                else
+                {
+                    COSNumber secondCode = (COSNumber)next;
+                    i++;
+                    COSNumber rangeWidth = (COSNumber)widths.getObject( i );
+                    int last = Math.min( secondCode.intValue(), 0xffff );
+                    for( int code = firstCode.intValue(); code <= last; code++ )
                     {
-                        COSNumber secondCode = (COSNumber)next;
-                        i++;
-                        COSNumber rangeWidth = (COSNumber)widths.getObject( i );
-                        if( code >= firstCode.intValue() &&
-                            code <= secondCode.intValue() )
-                        {
-                            retval = rangeWidth.floatValue();
-                            foundWidth = true;
-                        }
+                        setWidth( table, code, rangeWidth.floatValue() );
                     }
                 }
-                widthCache.put( new Integer( code ), new Float( retval ) );
             }
         }
-        else
+        return table;
+    }
+
+    private static void setWidth( float[][] table, int code, float width )
+    {
+        if( code >= 0 && code <= 0xffff )
         {
-            retval = widthFloat.floatValue();
+            float[] row = table[code >> 8];
+            if( row == null )
+            {
+                row = new float[256];
+                Arrays.fill( row, Float.NaN );
+                table[code >> 8] = row;
+            }
+            if( Float.isNaN( row[code & 0xff] ) )
+            {
+                row[code & 0xff] = width;
+            }
         }
-        return retval;
     }
 
     /**
@@ -208,6 +237,16 @@ public abstract class PDCIDFont extends PDFont
      * @throws IOException If an error occurs while parsing.
      */
     public float getFontHeight( byte[] c, int offset, int length ) throws IOException
+    {
+        //the height does not depend on the code
+        if( Float.isNaN( fontHeight ) )
+        {
+            fontHeight = computeFontHeight();
+        }
+        return fontHeight;
+    }
+
+    private float computeFontHeight()
     {
         float retval = 0;
         PDFontDescriptor desc = getFontDescriptor();
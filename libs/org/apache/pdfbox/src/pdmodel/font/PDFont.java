@@ -81,6 +81,17 @@ public abstract class PDFont extends LoggingObject implements COSObjectable
      */
     private CMap cmap = null;
 
+    /**
+     * The decoded values of the character codes, filled the first time a code is
+     * encoded.  Single byte codes use a flat table and two byte codes a table of
+     * rows so that CID fonts only allocate the rows they use.
+     */
+    private String[] singleByteCodes = null;
+    private String[][] doubleByteCodes = null;
+
+    //marks a code that was already looked up and has no value
+    private static final String NO_VALUE = new String();
+
     private static Map afmResources = null;
     private static Map cmapObjects = null;
     private static Map afmObjects = null;
@@ -335,7 +346,8 @@ public abstract class PDFont extends LoggingObject implements COSObjectable
     }
 
     /**
-     * This will perform the encoding of a character if needed.
+     * This will perform the encoding of a character if needed.  The value of a one or
+     * two byte code is only computed once, later calls get it from a table.
      *
      * @param c The character to encode.
      * @param offset The offset into the array to get the data
@@ -346,6 +358,64 @@ public abstract class PDFont extends LoggingObject implements COSObjectable
      * @throws IOException If there is an error during the encoding.
      */
     public String encode( byte[] c, int offset, int length ) throws IOException
+    {
+        String[] table = null;
+        int index = 0;
+        if( length == 1 )
+        {
+            if( singleByteCodes == null )
+            {
+                singleByteCodes = new String[256];
+            }
+            table = singleByteCodes;
+            index = c[offset] & 0xff;
+        }
+        else if( length == 2 )
+        {
+            if( doubleByteCodes == null )
+            {
+                doubleByteCodes = new String[256][];
+            }
+            int high = c[offset] & 0xff;
+            table = doubleByteCodes[high];
+            if( table == null )
+            {
+                table = new String[256];
+                doubleByteCodes[high] = table;
+            }
+            index = c[offset+1] & 0xff;
+        }
+        else
+        {
+            return decode( c, offset, length );
+        }
+
+        String retval = table[index];
+        if( retval == null )
+        {
+            retval = decode( c, offset, length );
+            table[index] = retval == null ? NO_VALUE : retval;
+        }
+        else if( retval == NO_VALUE )
+        {
+            retval = null;
+        }
+        return retval;
+    }
+
+    /**
+     * This will look up the value of a character code in the ToUnicode or encoding
+     * cmap of the font or in its encoding.
+     *
+     * @param c The character to encode.
+     * @param offset The offset into the array to get the data
+     * @param length The number of bytes to read.
+     *
+     * @return The value of the encoded character.
+     *
+     * @throws IOException If there is an error during the encoding.
+     */
+    private String decode( byte[] c, int offset, int length ) throws IOException
     {
         String retval = null;
         COSName fontSubtype = (COSName)font.getDictionaryObject( COSName.SUBTYPE );
@@ -507,6 +577,8 @@ public abstract class PDFont extends LoggingObject implements COSObjectable
     {
         font.setItem( COSName.ENCODING, enc );
         fontEncoding = enc;
+        singleByteCodes = null;
+        doubleByteCodes = null;
     }
 
     /**
@@ -21,15 +21,15 @@ import java.awt.geom.AffineTransform;
 
 import java.io.IOException;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 import org.apache.fontbox.afm.FontMetric;
 
 import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSNumber;
-import org.apache.pdfbox.cos.COSInteger;
 import org.apache.pdfbox.encoding.Encoding;
 
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
@@ -43,7 +43,13 @@ import org.apache.pdfbox.pdmodel.common.PDStream;
  */
 public abstract class PDSimpleFont extends PDFont
 {
-    private HashMap mFontSizes = new HashMap(128);
+    /**
+     * The widths and heights of the single byte codes, built the first time
+     * they are needed.  A code is NaN until its value has been computed.
+     */
+    private float[] fontWidths = null;
+    private float[] fontHeights = null;
+
     private float avgFontWidth = 0.0f;
 
     /**
@@ -85,8 +91,28 @@ public abstract class PDSimpleFont extends PDFont
      */
     public float getFontHeight( byte[] c, int offset, int length ) throws IOException
     {
-        float retval = 0;
         int code = getCodeFromArray( c, offset, length );
+        if( code > 255 )
+        {
+            return computeFontHeight( code );
+        }
+        if( fontHeights == null )
+        {
+            fontHeights = new float[256];
+            Arrays.fill( fontHeights, Float.NaN );
+        }
+        float fontHeight = fontHeights[code];
+        if( Float.isNaN( fontHeight ) )
+        {
+            fontHeight = computeFontHeight( code );
+            fontHeights[code] = fontHeight;
+        }
+        return fontHeight;
+    }
+
+    private float computeFontHeight( int code ) throws IOException
+    {
+        float retval = 0;
         FontMetric metric = getAFM();
         if( metric != null )
         {
@@ -142,40 +168,72 @@ public abstract class PDSimpleFont extends PDFont
      */
     public float getFontWidth( byte[] c, int offset, int length ) throws IOException
     {
-        float fontWidth = 0;
         int code = getCodeFromArray( c, offset, length );
+        if( code > 255 )
+        {
+            float fontWidth = getWidthFromDictionary( code );
+            if( Float.isNaN( fontWidth ) )
+            {
+                fontWidth = getFontWidthFromAFMFile( code );
+            }
+            return fontWidth;
+        }
+        if( fontWidths == null )
+        {
+            fontWidths = createWidthTable();
+        }
+        float fontWidth = fontWidths[code];
+        if( Float.isNaN( fontWidth ) )
+        {
+            //the codes that are not in the Widths array get their width from the AFM file
+            fontWidth = getFontWidthFromAFMFile( code );
+            fontWidths[code] = fontWidth;
+        }
+        return fontWidth;
+    }
 
-        Integer codeI = new Integer(code);
-        if (mFontSizes.containsKey(codeI))
+    /**
+     * This will read the Widths array once into a table of the 256 single byte codes.
+     *
+     * @return The widths of the codes, NaN for the codes that are not in the Widths array.
+     */
+    private float[] createWidthTable()
+    {
+        float[] table = new float[256];
+        for( int code=0; code<table.length; code++ )
         {
-            Float fontWidthF = (Float) mFontSizes.get(codeI);
-            fontWidth = fontWidthF.floatValue();
+            table[code] = getWidthFromDictionary( code );
         }
-        else
+        return table;
+    }
+
+    /**
+     * This will get the width of a code from the FirstChar, LastChar and Widths entries.
+     *
+     * @param code The character code.
+     *
+     * @return The width of the code or NaN if it is not in the Widths array.
+     */
+    private float getWidthFromDictionary( int code )
+    {
+        float fontWidth = Float.NaN;
+        //hmm should this be in a subclass??
+        COSBase firstChar = font.getDictionaryObject( COSName.FIRST_CHAR );
+        COSBase lastChar = font.getDictionaryObject( COSName.LAST_CHAR );
+        COSBase widthArray = font.getDictionaryObject( COSName.WIDTHS );
+        if( firstChar instanceof COSNumber && lastChar instanceof COSNumber && widthArray instanceof COSArray )
         {
-            //hmm should this be in a subclass??
-            COSInteger firstChar = (COSInteger)font.getDictionaryObject( COSName.FIRST_CHAR );
-            COSInteger lastChar = (COSInteger)font.getDictionaryObject( COSName.LAST_CHAR );
-            if( firstChar != null && lastChar != null )
+            int first = ((COSNumber)firstChar).intValue();
+            int last = ((COSNumber)lastChar).intValue();
+            COSArray widths = (COSArray)widthArray;
+            if( code >= first && code <= last && code - first < widths.size() )
             {
-                long first = firstChar.intValue();
-                long last = lastChar.intValue();
-                if( code >= first && code <= last && font.getDictionaryObject( COSName.WIDTHS ) != null )
+                COSBase width = widths.getObject( code - first );
+                if( width instanceof COSNumber )
                 {
-                    COSArray widthArray = (COSArray)font.getDictionaryObject( COSName.WIDTHS );
-                    COSNumber fontWidthObject = (COSNumber)widthArray.getObject( (int)(code - first) );
-                    fontWidth = fontWidthObject.floatValue();
+                    fontWidth = ((COSNumber)width).floatValue();
                 }
-                else
-                {
-                    fontWidth = getFontWidthFromAFMFile( code );
-                }
-            }
-            else
-            {
-                fontWidth = getFontWidthFromAFMFile( code );
             }
-            mFontSizes.put(codeI, new Float(fontWidth));
         }
         return fontWidth;
     }
@@ -46,6 +46,7 @@ import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -73,7 +74,7 @@ public class PDTrueTypeFont extends PDSimpleFont
     private Font awtFont = null;
 
     private static Properties externalFonts = new Properties();
-    private static Map loadedExternalFonts = new HashMap();
+    private static Map loadedExternalFonts = Collections.synchronizedMap( new HashMap() );
 
     static
     {
@@ -20,6 +20,7 @@ import java.awt.Color;
 import java.awt.color.ColorSpace;
 import java.io.IOException;
 import java.lang.IllegalArgumentException;
+import java.util.logging.Level;
 import org.apache.pdfbox.exceptions.LoggingObject;
 
 import org.apache.pdfbox.cos.COSArray;
@@ -91,20 +92,23 @@ public class PDColorSpaceInstance extends LoggingObject implements Cloneable
             }
             return retval;
         }catch (java.lang.IllegalArgumentException IAe){
-		String Values = "Color Values: ";
-		for(int i=0; i< components.length; i++){
-			Values = Values + components[i] + "\t";
-		}
-
-	    logger().severe(IAe.toString() + "\n" + Values + "\n at\n" + FullStackTrace(IAe));
+            if( isDiagnosticEnabled( Level.SEVERE ) )
+            {
+                StringBuffer values = new StringBuffer( "Unable to create color, color values:" );
+                for( int i=0; i<components.length; i++ )
+                {
+                    values.append( ' ' ).append( components[i] );
+                }
+                report( Level.SEVERE, values.toString(), IAe );
+            }
 
 	    throw IAe;
         }catch (IOException IOe){
-            logger().severe(IOe.toString() + "\n at\n" + FullStackTrace(IOe));
+            report( Level.SEVERE, "Unable to create color", IOe );
 
             throw IOe;
         }catch (Exception e){
-            logger().severe(e.toString() + "\n at\n" + FullStackTrace(e));
+            report( Level.SEVERE, "Unable to create color", e );
             throw new IOException("Failed to Create Color");
          }
     }
@@ -20,6 +20,7 @@ import java.awt.color.ColorSpace;
 import java.awt.image.ColorModel;
 
 import java.io.IOException;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.cos.COSArray;
 import org.apache.pdfbox.cos.COSBase;
@@ -109,11 +110,11 @@ public class PDSeparation extends PDColorSpace
 
             return CS;
         }catch (IOException IOe){
-            logger().severe(IOe.toString() + "\n at\n" + FullStackTrace(IOe));
+            report( Level.SEVERE, "Unable to create the alternate color space", IOe );
 
             throw IOe;
         }catch (Exception e){
-            logger().severe(e.toString() + "\n at\n" +FullStackTrace(e));
+            report( Level.SEVERE, "Unable to create the alternate color space", e );
             throw new IOException("Failed to Create ColorSpace");
         }
     }
@@ -129,7 +130,10 @@ public class PDSeparation extends PDColorSpace
      */
     public ColorModel createColorModel( int bpc ) throws IOException
     {
-        logger().info("About to create ColorModel for " + getAlternateColorSpace().toString());
+        if( logger().isLoggable( Level.FINE ) )
+        {
+            logger().fine("About to create ColorModel for " + getAlternateColorSpace().toString());
+        }
         return getAlternateColorSpace().createColorModel(bpc);
     }
 
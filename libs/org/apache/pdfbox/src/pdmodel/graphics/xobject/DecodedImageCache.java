@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.pdmodel.graphics.xobject;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.RandomAccess;
+
+/**
+ * A cache for the decoded images of image XObjects, so that an image that is
+ * drawn on many pages is only decoded once.  An image that was decoded at a
+ * lower resolution is cached separately for every subsampling factor.
+ * The cache holds at most a fixed
+ * number of bytes of raster data and evicts the least recently used images
+ * first.  The images are also held through soft references so the garbage
+ * collector can reclaim them when memory gets low, and the streams are held
+ * through weak references so the images of a document that is no longer used
+ * are dropped.  PDDocument.close() drops the images of the document right away.
+ *
+ * This class is safe to use from several threads.
+ *
+ * @version $Revision: 1.0 $
+ */
+public class DecodedImageCache
+{
+    /**
+     * The default number of bytes of raster data that will be cached.
+     */
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    private final LinkedHashMap entries = new LinkedHashMap( 16, 0.75f, true );
+    private final ReferenceQueue collectedStreams = new ReferenceQueue();
+    private final long maxSize;
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * A cached image and the number of bytes of its raster.
+     */
+    private static class Entry
+    {
+        private SoftReference image;
+        private long weight;
+    }
+
+    /**
+     * The key of a cached image, the stream is weakly referenced and compared
+     * by identity.  A key whose stream has been collected only equals itself.
+     */
+    private static class Key extends WeakReference
+    {
+        private int xStep;
+        private int yStep;
+        private int hash;
+
+        private Key( COSStream imageStream, int xSubsampling, int ySubsampling, ReferenceQueue queue )
+        {
+            super( imageStream, queue );
+            xStep = xSubsampling;
+            yStep = ySubsampling;
+            hash = System.identityHashCode( imageStream ) + 31 * xStep + 961 * yStep;
+        }
+
+        public boolean equals( Object other )
+        {
+            if( other == this )
+            {
+                return true;
+            }
+            Object stream = get();
+            return stream != null && other instanceof Key && ((Key)other).get() == stream &&
+                ((Key)other).xStep == xStep && ((Key)other).yStep == yStep;
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * Constructor, uses the default size.
+     */
+    public DecodedImageCache()
+    {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes The maximum number of bytes of raster data to keep.
+     */
+    public DecodedImageCache( long maxBytes )
+    {
+        maxSize = maxBytes;
+    }
+
+    /**
+     * This will get the decoded image of a stream.
+     *
+     * @param stream The image stream to look up.
+     *
+     * @return The decoded image, or null if the stream is not cached.
+     */
+    public BufferedImage get( COSStream stream )
+    {
+        return get( stream, 1, 1 );
+    }
+
+    /**
+     * This will get the decoded image of a stream at a lower resolution.
+     *
+     * @param stream The image stream to look up.
+     * @param xStep The horizontal subsampling factor.
+     * @param yStep The vertical subsampling factor.
+     *
+     * @return The decoded image, or null if the stream is not cached.
+     */
+    public synchronized BufferedImage get( COSStream stream, int xStep, int yStep )
+    {
+        BufferedImage image = null;
+        removeCollected();
+        Key key = new Key( stream, xStep, yStep, null );
+        Entry entry = (Entry)entries.get( key );
+        if( entry != null )
+        {
+            image = (BufferedImage)entry.image.get();
+            if( image == null )
+            {
+                //the garbage collector has reclaimed the image
+                entries.remove( key );
+                size -= entry.weight;
+            }
+        }
+        if( image == null )
+        {
+            misses++;
+        }
+        else
+        {
+            hits++;
+        }
+        return image;
+    }
+
+    /**
+     * This will store the decoded image of a stream.  The image is shared with
+     * everyone who gets it from the cache and must not be modified.
+     *
+     * @param stream The image stream that was decoded.
+     * @param image The decoded image.
+     */
+    public void put( COSStream stream, BufferedImage image )
+    {
+        put( stream, 1, 1, image );
+    }
+
+    /**
+     * This will store the decoded image of a stream at a lower resolution.
+     *
+     * @param stream The image stream that was decoded.
+     * @param xStep The horizontal subsampling factor.
+     * @param yStep The vertical subsampling factor.
+     * @param image The decoded image.
+     */
+    public synchronized void put( COSStream stream, int xStep, int yStep, BufferedImage image )
+    {
+        removeCollected();
+        Key key = new Key( stream, xStep, yStep, collectedStreams );
+        Entry old = (Entry)entries.remove( key );
+        if( old != null )
+        {
+            size -= old.weight;
+        }
+        long weight = getWeight( image );
+        if( weight <= maxSize )
+        {
+            Entry entry = new Entry();
+            entry.image = new SoftReference( image );
+            entry.weight = weight;
+            entries.put( key, entry );
+            size += weight;
+            Iterator iter = entries.entrySet().iterator();
+            while( size > maxSize && iter.hasNext() )
+            {
+                Map.Entry eldest = (Map.Entry)iter.next();
+                size -= ((Entry)eldest.getValue()).weight;
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * This will drop the cached images of a stream at all resolutions, it must
+     * be called when the content of the stream changes.
+     *
+     * @param stream The stream to remove.
+     */
+    public synchronized void remove( COSStream stream )
+    {
+        removeCollected();
+        Iterator iter = entries.entrySet().iterator();
+        while( iter.hasNext() )
+        {
+            Map.Entry next = (Map.Entry)iter.next();
+            if( ((Key)next.getKey()).get() == stream )
+            {
+                size -= ((Entry)next.getValue()).weight;
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * This will drop the cached images of all streams of a document, it is
+     * called when the document is closed.  The streams of a document are
+     * recognized by the scratch file they are stored in.
+     *
+     * @param document The document to remove.
+     */
+    public synchronized void remove( COSDocument document )
+    {
+        removeCollected();
+        RandomAccess scratchFile = document.getScratchFile();
+        if( scratchFile == null )
+        {
+            return;
+        }
+        Iterator iter = entries.entrySet().iterator();
+        while( iter.hasNext() )
+        {
+            Map.Entry next = (Map.Entry)iter.next();
+            COSStream stream = (COSStream)((Key)next.getKey()).get();
+            if( stream == null || stream.getScratchFile() == scratchFile )
+            {
+                size -= ((Entry)next.getValue()).weight;
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * This will drop the images of the streams that have been collected.
+     */
+    private void removeCollected()
+    {
+        Key key;
+        while( (key = (Key)collectedStreams.poll()) != null )
+        {
+            Entry entry = (Entry)entries.remove( key );
+            if( entry != null )
+            {
+                size -= entry.weight;
+            }
+        }
+    }
+
+    /**
+     * This will drop all cached images.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * This will get the number of bytes of raster data currently held, images
+     * that have been reclaimed by the garbage collector are counted until they
+     * are looked up again.
+     *
+     * @return The size of the cached images.
+     */
+    public synchronized long getSize()
+    {
+        removeCollected();
+        return size;
+    }
+
+    /**
+     * This will get the number of lookups that found an image.
+     *
+     * @return The number of cache hits.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * This will get the number of lookups that did not find an image.
+     *
+     * @return The number of cache misses.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private static long getWeight( BufferedImage image )
+    {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long)buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize( buffer.getDataType() ) / 8;
+    }
+}
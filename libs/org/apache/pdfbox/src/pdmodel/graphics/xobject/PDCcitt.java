@@ -23,6 +23,7 @@ import java.io.OutputStream;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 
 import javax.imageio.ImageIO;
 
@@ -102,15 +103,20 @@ public class PDCcitt extends PDXObjectImage
      */
     public BufferedImage getRGBImage() throws IOException
     {
-        BufferedImage retval = null;
+        BufferedImage retval = getCachedImage();
+        if( retval != null )
+        {
+            return retval;
+        }
         
         InputStream tiff = new TiffWrapper(
                 getPDStream().getPartiallyFilteredStream( FAX_FILTERS ),
                 getCOSStream());
         try {
             retval = ImageIO.read(tiff);
+            cacheImage( retval );
     }catch (Exception e){
-        logger().severe(e.toString() + "\n at\n" + FullStackTrace(e));
+        report( Level.SEVERE, "Unable to decode CCITT image", e );
         } finally {
         if (tiff != null)
             tiff.close();
@@ -119,6 +125,36 @@ public class PDCcitt extends PDXObjectImage
         }
     }
 
+    /**
+     * This lets the TIFF reader skip the rows and columns that are not needed.
+     *
+     * {@inheritDoc}
+     */
+    protected BufferedImage getSubsampledImage( int xStep, int yStep ) throws IOException
+    {
+        BufferedImage retval = null;
+        InputStream tiff = new TiffWrapper(
+                getPDStream().getPartiallyFilteredStream( FAX_FILTERS ),
+                getCOSStream());
+        try
+        {
+            retval = readSubsampled( tiff, xStep, yStep );
+        }
+        catch( Exception e )
+        {
+            report( Level.SEVERE, "Unable to decode CCITT image", e );
+        }
+        finally
+        {
+            tiff.close();
+        }
+        if( retval == null )
+        {
+            retval = super.getSubsampledImage( xStep, yStep );
+        }
+        return retval;
+    }
+
     /**
      * This writes a tiff to out.
      *
@@ -130,7 +130,11 @@ public class PDJpeg extends PDXObjectImage
     public BufferedImage getRGBImage() throws IOException
     {   //TODO PKOCH
         File imgFile = null;
-        BufferedImage bi = null;
+        BufferedImage bi = getCachedImage();
+        if( bi != null )
+        {
+            return bi;
+        }
         boolean readError = false;
         try {
             imgFile = File.createTempFile("pdjpeg", ".jpeg");
@@ -171,6 +175,34 @@ public class PDJpeg extends PDXObjectImage
                 imgFile.delete();
             }
         }
+        cacheImage( bi );
+        return bi;
+    }
+
+    /**
+     * This lets the JPEG reader skip the rows and columns that are not needed.
+     * {@inheritDoc}
+     */
+    protected BufferedImage getSubsampledImage( int xStep, int yStep ) throws IOException
+    {
+        BufferedImage bi = null;
+        InputStream data = getPDStream().getPartiallyFilteredStream( DCT_FILTERS );
+        try
+        {
+            bi = readSubsampled( data, xStep, yStep );
+        }
+        catch( IOException e )
+        {
+            //some jpegs can only be read once their header is replaced, see getRGBImage
+        }
+        finally
+        {
+            data.close();
+        }
+        if( bi == null )
+        {
+            bi = super.getSubsampledImage( xStep, yStep );
+        }
         return bi;
     }
 
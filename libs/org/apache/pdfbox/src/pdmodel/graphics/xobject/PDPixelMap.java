@@ -24,6 +24,7 @@ import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.logging.Level;
 
 import javax.imageio.ImageIO;
 
@@ -117,7 +118,38 @@ public class PDPixelMap extends PDXObjectImage
         {
             return image;
         }
+        image = getCachedImage();
+        if( image != null )
+        {
+            return image;
+        }
+        image = createImage( 1, 1 );
+        cacheImage( image );
+        return image;
+    }
 
+    /**
+     * This skips the rows and columns that are not needed while the samples are
+     * copied to the raster.
+     *
+     * {@inheritDoc}
+     */
+    protected BufferedImage getSubsampledImage( int xStep, int yStep ) throws IOException
+    {
+        return createImage( xStep, yStep );
+    }
+
+    /**
+     * This will create the image from the samples of the stream, keeping every
+     * xStep column and every yStep row.
+     *
+     * @param xStep The horizontal subsampling factor.
+     * @param yStep The vertical subsampling factor.
+     *
+     * @return The image or null if it could not be created.
+     */
+    private BufferedImage createImage( int xStep, int yStep )
+    {
     try{
         int width = getWidth();
         int height = getHeight();
@@ -133,7 +165,10 @@ public class PDPixelMap extends PDXObjectImage
     //      Get the ColorModel right
         PDColorSpace colorspace = getColorSpace();
         if (colorspace == null){
-            logger().severe("getColorSpace() returned NULL.  Predictor = " + getPredictor());
+            if( isDiagnosticEnabled( Level.SEVERE ) )
+            {
+                report( Level.SEVERE, "getColorSpace() returned NULL.  Predictor = " + getPredictor(), null );
+            }
             return null;
         }
         
@@ -144,7 +179,38 @@ public class PDPixelMap extends PDXObjectImage
             cm = colorspace.createColorModel( bpc );
         }
         
-        logger().info("ColorModel: " + cm.toString());
+        if( logger().isLoggable( Level.FINE ) )
+        {
+            logger().fine("ColorModel: " + cm.toString());
+        }
+
+        boolean predictorDecoded = predictor < 10 ||
+            filters == null || !(filters.contains( COSName.LZW_DECODE.getName()) ||
+                     filters.contains( COSName.FLATE_DECODE.getName()) );
+        if( (xStep > 1 || yStep > 1) && bpc == 8 && (predictor == 1 || !predictorDecoded) )
+        {
+            //the stream holds the samples, copy the pixels that are kept
+            int bytesPerPixel = cm.createCompatibleWritableRaster( 1, 1 ).getDataBuffer().getSize();
+            WritableRaster raster = cm.createCompatibleWritableRaster(
+                (width + xStep - 1) / xStep, (height + yStep - 1) / yStep );
+            byte[] bufferData = ((DataBufferByte)raster.getDataBuffer()).getData();
+            int rowLength = width * bytesPerPixel;
+            int target = 0;
+            for( int y=0; y<height; y+=yStep )
+            {
+                for( int x=0; x<width; x+=xStep )
+                {
+                    int source = y * rowLength + x * bytesPerPixel;
+                    if( source + bytesPerPixel <= array.length )
+                    {
+                        System.arraycopy( array, source, bufferData, target, bytesPerPixel );
+                    }
+                    target += bytesPerPixel;
+                }
+            }
+            return new BufferedImage(cm, raster, false, null);
+        }
+
         WritableRaster raster = cm.createCompatibleWritableRaster( width, height );
         DataBufferByte buffer = (DataBufferByte)raster.getDataBuffer();
         byte[] bufferData = buffer.getData();
@@ -163,9 +229,7 @@ public class PDPixelMap extends PDXObjectImage
          * by the decoding filter need not match the value used when the data was encoded
          * if they are both greater than or equal to 10."
          */
-        if( predictor < 10 ||
-            filters == null || !(filters.contains( COSName.LZW_DECODE.getName()) ||
-                     filters.contains( COSName.FLATE_DECODE.getName()) ) )
+        if( predictorDecoded )
         {
             PredictorAlgorithm filter = PredictorAlgorithm.getFilter(predictor);
             filter.setWidth(width);
@@ -177,11 +241,15 @@ public class PDPixelMap extends PDXObjectImage
         {
             System.arraycopy( array, 0,bufferData, 0, (array.length<bufferData.length?array.length: bufferData.length) );
         }
-        image = new BufferedImage(cm, raster, false, null);
+        BufferedImage decoded = new BufferedImage(cm, raster, false, null);
+        if( xStep > 1 || yStep > 1 )
+        {
+            decoded = subsample( decoded, xStep, yStep );
+        }
         
-        return image;
+        return decoded;
     } catch (Exception IOe){
-        logger().severe(IOe.toString() + "\n at\n" + FullStackTrace(IOe));
+        report( Level.SEVERE, "Unable to decode image", IOe );
         //A NULL return is caught in pagedrawer.Invoke.process() so don't re-throw.
         //Returning the NULL falls through to Phlip Koch's TODO section.
         return null;
@@ -17,10 +17,18 @@
 package org.apache.pdfbox.pdmodel.graphics.xobject;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.File;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.cos.COSName;
@@ -52,6 +60,13 @@ public abstract class PDXObjectImage extends PDXObject
     
     protected PDGraphicsState graphicsState;
 
+    /**
+     * The cache of decoded images shared by all documents, null if images are
+     * decoded every time they are drawn.  The images of a document are removed
+     * when it is closed.
+     */
+    private static volatile DecodedImageCache imageCache = new DecodedImageCache();
+
     /**
      * Standard constuctor.
      *
@@ -86,6 +101,190 @@ public abstract class PDXObjectImage extends PDXObject
      */
     public abstract BufferedImage getRGBImage() throws IOException;
 
+    /**
+     * Returns an image that is at least as large as the given size, when the image
+     * is much larger than that it is decoded at a lower resolution by skipping
+     * rows and columns.  This is used when the image is drawn at a small size.
+     *
+     * @param targetWidth The width in pixels the image will be drawn at.
+     * @param targetHeight The height in pixels the image will be drawn at.
+     *
+     * @return The image, or null if it could not be decoded.
+     *
+     * @throws IOException If there is an error creating the image.
+     */
+    public BufferedImage getRGBImage( int targetWidth, int targetHeight ) throws IOException
+    {
+        int xStep = getSubsampling( getWidth(), targetWidth );
+        int yStep = getSubsampling( getHeight(), targetHeight );
+        if( xStep == 1 && yStep == 1 )
+        {
+            return getRGBImage();
+        }
+        DecodedImageCache cache = imageCache;
+        boolean cached = cache != null && !getImageMask();
+        BufferedImage image = null;
+        if( cached )
+        {
+            image = cache.get( getCOSStream(), xStep, yStep );
+        }
+        if( image == null )
+        {
+            image = getSubsampledImage( xStep, yStep );
+            if( cached && image != null )
+            {
+                cache.put( getCOSStream(), xStep, yStep, image );
+            }
+        }
+        return image;
+    }
+
+    private static int getSubsampling( int size, int targetSize )
+    {
+        if( size <= 0 || targetSize <= 0 )
+        {
+            return 1;
+        }
+        return Math.max( 1, size / targetSize );
+    }
+
+    /**
+     * This will decode the image keeping every xStep column and every yStep row.
+     * The default implementation decodes the full image and drops the pixels,
+     * subclasses should skip them while decoding.
+     *
+     * @param xStep The horizontal subsampling factor.
+     * @param yStep The vertical subsampling factor.
+     *
+     * @return The subsampled image, or null if it could not be decoded.
+     *
+     * @throws IOException If there is an error creating the image.
+     */
+    protected BufferedImage getSubsampledImage( int xStep, int yStep ) throws IOException
+    {
+        BufferedImage image = getRGBImage();
+        return image == null ? null : subsample( image, xStep, yStep );
+    }
+
+    /**
+     * This will create a copy of an image that keeps every xStep column and every yStep row.
+     *
+     * @param image The image to subsample.
+     * @param xStep The horizontal subsampling factor.
+     * @param yStep The vertical subsampling factor.
+     *
+     * @return The subsampled image.
+     */
+    protected static BufferedImage subsample( BufferedImage image, int xStep, int yStep )
+    {
+        WritableRaster source = image.getRaster();
+        int width = (source.getWidth() + xStep - 1) / xStep;
+        int height = (source.getHeight() + yStep - 1) / yStep;
+        WritableRaster raster = source.createCompatibleWritableRaster( width, height );
+        Object pixel = null;
+        for( int y=0; y<height; y++ )
+        {
+            for( int x=0; x<width; x++ )
+            {
+                pixel = source.getDataElements( x * xStep, y * yStep, pixel );
+                raster.setDataElements( x, y, pixel );
+            }
+        }
+        return new BufferedImage( image.getColorModel(), raster, image.isAlphaPremultiplied(), null );
+    }
+
+    /**
+     * This will read an image with ImageIO and let the reader skip the rows and
+     * columns that are not needed.
+     *
+     * @param input The encoded image.
+     * @param xStep The horizontal subsampling factor.
+     * @param yStep The vertical subsampling factor.
+     *
+     * @return The subsampled image or null if there is no reader for the image.
+     *
+     * @throws IOException If there is an error reading the image.
+     */
+    protected static BufferedImage readSubsampled( InputStream input, int xStep, int yStep ) throws IOException
+    {
+        BufferedImage image = null;
+        ImageInputStream imageInput = ImageIO.createImageInputStream( input );
+        try
+        {
+            Iterator readers = ImageIO.getImageReaders( imageInput );
+            if( readers.hasNext() )
+            {
+                ImageReader reader = (ImageReader)readers.next();
+                try
+                {
+                    reader.setInput( imageInput, true, true );
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling( xStep, yStep, 0, 0 );
+                    image = reader.read( 0, param );
+                }
+                finally
+                {
+                    reader.dispose();
+                }
+            }
+        }
+        finally
+        {
+            imageInput.close();
+        }
+        return image;
+    }
+
+    /**
+     * This will get the cache of decoded images that is shared by all documents.
+     *
+     * @return The image cache or null if images are not cached.
+     */
+    public static DecodedImageCache getImageCache()
+    {
+        return imageCache;
+    }
+
+    /**
+     * This will set the cache of decoded images that is shared by all documents.
+     *
+     * @param cache The new image cache, null to decode the images every time.
+     */
+    public static void setImageCache( DecodedImageCache cache )
+    {
+        imageCache = cache;
+    }
+
+    /**
+     * This will get the decoded image of this XObject from the image cache.
+     * Stencil masks are never cached because their color comes from the graphics state.
+     *
+     * @return The cached image or null if it has to be decoded.
+     */
+    protected BufferedImage getCachedImage()
+    {
+        DecodedImageCache cache = imageCache;
+        if( cache == null || getImageMask() )
+        {
+            return null;
+        }
+        return cache.get( getCOSStream() );
+    }
+
+    /**
+     * This will add the decoded image of this XObject to the image cache.
+     *
+     * @param image The decoded image, it must not be modified afterwards.
+     */
+    protected void cacheImage( BufferedImage image )
+    {
+        DecodedImageCache cache = imageCache;
+        if( cache != null && image != null && !getImageMask() )
+        {
+            cache.put( getCOSStream(), image );
+        }
+    }
+
     /**
      * Writes the Image to out.
      * @param out the OutputStream that the Image is written to.
@@ -147,21 +147,43 @@ public class Matrix implements Cloneable
         Matrix result = new Matrix();
 
         if (b != null && b.single != null) {
-        float[] bMatrix = b.single;
-        float[] resultMatrix = result.single;
-        resultMatrix[0] = single[0] * bMatrix[0] + single[1] * bMatrix[3] + single[2] * bMatrix[6];
-        resultMatrix[1] = single[0] * bMatrix[1] + single[1] * bMatrix[4] + single[2] * bMatrix[7];
-        resultMatrix[2] = single[0] * bMatrix[2] + single[1] * bMatrix[5] + single[2] * bMatrix[8];
-        resultMatrix[3] = single[3] * bMatrix[0] + single[4] * bMatrix[3] + single[5] * bMatrix[6];
-        resultMatrix[4] = single[3] * bMatrix[1] + single[4] * bMatrix[4] + single[5] * bMatrix[7];
-        resultMatrix[5] = single[3] * bMatrix[2] + single[4] * bMatrix[5] + single[5] * bMatrix[8];
-        resultMatrix[6] = single[6] * bMatrix[0] + single[7] * bMatrix[3] + single[8] * bMatrix[6];
-        resultMatrix[7] = single[6] * bMatrix[1] + single[7] * bMatrix[4] + single[8] * bMatrix[7];
-        resultMatrix[8] = single[6] * bMatrix[2] + single[7] * bMatrix[5] + single[8] * bMatrix[8];
+            multiply( b, result );
         }
         return result;
     }
 
+    /**
+     * This will multiply the current matrix with a matrix that is passed in and
+     * store the product in a third matrix, no new matrix is created.  The result
+     * may be this matrix or the matrix that is passed in.
+     *
+     * @param b The matrix to multiply by.
+     * @param result The matrix that will receive the product.
+     */
+    public void multiply( Matrix b, Matrix result )
+    {
+        float[] bMatrix = b.single;
+        float r0 = single[0] * bMatrix[0] + single[1] * bMatrix[3] + single[2] * bMatrix[6];
+        float r1 = single[0] * bMatrix[1] + single[1] * bMatrix[4] + single[2] * bMatrix[7];
+        float r2 = single[0] * bMatrix[2] + single[1] * bMatrix[5] + single[2] * bMatrix[8];
+        float r3 = single[3] * bMatrix[0] + single[4] * bMatrix[3] + single[5] * bMatrix[6];
+        float r4 = single[3] * bMatrix[1] + single[4] * bMatrix[4] + single[5] * bMatrix[7];
+        float r5 = single[3] * bMatrix[2] + single[4] * bMatrix[5] + single[5] * bMatrix[8];
+        float r6 = single[6] * bMatrix[0] + single[7] * bMatrix[3] + single[8] * bMatrix[6];
+        float r7 = single[6] * bMatrix[1] + single[7] * bMatrix[4] + single[8] * bMatrix[7];
+        float r8 = single[6] * bMatrix[2] + single[7] * bMatrix[5] + single[8] * bMatrix[8];
+        float[] resultMatrix = result.single;
+        resultMatrix[0] = r0;
+        resultMatrix[1] = r1;
+        resultMatrix[2] = r2;
+        resultMatrix[3] = r3;
+        resultMatrix[4] = r4;
+        resultMatrix[5] = r5;
+        resultMatrix[6] = r6;
+        resultMatrix[7] = r7;
+        resultMatrix[8] = r8;
+    }
+
     /**
      * Create a new matrix with just the scaling operators.
      *
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * This class will write numbers as the ASCII text used in PDF files without
+ * going through a String or a NumberFormat for the common cases.
+ */
+public class NumberFormatUtil
+{
+    /**
+     * The smallest buffer that can be passed to the methods of this class.
+     */
+    public static final int BUFFER_SIZE = 32;
+
+    /**
+     * The most fraction digits that the fast formatting supports.
+     */
+    public static final int MAX_FRACTION_DIGITS = 10;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_FRACTION_DIGITS + 1];
+    static
+    {
+        POWERS_OF_TEN[0] = 1;
+        for( int i=1; i<POWERS_OF_TEN.length; i++ )
+        {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+        }
+    }
+
+    /**
+     * Values that are this large when scaled are left to NumberFormat.
+     */
+    private static final double MAX_SCALED_VALUE = Long.MAX_VALUE / 2;
+
+    private NumberFormatUtil()
+    {
+        //utility class
+    }
+
+    /**
+     * This will format a decimal number into a buffer, the same way that a NumberFormat
+     * without grouping formats it: no exponent, no trailing zeros and a '.' only
+     * when there are fraction digits.
+     *
+     * @param value The number to format.
+     * @param maxFractionDigits The number of fraction digits to round to, at most MAX_FRACTION_DIGITS.
+     * @param buffer The buffer to write the ASCII characters to, of at least BUFFER_SIZE bytes.
+     *
+     * @return The number of bytes written or -1 if the number is too large for the buffer.
+     */
+    public static int formatDecimal( double value, int maxFractionDigits, byte[] buffer )
+    {
+        if( maxFractionDigits < 0 || maxFractionDigits > MAX_FRACTION_DIGITS ||
+            Double.isNaN( value ) || Double.isInfinite( value ) )
+        {
+            return -1;
+        }
+        double scaledValue = Math.abs( value ) * POWERS_OF_TEN[maxFractionDigits];
+        if( scaledValue >= MAX_SCALED_VALUE )
+        {
+            return -1;
+        }
+        //round half even, like NumberFormat does
+        long scaled = (long)scaledValue;
+        double remainder = scaledValue - scaled;
+        if( remainder > 0.5 || (remainder == 0.5 && (scaled & 1) != 0) )
+        {
+            scaled++;
+        }
+        long integerPart = scaled / POWERS_OF_TEN[maxFractionDigits];
+        long fractionPart = scaled % POWERS_OF_TEN[maxFractionDigits];
+        int fractionDigits = maxFractionDigits;
+        while( fractionDigits > 0 && fractionPart % 10 == 0 )
+        {
+            fractionPart /= 10;
+            fractionDigits--;
+        }
+
+        int length = 0;
+        if( value < 0 && scaled != 0 )
+        {
+            buffer[length++] = '-';
+        }
+        length = appendDigits( integerPart, 1, buffer, length );
+        if( fractionDigits > 0 )
+        {
+            buffer[length++] = '.';
+            length = appendDigits( fractionPart, fractionDigits, buffer, length );
+        }
+        return length;
+    }
+
+    /**
+     * This will format an integer number into a buffer.
+     *
+     * @param value The number to format.
+     * @param buffer The buffer to write the ASCII characters to, of at least BUFFER_SIZE bytes.
+     *
+     * @return The number of bytes written.
+     */
+    public static int formatLong( long value, byte[] buffer )
+    {
+        int length = 0;
+        if( value < 0 )
+        {
+            buffer[length++] = '-';
+            if( value == Long.MIN_VALUE )
+            {
+                //the only value that can not be negated
+                length = appendDigits( -(value / 10), 1, buffer, length );
+                buffer[length++] = (byte)('0' - (value % 10));
+                return length;
+            }
+            value = -value;
+        }
+        return appendDigits( value, 1, buffer, length );
+    }
+
+    /**
+     * This will write a decimal number to a stream.
+     *
+     * @param output The stream to write to.
+     * @param value The number to write.
+     * @param maxFractionDigits The number of fraction digits to round to.
+     * @param buffer A buffer of at least BUFFER_SIZE bytes to format the number in.
+     *
+     * @throws IOException If there is an error writing to the stream.
+     */
+    public static void writeDecimal( OutputStream output, double value, int maxFractionDigits, byte[] buffer )
+        throws IOException
+    {
+        int length = formatDecimal( value, maxFractionDigits, buffer );
+        if( length >= 0 )
+        {
+            output.write( buffer, 0, length );
+        }
+        else
+        {
+            NumberFormat formatDecimal = NumberFormat.getNumberInstance( Locale.US );
+            formatDecimal.setMaximumFractionDigits( maxFractionDigits );
+            formatDecimal.setGroupingUsed( false );
+            output.write( formatDecimal.format( value ).getBytes( "ISO-8859-1" ) );
+        }
+    }
+
+    /**
+     * This will write an integer number to a stream.
+     *
+     * @param output The stream to write to.
+     * @param value The number to write.
+     * @param buffer A buffer of at least BUFFER_SIZE bytes to format the number in.
+     *
+     * @throws IOException If there is an error writing to the stream.
+     */
+    public static void writeLong( OutputStream output, long value, byte[] buffer ) throws IOException
+    {
+        output.write( buffer, 0, formatLong( value, buffer ) );
+    }
+
+    /**
+     * This will append the digits of a positive number, padded with zeros in front.
+     *
+     * @param value The positive number.
+     * @param minDigits The least number of digits to write.
+     * @param buffer The buffer to write to.
+     * @param offset The index in the buffer of the first digit.
+     *
+     * @return The index in the buffer after the last digit.
+     */
+    private static int appendDigits( long value, int minDigits, byte[] buffer, int offset )
+    {
+        int digits = 1;
+        long remaining = value / 10;
+        while( remaining > 0 )
+        {
+            digits++;
+            remaining /= 10;
+        }
+        digits = Math.max( digits, minDigits );
+        int end = offset + digits;
+        for( int i=end-1; i>=offset; i-- )
+        {
+            buffer[i] = (byte)('0' + (value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -17,11 +17,20 @@
 package org.apache.pdfbox.util;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.IIOException;
 import javax.imageio.IIOImage;
@@ -30,10 +39,11 @@ import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
 
-import org.apache.pdfbox.exceptions.InvalidPasswordException;
+import org.apache.pdfbox.exceptions.WrappedIOException;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 
 /**
  * This class will take a pdf document and strip out all of the text and ignore the
@@ -48,6 +58,12 @@ import org.apache.pdfbox.pdmodel.PDPage;
  */
 public class PDFImageWriter extends PDFStreamEngine
 {
+    /**
+     * The number of pixels of one permit of the pixel budget.
+     */
+    private static final long PIXEL_UNIT = 1024;
+
+    private long maxPendingPixels = Runtime.getRuntime().maxMemory() / 16;
 
     /**
      * Instantiate a new PDFImageWriter object.
@@ -72,71 +88,313 @@ public class PDFImageWriter extends PDFStreamEngine
         super( props );
     }
 
+    /**
+     * Converts a range of pages to indexed color images with 144 dpi, using one
+     * thread per available processor.
+     *
+     * @param document The document to convert.
+     * @param imageType The image format, for example "jpg" or "png".
+     * @param password The password of the document, not used.
+     * @param startPage The first page to convert, 1 based.
+     * @param endPage The last page to convert, inclusive.
+     * @param outputPrefix The prefix of the image file names.
+     *
+     * @return true if the images have been written.
+     *
+     * @throws IOException If there is an error drawing or writing the images.
+     */
+    public boolean WriteImage(PDDocument document, String imageType, String password, int startPage, int endPage, String outputPrefix) throws IOException
+    {
+        return writeImage( document, imageType, password, startPage, endPage, outputPrefix,
+            BufferedImage.TYPE_BYTE_INDEXED, 2 * PDPage.DEFAULT_USER_SPACE_UNIT_DPI,
+            Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * This will get the number of pixels that the page images being drawn
+     * and written may have at the same time.
+     *
+     * @return The pixel budget of the page images.
+     */
+    public long getMaxPendingPixels()
+    {
+        return maxPendingPixels;
+    }
+
+    /**
+     * This will set the number of pixels that the page images being drawn and
+     * written may have at the same time, a page with more pixels than this is
+     * converted on its own.  The default is a sixteenth of the maximum heap size,
+     * which is a quarter of the heap for images with four bytes per pixel.
+     *
+     * @param pixels The pixel budget of the page images.
+     */
+    public void setMaxPendingPixels( long pixels )
+    {
+        maxPendingPixels = pixels;
+    }
 
-    public boolean WriteImage(PDDocument document, String imageType, String password, int startPage, int endPage, String outputPrefix) throws IOException {
-	    boolean bSuccess = true;
-	     List pages = document.getDocumentCatalog().getAllPages();
-                for( int i=startPage-1; i<endPage && i<pages.size(); i++ )
+    /**
+     * Converts a range of pages to image files named outputPrefix + page number.
+     * Every page is drawn with its own PageDrawer and written by one of up to
+     * <code>threads</code> background threads, the document is only read while
+     * this is done.  The pages are started in order and only while the pixels of
+     * the pages in progress stay within the budget of getMaxPendingPixels().
+     *
+     * @param document The document to convert.
+     * @param imageFormat The image format, for example "jpg" or "png".
+     * @param password The password of the document, not used.
+     * @param startPage The first page to convert, 1 based.
+     * @param endPage The last page to convert, inclusive.
+     * @param outputPrefix The prefix of the image file names.
+     * @param imageType The BufferedImage type of the images.
+     * @param resolution The resolution of the images in dots per inch.
+     * @param threads The number of threads that draw and encode the images.
+     *
+     * @return true if the images have been written.
+     *
+     * @throws IOException If there is an error drawing or writing the images.
+     */
+    public boolean writeImage(PDDocument document, String imageFormat, String password,
+        int startPage, int endPage, String outputPrefix, int imageType, int resolution, int threads)
+        throws IOException
+    {
+        if( !ImageIO.getImageWritersByFormatName( imageFormat ).hasNext() )
+        {
+            throw new RuntimeException( "Error: no writer found for image type '" + imageFormat + "'" );
+        }
+        //the permits of the semaphore are pixels, which are counted in units
+        //so that a budget larger than an int can be used
+        int budget = toPixelUnits( Math.max( 1, maxPendingPixels ) );
+        Semaphore pendingPixels = new Semaphore( budget );
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, threads ) );
+        List results = new ArrayList();
+        try
+        {
+            List pages = document.getDocumentCatalog().getAllPages();
+            for( int i=startPage-1; i<endPage && i<pages.size(); i++ )
+            {
+                PDPage page = (PDPage)pages.get( i );
+                int units = Math.min( budget, toPixelUnits( getPixelCount( page, resolution ) ) );
+                try
+                {
+                    pendingPixels.acquire( units );
+                }
+                catch( InterruptedException e )
                 {
-                    ImageOutputStream output = null;
-                    ImageWriter imageWriter = null;
-                    try
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException( "Interrupted while writing page " + (i+1) );
+                }
+                boolean submitted = false;
+                try
+                {
+                    String fileName = outputPrefix + (i+1) + "." + imageFormat;
+                    results.add( executor.submit( new PageImageTask( page, imageType, resolution,
+                        imageFormat, fileName, pendingPixels, units ) ) );
+                    submitted = true;
+                }
+                finally
+                {
+                    if( !submitted )
                     {
-                        PDPage page = (PDPage)pages.get( i );
-                        BufferedImage image = page.convertToImage();
-                        String fileName = outputPrefix + (i+1) + "." + imageType;
-                        System.out.println( "Writing:" + fileName );
-                        output = ImageIO.createImageOutputStream( new File( fileName ) );
-
-                        boolean foundWriter = false;
-                        Iterator writerIter = ImageIO.getImageWritersByFormatName( imageType );
-                        while( writerIter.hasNext() && !foundWriter )
-                        {
-                            try
-                            {
-                                imageWriter = (ImageWriter)writerIter.next();
-                                ImageWriteParam writerParams = imageWriter.getDefaultWriteParam();
-                                if(writerParams.canWriteCompressed() )
-                                {
-                                    writerParams.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-                                    writerParams.setCompressionQuality(1.0f);
-                                }
-
-
-                                imageWriter.setOutput( output );
-                                imageWriter.write( null, new IIOImage( image, null, null), writerParams );
-                                foundWriter = true;
-                            }
-                            catch( IIOException io )
-                            {
-                                //ignore exception
-                            }
-                            finally
-                            {
-                                if( imageWriter != null )
-                                {
-                                    imageWriter.dispose();
-                                }
-                            }
-                        }
-                        if( !foundWriter )
-                        {
-				bSuccess=false;
-                            throw new RuntimeException( "Error: no writer found for image type '" + imageType + "'" );
-
-                        }
+                        pendingPixels.release( units );
+                    }
                 }
-		finally
-	       {
-		   if( output != null )
-		   {
-		       output.flush();
-		       output.close();
-		   }
-	       }
             }
-        //}
-	return bSuccess;
-}
+            for( int i=0; i<results.size(); i++ )
+            {
+                waitFor( (Future)results.get( i ) );
+            }
+        }
+        finally
+        {
+            //the tasks that have not started yet don't need to run when a page failed
+            for( int i=0; i<results.size(); i++ )
+            {
+                ((Future)results.get( i )).cancel( false );
+            }
+            executor.shutdown();
+            try
+            {
+                //the document may be closed once this returns
+                executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This will get the number of pixels of the image of a page.
+     *
+     * @param page The page.
+     * @param resolution The resolution of the image in dots per inch.
+     *
+     * @return The number of pixels.
+     */
+    private static long getPixelCount( PDPage page, int resolution )
+    {
+        PDRectangle mBox = page.findMediaBox();
+        float scaling = resolution / (float)PDPage.DEFAULT_USER_SPACE_UNIT_DPI;
+        return (long)Math.round( mBox.getWidth() * scaling ) * Math.round( mBox.getHeight() * scaling );
+    }
+
+    /**
+     * This will convert a number of pixels to semaphore permits, rounded up.
+     *
+     * @param pixels The number of pixels.
+     *
+     * @return The number of permits.
+     */
+    private static int toPixelUnits( long pixels )
+    {
+        return (int)Math.min( Integer.MAX_VALUE, (pixels + PIXEL_UNIT - 1) / PIXEL_UNIT );
+    }
+
+    /**
+     * This will wait until a page image has been written.
+     *
+     * @param result The result of the task writing the image.
+     *
+     * @throws IOException If the image could not be written.
+     */
+    private static void waitFor( Future result ) throws IOException
+    {
+        try
+        {
+            result.get();
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while writing the page images" );
+        }
+        catch( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if( cause instanceof IOException )
+            {
+                throw (IOException)cause;
+            }
+            else if( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException)cause;
+            }
+            else if( cause instanceof Error )
+            {
+                throw (Error)cause;
+            }
+            throw new WrappedIOException( cause );
+        }
+    }
+
+    /**
+     * This will encode an image and write it to a file.
+     *
+     * @param image The image to write.
+     * @param imageFormat The image format, for example "jpg" or "png".
+     * @param fileName The name of the file to write to.
+     *
+     * @throws IOException If there is an error writing the image.
+     */
+    private static void writeImageFile( BufferedImage image, String imageFormat, String fileName )
+        throws IOException
+    {
+        ImageOutputStream output = null;
+        ImageWriter imageWriter = null;
+        try
+        {
+            output = ImageIO.createImageOutputStream( new File( fileName ) );
+
+            boolean foundWriter = false;
+            Iterator writerIter = ImageIO.getImageWritersByFormatName( imageFormat );
+            while( writerIter.hasNext() && !foundWriter )
+            {
+                try
+                {
+                    imageWriter = (ImageWriter)writerIter.next();
+                    ImageWriteParam writerParams = imageWriter.getDefaultWriteParam();
+                    if(writerParams.canWriteCompressed() )
+                    {
+                        writerParams.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                        writerParams.setCompressionQuality(1.0f);
+                    }
+
+
+                    imageWriter.setOutput( output );
+                    imageWriter.write( null, new IIOImage( image, null, null), writerParams );
+                    foundWriter = true;
+                }
+                catch( IIOException io )
+                {
+                    //ignore exception
+                }
+                finally
+                {
+                    if( imageWriter != null )
+                    {
+                        imageWriter.dispose();
+                    }
+                }
+            }
+            if( !foundWriter )
+            {
+                throw new RuntimeException( "Error: no writer found for image type '" + imageFormat + "'" );
+            }
+        }
+        finally
+        {
+            if( output != null )
+            {
+                output.flush();
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Draws one page and writes its image in the background, and gives its
+     * pixels back to the budget when it is done.
+     */
+    private static class PageImageTask implements Callable
+    {
+        private PDPage page;
+        private int imageType;
+        private int resolution;
+        private String imageFormat;
+        private String fileName;
+        private Semaphore pendingPixels;
+        private int pixelUnits;
+
+        PageImageTask( PDPage pdPage, int type, int dpi, String format, String name,
+            Semaphore pending, int units )
+        {
+            page = pdPage;
+            imageType = type;
+            resolution = dpi;
+            imageFormat = format;
+            fileName = name;
+            pendingPixels = pending;
+            pixelUnits = units;
+        }
+
+        public Object call() throws IOException
+        {
+            try
+            {
+                //convertToImage draws with a new PageDrawer every time
+                BufferedImage image = page.convertToImage( imageType, resolution );
+                writeImageFile( image, imageFormat, fileName );
+            }
+            finally
+            {
+                pendingPixels.release( pixelUnits );
+            }
+            return null;
+        }
+    }
 
 }
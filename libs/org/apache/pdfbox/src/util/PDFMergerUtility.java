@@ -16,7 +16,9 @@
  */
 package org.apache.pdfbox.util;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -46,6 +48,8 @@ import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlin
 import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
 import org.apache.pdfbox.pdmodel.interactive.form.PDField;
 import org.apache.pdfbox.pdmodel.interactive.form.PDFieldFactory;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+import org.apache.pdfbox.persistence.util.COSObjectKey;
 
 /**
  * This class will take a list of pdf documents and merge them, saving the result
@@ -56,6 +60,10 @@ import org.apache.pdfbox.pdmodel.interactive.form.PDFieldFactory;
  */
 public class PDFMergerUtility
 {
+    /**
+     * The number of kids of each page tree node written by mergeDocumentsStreaming().
+     */
+    private static final int PAGES_PER_NODE = 32;
 
     private List sources;
     private String destinationFileName;
@@ -153,6 +161,161 @@ public class PDFMergerUtility
         }
     }
 
+    /**
+     * Merge the list of source documents into the destination file without keeping
+     * the merged document in memory.  Each source is loaded in turn and its pages, with
+     * everything they use, are written straight to the destination file with new object
+     * numbers; the source is then closed and forgotten, so the memory needed is that of
+     * the largest source plus a small reference for every page.
+     *
+     * Only the pages and the document information of the first source are merged.
+     * Outlines, forms, names, threads, page labels and other catalog entries that
+     * mergeDocuments() combines are not carried over, use mergeDocuments() when they
+     * are needed.
+     *
+     * @throws IOException If there is an error reading a source or writing the destination.
+     * @throws COSVisitorException If an error occurs while writing the destination file.
+     */
+    public void mergeDocumentsStreaming() throws IOException, COSVisitorException
+    {
+        if (sources == null || sources.size() == 0)
+        {
+            return;
+        }
+        COSWriter writer = null;
+        try
+        {
+            writer = new COSWriter( new BufferedOutputStream( new FileOutputStream( destinationFileName ) ) );
+            COSBase info = null;
+            //the bottom page tree nodes, they are written once the whole tree is known
+            List leaves = new ArrayList();
+            COSDictionary leaf = null;
+            COSArray leafKids = null;
+
+            Iterator sit = sources.iterator();
+            while (sit.hasNext())
+            {
+                File sourceFile = (File) sit.next();
+                PDDocument source = PDDocument.load(sourceFile);
+                try
+                {
+                    if( source.isEncrypted() )
+                    {
+                        throw new IOException( "Error: source PDF is encrypted, can't append encrypted PDF documents." );
+                    }
+                    if( info == null )
+                    {
+                        writer.writeHeader( source.getDocument().getHeaderString() );
+                        COSDictionary srcInfo = source.getDocumentInformation().getDictionary();
+                        COSObjectKey infoKey = writer.reserveObject( srcInfo );
+                        writer.writeObject( srcInfo );
+                        info = writer.createReference( infoKey );
+                    }
+
+                    //give every page its key and its new parent first, so references
+                    //between the pages of the source are written as references
+                    List pages = source.getDocumentCatalog().getAllPages();
+                    for( int i=0; i<pages.size(); i++ )
+                    {
+                        PDPage page = (PDPage)pages.get( i );
+                        if( page.getResources() == null )
+                        {
+                            page.setResources( page.findResources() );
+                        }
+                        page.setCropBox( page.findCropBox() );
+                        page.setMediaBox( page.findMediaBox() );
+                        page.setRotation( page.findRotation() );
+
+                        if( leaf == null || leafKids.size() >= PAGES_PER_NODE )
+                        {
+                            leaf = createPageNode();
+                            leafKids = (COSArray)leaf.getDictionaryObject( COSName.KIDS );
+                            writer.reserveObject( leaf );
+                            leaves.add( leaf );
+                        }
+                        page.getCOSDictionary().setItem( COSName.PARENT, leaf );
+                        COSObjectKey pageKey = writer.reserveObject( page.getCOSDictionary() );
+                        leafKids.add( writer.createReference( pageKey ) );
+                        leaf.setItem( COSName.COUNT, COSInteger.get( leafKids.size() ) );
+                    }
+                    for( int i=0; i<pages.size(); i++ )
+                    {
+                        writer.writeObject( ((PDPage)pages.get( i )).getCOSDictionary() );
+                    }
+                    writer.forgetWrittenObjects();
+                }
+                finally
+                {
+                    source.close();
+                }
+            }
+
+            //build the upper levels of the page tree over the leaves
+            if( leaves.isEmpty() )
+            {
+                leaf = createPageNode();
+                leaf.setItem( COSName.COUNT, COSInteger.get( 0 ) );
+                leaves.add( leaf );
+            }
+            List level = leaves;
+            while( level.size() > 1 )
+            {
+                List parents = new ArrayList();
+                for( int i=0; i<level.size(); i+=PAGES_PER_NODE )
+                {
+                    COSDictionary node = createPageNode();
+                    COSArray kids = (COSArray)node.getDictionaryObject( COSName.KIDS );
+                    long count = 0;
+                    for( int j=i; j<level.size() && j<i+PAGES_PER_NODE; j++ )
+                    {
+                        COSDictionary child = (COSDictionary)level.get( j );
+                        child.setItem( COSName.PARENT, node );
+                        kids.add( child );
+                        count += ((COSNumber)child.getDictionaryObject( COSName.COUNT )).longValue();
+                    }
+                    node.setItem( COSName.COUNT, COSInteger.get( count ) );
+                    parents.add( node );
+                }
+                level = parents;
+            }
+            COSDictionary pagesRoot = (COSDictionary)level.get( 0 );
+            writer.writeObject( pagesRoot );
+            for( int i=0; i<leaves.size(); i++ )
+            {
+                writer.writeObject( (COSDictionary)leaves.get( i ) );
+            }
+
+            COSDictionary catalog = new COSDictionary();
+            catalog.setItem( COSName.TYPE, COSName.CATALOG );
+            catalog.setItem( COSName.PAGES, pagesRoot );
+            writer.writeObject( catalog );
+
+            COSDictionary trailer = new COSDictionary();
+            trailer.setItem( COSName.ROOT, catalog );
+            trailer.setItem( COSName.getPDFName( "Info" ), info );
+            writer.writeTrailer( trailer );
+        }
+        finally
+        {
+            if (writer != null)
+            {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * This will create an empty page tree node.
+     *
+     * @return The new page tree node.
+     */
+    private static COSDictionary createPageNode()
+    {
+        COSDictionary node = new COSDictionary();
+        node.setItem( COSName.TYPE, COSName.PAGES );
+        node.setItem( COSName.KIDS, new COSArray() );
+        return node;
+    }
 
     /**
      * append all pages from source to destination.
@@ -0,0 +1,480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.pdfbox.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of the work done while documents are parsed,
+ * decoded, processed and written.  The metrics are off unless they have been
+ * enabled with {@link #setEnabled(boolean)}; documents that are created while they
+ * are enabled get their own metrics, and everything that is recorded for a
+ * document is added to the aggregate metrics as well.
+ *
+ * The values are grouped by phase, for example the time spent in each filter is
+ * recorded in the {@link #FILTER} group under the name of the filter.  Names are
+ * kept separate from the group so recording a value does not build any strings.
+ * Recording doesn't take any locks, the values are atomic so that many threads
+ * can add to the aggregate metrics at the same time.  A copy of a timer that
+ * is taken while values are recorded may include part of an operation.
+ */
+public class PDFMetrics
+{
+    /**
+     * Parsing the document: "document" and "xref" times, "objects" count.
+     */
+    public static final String PARSE = "parse";
+    /**
+     * Decoding streams: time and decoded bytes by filter name.
+     */
+    public static final String FILTER = "filter";
+    /**
+     * Processing content streams: dispatch time by operator.
+     */
+    public static final String OPERATOR = "operator";
+    /**
+     * Loading the fonts of a resource dictionary: "load" time.
+     */
+    public static final String FONT = "font";
+    /**
+     * The scratch file: "bytesWritten" count.
+     */
+    public static final String SCRATCH = "scratch";
+    /**
+     * Writing the document: "document" time.
+     */
+    public static final String WRITE = "write";
+
+    private static final PDFMetrics AGGREGATE = new PDFMetrics( null );
+
+    private static volatile boolean enabled = false;
+
+    private final PDFMetrics parent;
+    private final ConcurrentMap timers = new ConcurrentHashMap();
+    private final ConcurrentMap counters = new ConcurrentHashMap();
+
+    /**
+     * Constructor, the values are added to the aggregate metrics as well.
+     */
+    public PDFMetrics()
+    {
+        this( AGGREGATE );
+    }
+
+    private PDFMetrics( PDFMetrics parentMetrics )
+    {
+        parent = parentMetrics;
+    }
+
+    /**
+     * This will tell if metrics are recorded for new documents.
+     *
+     * @return true if the metrics are enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * This will enable or disable the metrics for documents that are created
+     * from now on, documents that already exist keep their setting.
+     *
+     * @param enable true to record metrics.
+     */
+    public static void setEnabled( boolean enable )
+    {
+        enabled = enable;
+    }
+
+    /**
+     * This will create the metrics of a new document.
+     *
+     * @return New metrics, or null if the metrics are disabled.
+     */
+    public static PDFMetrics createDocumentMetrics()
+    {
+        return enabled ? new PDFMetrics() : null;
+    }
+
+    /**
+     * This will get the metrics of all documents together.
+     *
+     * @return The aggregate metrics.
+     */
+    public static PDFMetrics getAggregate()
+    {
+        return AGGREGATE;
+    }
+
+    /**
+     * This will record the time that an operation took.
+     *
+     * @param group The group of the value, for example {@link #FILTER}.
+     * @param name The name of the value within the group.
+     * @param nanos The elapsed time in nanoseconds.
+     */
+    public void addTime( String group, String name, long nanos )
+    {
+        TimeRecorder recorder = (TimeRecorder)get( timers, group, name );
+        if( recorder == null )
+        {
+            recorder = (TimeRecorder)putIfAbsent( timers, group, name, new TimeRecorder() );
+        }
+        recorder.add( nanos );
+        if( parent != null )
+        {
+            parent.addTime( group, name, nanos );
+        }
+    }
+
+    /**
+     * This will add to a counter.
+     *
+     * @param group The group of the value, for example {@link #SCRATCH}.
+     * @param name The name of the value within the group.
+     * @param amount The amount to add.
+     */
+    public void addCount( String group, String name, long amount )
+    {
+        AtomicLong counter = (AtomicLong)get( counters, group, name );
+        if( counter == null )
+        {
+            counter = (AtomicLong)putIfAbsent( counters, group, name, new AtomicLong() );
+        }
+        counter.addAndGet( amount );
+        if( parent != null )
+        {
+            parent.addCount( group, name, amount );
+        }
+    }
+
+    /**
+     * This will get a copy of a timer.
+     *
+     * @param group The group of the value.
+     * @param name The name of the value within the group.
+     *
+     * @return The timer, or null if nothing has been recorded.
+     */
+    public Timer getTimer( String group, String name )
+    {
+        TimeRecorder recorder = (TimeRecorder)get( timers, group, name );
+        return recorder == null ? null : recorder.getTimer();
+    }
+
+    /**
+     * This will get the value of a counter.
+     *
+     * @param group The group of the value.
+     * @param name The name of the value within the group.
+     *
+     * @return The value of the counter, 0 if nothing has been counted.
+     */
+    public long getCount( String group, String name )
+    {
+        AtomicLong counter = (AtomicLong)get( counters, group, name );
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * This will get a copy of the timers of a group.
+     *
+     * @param group The group of the timers.
+     *
+     * @return A sorted map from the names to the Timer objects.
+     */
+    public Map getTimers( String group )
+    {
+        Map retval = new TreeMap();
+        Map byName = (Map)timers.get( group );
+        if( byName != null )
+        {
+            Iterator iter = byName.entrySet().iterator();
+            while( iter.hasNext() )
+            {
+                Map.Entry entry = (Map.Entry)iter.next();
+                retval.put( entry.getKey(), ((TimeRecorder)entry.getValue()).getTimer() );
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * This will get the counters of a group.
+     *
+     * @param group The group of the counters.
+     *
+     * @return A sorted map from the names to Long values.
+     */
+    public Map getCounts( String group )
+    {
+        Map retval = new TreeMap();
+        Map byName = (Map)counters.get( group );
+        if( byName != null )
+        {
+            Iterator iter = byName.entrySet().iterator();
+            while( iter.hasNext() )
+            {
+                Map.Entry entry = (Map.Entry)iter.next();
+                retval.put( entry.getKey(), new Long( ((AtomicLong)entry.getValue()).get() ) );
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * This will clear all values of these metrics, the aggregate metrics are not
+     * changed when the metrics of a document are reset.
+     */
+    public void reset()
+    {
+        timers.clear();
+        counters.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        StringBuffer buffer = new StringBuffer();
+        Iterator groups = new TreeMap( timers ).keySet().iterator();
+        while( groups.hasNext() )
+        {
+            String group = (String)groups.next();
+            Iterator iter = getTimers( group ).entrySet().iterator();
+            while( iter.hasNext() )
+            {
+                Map.Entry entry = (Map.Entry)iter.next();
+                buffer.append( group ).append( '.' ).append( entry.getKey() );
+                buffer.append( ' ' ).append( entry.getValue() ).append( '\n' );
+            }
+        }
+        groups = new TreeMap( counters ).keySet().iterator();
+        while( groups.hasNext() )
+        {
+            String group = (String)groups.next();
+            Iterator iter = getCounts( group ).entrySet().iterator();
+            while( iter.hasNext() )
+            {
+                Map.Entry entry = (Map.Entry)iter.next();
+                buffer.append( group ).append( '.' ).append( entry.getKey() );
+                buffer.append( ' ' ).append( entry.getValue() ).append( '\n' );
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static Object get( Map values, String group, String name )
+    {
+        Map byName = (Map)values.get( group );
+        return byName == null ? null : byName.get( name );
+    }
+
+    /**
+     * This will add a value unless another thread has added one first.
+     *
+     * @return The value that is in the map.
+     */
+    private static Object putIfAbsent( ConcurrentMap values, String group, String name, Object value )
+    {
+        ConcurrentMap byName = (ConcurrentMap)values.get( group );
+        if( byName == null )
+        {
+            byName = new ConcurrentHashMap();
+            ConcurrentMap existing = (ConcurrentMap)values.putIfAbsent( group, byName );
+            if( existing != null )
+            {
+                byName = existing;
+            }
+        }
+        Object existing = byName.putIfAbsent( name, value );
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * Records the operations of one timer, every value is updated atomically.
+     */
+    private static class TimeRecorder
+    {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong minNanos = new AtomicLong( Long.MAX_VALUE );
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray( Timer.BUCKETS );
+
+        void add( long nanos )
+        {
+            count.incrementAndGet();
+            totalNanos.addAndGet( nanos );
+            long min;
+            while( nanos < (min = minNanos.get()) && !minNanos.compareAndSet( min, nanos ) )
+            {
+                //another thread changed the minimum, try again
+            }
+            long max;
+            while( nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet( max, nanos ) )
+            {
+                //another thread changed the maximum, try again
+            }
+            buckets.incrementAndGet( Timer.getBucket( nanos ) );
+        }
+
+        Timer getTimer()
+        {
+            Timer timer = new Timer();
+            timer.count = count.get();
+            timer.totalNanos = totalNanos.get();
+            timer.minNanos = minNanos.get();
+            timer.maxNanos = maxNanos.get();
+            for( int i=0; i<Timer.BUCKETS; i++ )
+            {
+                timer.buckets[i] = buckets.get( i );
+            }
+            return timer;
+        }
+    }
+
+    /**
+     * The number of calls and a latency histogram of an operation.  The histogram
+     * has one bucket per power of two microseconds.  A timer is a copy of the
+     * values at the time it was taken.
+     */
+    public static class Timer
+    {
+        /**
+         * The number of histogram buckets, the last one holds everything above
+         * 2^30 microseconds.
+         */
+        public static final int BUCKETS = 32;
+
+        private long count;
+        private long totalNanos;
+        private long minNanos = Long.MAX_VALUE;
+        private long maxNanos;
+        private final long[] buckets = new long[BUCKETS];
+
+        Timer()
+        {
+        }
+
+        /**
+         * This will get the histogram bucket of an operation.
+         *
+         * @param nanos The time of the operation in nanoseconds.
+         *
+         * @return The index of the bucket.
+         */
+        static int getBucket( long nanos )
+        {
+            long micros = nanos / 1000;
+            int bucket = 0;
+            while( micros > 0 && bucket < BUCKETS - 1 )
+            {
+                micros >>= 1;
+                bucket++;
+            }
+            return bucket;
+        }
+
+        /**
+         * @return The number of recorded operations.
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return The total time of all operations in nanoseconds.
+         */
+        public long getTotalNanos()
+        {
+            return totalNanos;
+        }
+
+        /**
+         * @return The shortest time in nanoseconds, 0 if nothing has been recorded.
+         */
+        public long getMinNanos()
+        {
+            return count == 0 ? 0 : minNanos;
+        }
+
+        /**
+         * @return The longest time in nanoseconds.
+         */
+        public long getMaxNanos()
+        {
+            return maxNanos;
+        }
+
+        /**
+         * This will get the number of operations in a histogram bucket.  Bucket 0
+         * holds the operations below one microsecond and bucket i the ones from
+         * 2^(i-1) up to 2^i microseconds.
+         *
+         * @param bucket The index of the bucket.
+         *
+         * @return The number of operations in the bucket.
+         */
+        public long getBucketCount( int bucket )
+        {
+            return buckets[bucket];
+        }
+
+        /**
+         * This will estimate a percentile from the histogram.
+         *
+         * @param percentile The percentile, between 0 and 100.
+         *
+         * @return The upper bound of the bucket holding the percentile in nanoseconds.
+         */
+        public long getPercentileNanos( double percentile )
+        {
+            long rank = (long)Math.ceil( count * percentile / 100 );
+            long seen = 0;
+            for( int i=0; i<BUCKETS; i++ )
+            {
+                seen += buckets[i];
+                if( seen >= rank && seen > 0 )
+                {
+                    return Math.min( (1L << i) * 1000, maxNanos );
+                }
+            }
+            return maxNanos;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public String toString()
+        {
+            return "count=" + count + " total=" + totalNanos / 1000000 + "ms" +
+                " p50=" + getPercentileNanos( 50 ) / 1000 + "us" +
+                " p99=" + getPercentileNanos( 99 ) / 1000 + "us" +
+                " max=" + maxNanos / 1000 + "us";
+        }
+    }
+}
@@ -16,9 +16,8 @@
  */
 package org.apache.pdfbox.util;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class represents an Operator in the content stream.
@@ -29,19 +28,26 @@ import java.util.Map;
 public class PDFOperator
 {
     private String theOperator;
+    private final int opcode;
+    private final boolean inlineImage;
     private byte[] imageData;
     private ImageParameters imageParameters;
 
-    private static Map operators = Collections.synchronizedMap( new HashMap() );
+    //lookups don't lock, so engines on many threads can parse at the same time
+    private static final ConcurrentHashMap operators = new ConcurrentHashMap();
+    private static final AtomicInteger nextOpcode = new AtomicInteger();
 
     /**
      * Constructor.
      *
      * @param aOperator The operator that this object will represent.
+     * @param code The opcode of the operator.
      */
-    private PDFOperator( String aOperator )
+    private PDFOperator( String aOperator, int code )
     {
         theOperator = aOperator;
+        opcode = code;
+        inlineImage = aOperator.equals( "ID" ) || aOperator.equals( "BI" );
         if( aOperator.startsWith( "/" ) )
         {
             throw new RuntimeException( "Operators are not allowed to start with / '" + aOperator + "'" );
@@ -57,25 +63,36 @@ public class PDFOperator
      */
     public static PDFOperator getOperator( String operator )
     {
-        PDFOperator operation = null;
-        if( operator.equals( "ID" ) || operator.equals( "BI" ) )
+        PDFOperator operation = (PDFOperator)operators.get( operator );
+        if( operation == null )
         {
-            //we can't cache the ID operators.
-            operation = new PDFOperator( operator );
-        }
-        else
-        {
-            operation = (PDFOperator)operators.get( operator );
-            if( operation == null )
+            operation = new PDFOperator( operator, nextOpcode.getAndIncrement() );
+            PDFOperator existing = (PDFOperator)operators.putIfAbsent( operator, operation );
+            if( existing != null )
             {
-                operation = new PDFOperator( operator );
-                operators.put( operator, operation );
+                operation = existing;
             }
         }
-
+        if( operation.inlineImage )
+        {
+            //we can't cache the ID operators, they carry the image data.
+            operation = new PDFOperator( operator, operation.opcode );
+        }
         return operation;
     }
 
+    /**
+     * This will get the opcode of this operator.  Every operator keyword gets a
+     * small number when it is first seen, which stays the same for the lifetime of
+     * the class, so it can be used as an index into an array.
+     *
+     * @return The opcode of this operator.
+     */
+    public int getOpcode()
+    {
+        return opcode;
+    }
+
     /**
      * This will get the operation that this operator represents.
      *
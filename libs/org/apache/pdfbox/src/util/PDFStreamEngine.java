@@ -19,18 +19,23 @@ package org.apache.pdfbox.util;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Stack;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.cos.COSObject;
 import org.apache.pdfbox.cos.COSStream;
 import org.apache.pdfbox.exceptions.WrappedIOException;
 import org.apache.pdfbox.exceptions.LoggingObject;
 
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDResources;
 
@@ -57,20 +62,38 @@ public class PDFStreamEngine extends LoggingObject
 
     private Matrix textMatrix = null;
     private Matrix textLineMatrix = null;
+
+    /**
+     * Scratch objects that are reused by processEncodedText so that no
+     * objects are created for every glyph.
+     */
+    private final Matrix initialMatrix = new Matrix();
+    private final Matrix displacementMatrix = new Matrix();
+    private final Matrix scratchMatrix = new Matrix();
+    private final float[] individualWidthsBuffer = new float[2048];
     private Stack graphicsStack = new Stack();
     //private PDResources resources = null;
 
-    private Map operators = new HashMap();
+    //the processors indexed by the opcode of their operator
+    private OperatorProcessor[] processors = new OperatorProcessor[ 64 ];
 
     private Stack streamResourcesStack = new Stack();
 
     private PDPage page;
 
     private Map documentFontCache = new HashMap();
+
+    //the resolved resources of every resource dictionary that has been used,
+    //keyed by the identity of the dictionary so that pages and forms that share
+    //a dictionary only resolve its fonts, colorspaces, xobjects and states once
+    private Map documentResourceCache = new IdentityHashMap();
     
     private int validCharCnt;
     private int totalCharCnt;
 
+    //the operator dispatch and font loading times are recorded here if not null
+    private PDFMetrics metrics = null;
+
     /**
      * This is a simple internal class used by the Stream engine to handle the
      * resources stack.
@@ -130,7 +153,8 @@ public class PDFStreamEngine extends LoggingObject
 
     
     /**
-     * Register a custom operator processor with the engine.
+     * Register a custom operator processor with the engine.  The processor is
+     * bound to this engine, so an instance can't be shared between engines.
      *
      * @param operator The operator as a string.
      * @param op Processor instance.
@@ -138,7 +162,15 @@ public class PDFStreamEngine extends LoggingObject
     public void registerOperatorProcessor( String operator, OperatorProcessor op )
     {
         op.setContext( this );
-        operators.put( operator, op );
+        int opcode = PDFOperator.getOperator( operator ).getOpcode();
+        if( opcode >= processors.length )
+        {
+            OperatorProcessor[] newProcessors =
+                new OperatorProcessor[ Math.max( opcode + 1, processors.length * 2 ) ];
+            System.arraycopy( processors, 0, newProcessors, 0, processors.length );
+            processors = newProcessors;
+        }
+        processors[opcode] = op;
     }
 
     /**
@@ -151,6 +183,7 @@ public class PDFStreamEngine extends LoggingObject
     public void resetEngine()
     {
         documentFontCache.clear();
+        documentResourceCache.clear();
         validCharCnt = 0;
         totalCharCnt = 0;
     }
@@ -190,40 +223,38 @@ public class PDFStreamEngine extends LoggingObject
         page = aPage;
         if( resources != null )
         {
-            StreamResources sr = new StreamResources();
-            sr.fonts = resources.getFonts( documentFontCache );
-            sr.colorSpaces = resources.getColorSpaces();
-            sr.xobjects = resources.getXObjects();
-            sr.graphicsStates = resources.getGraphicsStates();
-            sr.resources = resources;
-            streamResourcesStack.push(sr);
+            streamResourcesStack.push( getStreamResources( resources ) );
         }
         try
         {
+            //the operators are parsed and processed one at a time, only the
+            //operands of the current operator are held in memory.
             List arguments = new ArrayList();
-            List tokens = cosStream.getStreamTokens();
-            if( tokens != null )
+            PDFStreamParser parser = new PDFStreamParser( cosStream );
+            try
             {
-                Iterator iter = tokens.iterator();
-                while( iter.hasNext() )
+                PDFOperator operator = null;
+                while( (operator = parser.nextOperator( arguments )) != null )
                 {
-                    Object next = iter.next();
-                    if( next instanceof COSObject )
+                    for( int i=0; i<arguments.size(); i++ )
                     {
-                        arguments.add( ((COSObject)next).getObject() );
-                    }
-                    else if( next instanceof PDFOperator )
-                    {
-                        processOperator( (PDFOperator)next, arguments );
-                        arguments = new ArrayList();
+                        Object next = arguments.get( i );
+                        if( next instanceof COSObject )
+                        {
+                            arguments.set( i, ((COSObject)next).getObject() );
+                        }
                     }
-                    else
+                    processOperator( operator, arguments );
+                    if( logger().isLoggable( Level.FINE ) )
                     {
-                        arguments.add( next );
+                        logger().fine("operator: " + operator.toString());
                     }
-                    logger().fine("token: " + next.toString());
                 }
             }
+            finally
+            {
+                parser.close();
+            }
         }
         finally
         {
@@ -235,6 +266,43 @@ public class PDFStreamEngine extends LoggingObject
 
     }
 
+    /**
+     * This will get the resolved resources of a resource dictionary, they are
+     * created the first time the dictionary is used and then shared by all the
+     * streams that use the same dictionary until resetEngine is called.
+     *
+     * @param resources The resources of the stream.
+     *
+     * @return The resolved resources.
+     *
+     * @throws IOException If there is an error creating the resources.
+     */
+    private StreamResources getStreamResources( PDResources resources ) throws IOException
+    {
+        StreamResources sr = (StreamResources)documentResourceCache.get( resources.getCOSDictionary() );
+        if( sr == null )
+        {
+            sr = new StreamResources();
+            //the resource dictionaries can be shared with pages that are processed
+            //by other engines at the same time and reading them can add entries.
+            synchronized( resources.getCOSDictionary() )
+            {
+                long start = metrics == null ? 0 : System.nanoTime();
+                sr.fonts = resources.getFonts( documentFontCache );
+                if( metrics != null )
+                {
+                    metrics.addTime( PDFMetrics.FONT, "load", System.nanoTime() - start );
+                }
+                sr.colorSpaces = resources.getColorSpaces();
+                sr.xobjects = resources.getXObjects();
+                sr.graphicsStates = resources.getGraphicsStates();
+            }
+            sr.resources = resources;
+            documentResourceCache.put( resources.getCOSDictionary(), sr );
+        }
+        return sr;
+    }
+
     
     /**
      * A method provided as an event interface to allow a subclass to perform
@@ -296,19 +364,16 @@ public class PDFStreamEngine extends LoggingObject
         
         
         /* Convert textMatrix to display units */
-        Matrix initialMatrix = new Matrix();
-        initialMatrix.setValue(0,0,1);
-        initialMatrix.setValue(0,1,0);
-        initialMatrix.setValue(0,2,0);
-        initialMatrix.setValue(1,0,0);
-        initialMatrix.setValue(1,1,1);
-        initialMatrix.setValue(1,2,0);
-        initialMatrix.setValue(2,0,0);
         initialMatrix.setValue(2,1,riseText);	
-        initialMatrix.setValue(2,2,1);
     
         final Matrix ctm = graphicsState.getCurrentTransformationMatrix();
-        final Matrix textMatrixStDisp = initialMatrix.multiply( textMatrix ).multiply( ctm );
+        final Matrix textMatrixStDisp = new Matrix();
+        initialMatrix.multiply( textMatrix, textMatrixStDisp );
+        textMatrixStDisp.multiply( ctm, textMatrixStDisp );
+
+        //the text matrix is updated in place for every glyph, work on a copy
+        //so a matrix that was handed out by getTextMatrix() does not change.
+        textMatrix = textMatrix.copy();
         
         final float xScaleDisp = textMatrixStDisp.getXScale();
         final float yScaleDisp = textMatrixStDisp.getYScale(); 
@@ -317,7 +382,7 @@ public class PDFStreamEngine extends LoggingObject
         final float wordSpacingDisp = wordSpacingText * xScaleDisp * fontSizeText; 
         
         float maxVerticalDisplacementText = 0;
-        float[] individualWidthsText = new float[2048];
+        float[] individualWidthsText = individualWidthsBuffer;
         StringBuffer stringResult = new StringBuffer(string.length);
         
         int codeLength = 1;
@@ -366,7 +431,9 @@ public class PDFStreamEngine extends LoggingObject
             }
 
             // get the X location before we update the text matrix
-            float xPosBeforeText = initialMatrix.multiply( textMatrix ).multiply( ctm ).getXPosition();
+            initialMatrix.multiply( textMatrix, scratchMatrix );
+            scratchMatrix.multiply( ctm, scratchMatrix );
+            float xPosBeforeText = scratchMatrix.getXPosition();
 
             /* The text matrix gets updated after each glyph is placed.  The updated
              * version will have the X and Y coordinates for the next glyph.
@@ -382,16 +449,17 @@ public class PDFStreamEngine extends LoggingObject
                        *horizontalScalingText;
             float ty = 0;              
             
-            Matrix td = new Matrix();
-            td.setValue( 2, 0, tx );
-            td.setValue( 2, 1, ty );            
+            displacementMatrix.setValue( 2, 0, tx );
+            displacementMatrix.setValue( 2, 1, ty );            
             
-            textMatrix = td.multiply( textMatrix );
+            displacementMatrix.multiply( textMatrix, textMatrix );
 
             // determine the width of this character
             // XXX: Note that if we handled vertical text, we should be using Y here
             
-            float widthText = initialMatrix.multiply( textMatrix ).multiply( ctm ).getXPosition() - xPosBeforeText;
+            initialMatrix.multiply( textMatrix, scratchMatrix );
+            scratchMatrix.multiply( ctm, scratchMatrix );
+            float widthText = scratchMatrix.getXPosition() - xPosBeforeText;
             
             //there are several cases where one character code will
             //output multiple characters.  For example "fi" or a
@@ -427,20 +495,17 @@ public class PDFStreamEngine extends LoggingObject
         
         String resultingString = stringResult.toString();
         
-        if( individualWidthsText.length != resultingString.length() )
-        {
-            float[] tmp = new float[resultingString.length()];
-            System.arraycopy( individualWidthsText, 0, tmp, 0, Math.min( individualWidthsText.length, resultingString.length() ));
-            individualWidthsText = tmp;
-            if( resultingString.equals( "- " ))
-            {
-                //System.out.println( "EQUALS " + individualWidths[0] );
-            }
-        }
+        //copy the widths out of the reused buffer and clear the part that was used
+        int usedWidths = Math.min( individualWidthsBuffer.length, resultingString.length() );
+        individualWidthsText = new float[resultingString.length()];
+        System.arraycopy( individualWidthsBuffer, 0, individualWidthsText, 0, usedWidths );
+        Arrays.fill( individualWidthsBuffer, 0, usedWidths, 0 );
         
         float totalVerticalDisplacementDisp = maxVerticalDisplacementText * fontSizeText * yScaleDisp;
         // convert textMatrix at the end of the string to display units
-        Matrix textMatrixEndDisp = initialMatrix.multiply( textMatrix ).multiply( ctm );
+        Matrix textMatrixEndDisp = new Matrix();
+        initialMatrix.multiply( textMatrix, textMatrixEndDisp );
+        textMatrixEndDisp.multiply( ctm, textMatrixEndDisp );
         
         // process the decoded text
         processTextPosition(
@@ -474,7 +539,7 @@ public class PDFStreamEngine extends LoggingObject
         }
         catch (IOException e)
         {
-            logger().warning (e.toString() + "\n at\n" + FullStackTrace(e));
+            report( Level.WARNING, "Unable to process operator", e, page, null, operation );
         }
     }
 
@@ -488,23 +553,49 @@ public class PDFStreamEngine extends LoggingObject
      */
     protected void processOperator( PDFOperator operator, List arguments ) throws IOException
     {
-        try{
-            String operation = operator.getOperation();
-            OperatorProcessor processor = (OperatorProcessor)operators.get( operation );
-            if( processor != null )
+        PDFMetrics operatorMetrics = metrics;
+        long start = operatorMetrics == null ? 0 : System.nanoTime();
+        int opcode = operator.getOpcode();
+        OperatorProcessor processor = opcode < processors.length ? processors[opcode] : null;
+        if( processor != null )
+        {
+            try
             {
-        processor.setContext(this);
                 processor.process( operator, arguments );
-            }/*else{
-            logger().warning("NULL processor for operation: " + operation);
-        }*/
+            }
+            catch (Exception e)
+            {
+                report( Level.WARNING, "Unable to process operator", e, page, null, operator.getOperation() );
+            }
         }
-        catch (Exception e)
+        if( operatorMetrics != null )
         {
-            logger().warning (e.toString() + "\n at\n" + FullStackTrace(e));
+            operatorMetrics.addTime( PDFMetrics.OPERATOR, operator.getOperation(), System.nanoTime() - start );
         }
     }
 
+    /**
+     * This will get the metrics that the operator dispatch and font loading times
+     * are recorded in.
+     *
+     * @return The metrics, or null if nothing is recorded.
+     */
+    public PDFMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * This will set the metrics that the operator dispatch and font loading times
+     * are recorded in, usually the metrics of the document being processed.
+     *
+     * @param engineMetrics The metrics, or null to not record anything.
+     */
+    public void setMetrics( PDFMetrics engineMetrics )
+    {
+        metrics = engineMetrics;
+    }
+
     /**
      * @return Returns the colorSpaces.
      */
@@ -522,11 +613,16 @@ public class PDFStreamEngine extends LoggingObject
     }
 
     /**
+     * This will set the colorspaces of the stream that is being processed.  The
+     * resolved resources are shared by all streams that use the same resource
+     * dictionary, so they are copied first and the change only applies to the
+     * current stream.
+     *
      * @param value The colorSpaces to set.
      */
     public void setColorSpaces(Map value)
     {
-        ((StreamResources) streamResourcesStack.peek()).colorSpaces = value;
+        getCurrentStreamResources().colorSpaces = value;
     }
     /**
      * @return Returns the fonts.
@@ -536,11 +632,16 @@ public class PDFStreamEngine extends LoggingObject
         return ((StreamResources) streamResourcesStack.peek()).fonts;
     }
     /**
+     * This will set the fonts of the stream that is being processed, the change
+     * only applies to the current stream.
+     *
      * @param value The fonts to set.
+     *
+     * @see #setColorSpaces(Map)
      */
     public void setFonts(Map value)
     {
-        ((StreamResources) streamResourcesStack.peek()).fonts = value;
+        getCurrentStreamResources().fonts = value;
     }
     /**
      * @return Returns the graphicsStack.
@@ -578,11 +679,43 @@ public class PDFStreamEngine extends LoggingObject
         return ((StreamResources) streamResourcesStack.peek()).graphicsStates;
     }
     /**
+     * This will set the graphics states of the stream that is being processed,
+     * the change only applies to the current stream.
+     *
      * @param value The graphicsStates to set.
+     *
+     * @see #setColorSpaces(Map)
      */
     public void setGraphicsStates(Map value)
     {
-        ((StreamResources) streamResourcesStack.peek()).graphicsStates = value;
+        getCurrentStreamResources().graphicsStates = value;
+    }
+
+    /**
+     * This will get the resources of the current stream so they can be changed.
+     * If they are the ones in the resource cache they are replaced on the stack
+     * by a copy, so the other streams that use the same resource dictionary
+     * don't see the change.
+     *
+     * @return The resources of the current stream.
+     */
+    private StreamResources getCurrentStreamResources()
+    {
+        StreamResources sr = (StreamResources)streamResourcesStack.peek();
+        if( sr.resources != null &&
+            documentResourceCache.get( sr.resources.getCOSDictionary() ) == sr )
+        {
+            StreamResources copy = new StreamResources();
+            copy.fonts = sr.fonts;
+            copy.colorSpaces = sr.colorSpaces;
+            copy.xobjects = sr.xobjects;
+            copy.graphicsStates = sr.graphicsStates;
+            copy.resources = sr.resources;
+            streamResourcesStack.pop();
+            streamResourcesStack.push( copy );
+            sr = copy;
+        }
+        return sr;
     }
     /**
      * @return Returns the textLineMatrix.
@@ -649,4 +782,16 @@ public class PDFStreamEngine extends LoggingObject
     {
         return totalCharCnt;
     }
+
+    /**
+     * This will add the character counts of another engine to the counts of
+     * this engine, it is used when pages are processed by several engines.
+     *
+     * @param other The engine to get the counts from.
+     */
+    void addCharacterCounts( PDFStreamEngine other )
+    {
+        validCharCnt += other.validCharCnt;
+        totalCharCnt += other.totalCharCnt;
+    }
 }
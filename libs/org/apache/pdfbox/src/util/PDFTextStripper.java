@@ -27,6 +27,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.pdfbox.cos.COSDocument;
 import org.apache.pdfbox.cos.COSStream;
@@ -67,6 +71,9 @@ public class PDFTextStripper extends PDFStreamEngine
     private boolean suppressDuplicateOverlappingText = true;
     private boolean shouldSeparateByBeads = true;
     private boolean sortByPosition = false;
+    private int threadCount = 1;
+    private ExecutorService executor = null;
+    private Properties operatorProperties;
     
     // We will need to estimate where to add spaces.  
     // These are used to help guess. 
@@ -91,6 +98,10 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     protected Vector charactersByArticle = new Vector();
 
+    /**
+     * The characters that have been shown on the current page, a map from the
+     * character string to a CharacterGrid.
+     */
     private Map characterListMapping = new HashMap();
 
     protected String lineSeparator = System.getProperty("line.separator");
@@ -117,9 +128,7 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     public PDFTextStripper() throws IOException
     {
-        super( ResourceLoader.loadProperties( "Resources/PDFTextStripper.properties", true ) );
-        this.encoding = null;
-        normalize = new TextNormalize(this.encoding);
+        this( ResourceLoader.loadProperties( "Resources/PDFTextStripper.properties", true ), null );
     }
 
 
@@ -135,9 +144,7 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     public PDFTextStripper( Properties props ) throws IOException
     {
-        super( props );
-        this.encoding = null;
-        normalize = new TextNormalize(this.encoding);
+        this( props, null );
     }
     /**
      * Instantiate a new PDFTextStripper object. This object will load properties from
@@ -150,7 +157,24 @@ public class PDFTextStripper extends PDFStreamEngine
      */
     public PDFTextStripper( String encoding ) throws IOException
     {
-        super( ResourceLoader.loadProperties( "Resources/PDFTextStripper.properties", true ));
+        this( ResourceLoader.loadProperties( "Resources/PDFTextStripper.properties", true ), encoding );
+    }
+
+    /**
+     * Instantiate a new PDFTextStripper object with the operator mappings from the
+     * properties object that is passed in and the encoding that the output will be
+     * written in.
+     *
+     * @param props The properties containing the mapping of operators to PDFOperator
+     * classes.
+     * @param encoding The encoding that the output will be written in, or null.
+     *
+     * @throws IOException If there is an error reading the properties.
+     */
+    private PDFTextStripper( Properties props, String encoding ) throws IOException
+    {
+        super( props );
+        operatorProperties = props;
         this.encoding = encoding;
         normalize = new TextNormalize(this.encoding);
     }
@@ -211,6 +235,7 @@ public class PDFTextStripper extends PDFStreamEngine
         currentPageNo = 0;
         document = doc;
         output = outputStream;
+        setMetrics( document.getMetrics() );
         startDocument(document);
 
         if( document.isEncrypted() )
@@ -235,7 +260,15 @@ public class PDFTextStripper extends PDFStreamEngine
             }
         }
 
-        processPages( document.getDocumentCatalog().getAllPages() );
+        List pages = document.getDocumentCatalog().getAllPages();
+        if( threadCount > 1 && pages.size() > 1 )
+        {
+            processPagesInParallel( pages );
+        }
+        else
+        {
+            processPages( pages );
+        }
         endDocument(document);
     }
 
@@ -247,6 +280,31 @@ public class PDFTextStripper extends PDFStreamEngine
      * @throws IOException If there is an error parsing the text.
      */
     protected void processPages( List pages ) throws IOException
+    {
+        findBookmarkPageNumbers( pages );
+
+        Iterator pageIter = pages.iterator();
+        while( pageIter.hasNext() )
+        {
+            PDPage nextPage = (PDPage)pageIter.next();
+            PDStream contentStream = nextPage.getContents();
+            currentPageNo++;
+            if( contentStream != null )
+            {
+                COSStream contents = contentStream.getStream();
+                processPage( nextPage, contents );
+            }
+        }
+    }
+
+    /**
+     * This will resolve the start and end bookmarks to page numbers.
+     *
+     * @param pages The pages object in the document.
+     *
+     * @throws IOException If there is an error finding the bookmark pages.
+     */
+    private void findBookmarkPageNumbers( List pages ) throws IOException
     {
         if( startBookmark != null )
         {
@@ -268,18 +326,290 @@ public class PDFTextStripper extends PDFStreamEngine
             startBookmarkPageNumber = 0;
             endBookmarkPageNumber = 0;
         }
+    }
 
+    /**
+     * This will process the pages on several threads, every thread uses its own
+     * stripper from createPageStripper() and the text of the pages is written
+     * to the output in page order.  If no page stripper can be created the pages
+     * are processed sequentially.  The tasks run on the executor that has been
+     * set, or else on a pool that is created for this call.
+     *
+     * The document is only read while the pages are processed, the page strippers
+     * must not modify it and the document must not be modified by another thread
+     * until writeText returns.
+     *
+     * @param pages The pages object in the document.
+     *
+     * @throws IOException If there is an error parsing the text.
+     */
+    protected void processPagesInParallel( List pages ) throws IOException
+    {
+        PDFTextStripper stripper = createPageStripper();
+        if( stripper == null )
+        {
+            processPages( pages );
+            return;
+        }
+        findBookmarkPageNumbers( pages );
 
-        Iterator pageIter = pages.iterator();
-        while( pageIter.hasNext() )
+        ParallelPages work = new ParallelPages( pages, threadCount * 4 );
+        int workerCount = Math.min( threadCount, pages.size() );
+        ExecutorService pool = executor;
+        if( pool == null )
         {
-            PDPage nextPage = (PDPage)pageIter.next();
-            PDStream contentStream = nextPage.getContents();
-            currentPageNo++;
-            if( contentStream != null )
+            pool = Executors.newFixedThreadPool( workerCount );
+        }
+        PageTask[] tasks = new PageTask[ workerCount ];
+        Future[] results = new Future[ workerCount ];
+        try
+        {
+            for( int i=0; i<workerCount; i++ )
             {
-                COSStream contents = contentStream.getStream();
-                processPage( nextPage, contents );
+                if( i > 0 )
+                {
+                    stripper = createPageStripper();
+                }
+                copySettingsTo( stripper );
+                tasks[i] = new PageTask( stripper, work );
+                results[i] = pool.submit( tasks[i] );
+            }
+            for( int i=0; i<pages.size(); i++ )
+            {
+                String text = work.takeText( i );
+                currentPageNo++;
+                output.write( text );
+            }
+        }
+        finally
+        {
+            //the tasks are waited for even when the text has not been written,
+            //the strippers must not touch the document after this returns.
+            work.stop();
+            for( int i=0; i<workerCount && results[i] != null; i++ )
+            {
+                boolean interrupted = false;
+                boolean done = false;
+                while( !done )
+                {
+                    try
+                    {
+                        results[i].get();
+                        done = true;
+                    }
+                    catch( InterruptedException e )
+                    {
+                        interrupted = true;
+                    }
+                    catch( ExecutionException e )
+                    {
+                        //the tasks report their errors to the pages
+                        done = true;
+                    }
+                }
+                if( interrupted )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                addCharacterCounts( tasks[i].stripper );
+            }
+            if( pool != executor )
+            {
+                pool.shutdown();
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * This will create the stripper that processes pages on one of the threads
+     * when a thread count greater than one is set.  The stripper must not share
+     * any state with this one, the settings of this stripper are copied to it.
+     * The strippers share the document and must only read it, for example they
+     * must not add resources to the pages.  The default implementation returns null for subclasses, which makes them
+     * process the pages sequentially unless they override this method.
+     *
+     * @return A new stripper, or null if pages can't be processed in parallel.
+     *
+     * @throws IOException If there is an error creating the stripper.
+     */
+    protected PDFTextStripper createPageStripper() throws IOException
+    {
+        PDFTextStripper stripper = null;
+        if( getClass() == PDFTextStripper.class )
+        {
+            stripper = new PDFTextStripper( operatorProperties, encoding );
+        }
+        return stripper;
+    }
+
+    /**
+     * This will copy the extraction settings to a stripper for a worker thread.
+     *
+     * @param stripper The stripper to configure.
+     */
+    private void copySettingsTo( PDFTextStripper stripper )
+    {
+        stripper.document = document;
+        stripper.setMetrics( getMetrics() );
+        stripper.startPage = startPage;
+        stripper.endPage = endPage;
+        stripper.startBookmarkPageNumber = startBookmarkPageNumber;
+        stripper.endBookmarkPageNumber = endBookmarkPageNumber;
+        stripper.suppressDuplicateOverlappingText = suppressDuplicateOverlappingText;
+        stripper.shouldSeparateByBeads = shouldSeparateByBeads;
+        stripper.sortByPosition = sortByPosition;
+        stripper.spacingTolerance = spacingTolerance;
+        stripper.averageCharTolerance = averageCharTolerance;
+        stripper.lineSeparator = lineSeparator;
+        stripper.pageSeparator = pageSeparator;
+        stripper.wordSeparator = wordSeparator;
+    }
+
+    /**
+     * The pages that are processed in parallel, it hands out the pages to the
+     * workers and collects the text of every page.  Workers can't get more than
+     * a fixed number of pages ahead of the page that is written next.
+     */
+    private static class ParallelPages
+    {
+        private List pages;
+        private String[] texts;
+        private int window;
+        private int nextPage = 0;
+        private int nextWritten = 0;
+        private boolean stopped = false;
+        private Throwable error = null;
+
+        ParallelPages( List pageList, int maxPagesAhead )
+        {
+            pages = pageList;
+            texts = new String[ pages.size() ];
+            window = maxPagesAhead;
+        }
+
+        /**
+         * This will get the index of the next page to process.
+         *
+         * @return The page index, or -1 if there is nothing left to do.
+         */
+        synchronized int nextPage()
+        {
+            while( !stopped && nextPage < pages.size() && nextPage >= nextWritten + window )
+            {
+                try
+                {
+                    wait();
+                }
+                catch( InterruptedException e )
+                {
+                    stopped = true;
+                }
+            }
+            if( stopped || nextPage >= pages.size() )
+            {
+                return -1;
+            }
+            return nextPage++;
+        }
+
+        synchronized void setText( int index, String text )
+        {
+            texts[index] = text;
+            notifyAll();
+        }
+
+        synchronized void setError( Throwable t )
+        {
+            if( error == null )
+            {
+                error = t;
+            }
+            stopped = true;
+            notifyAll();
+        }
+
+        synchronized void stop()
+        {
+            stopped = true;
+            notifyAll();
+        }
+
+        /**
+         * This will wait for the text of a page and release it.
+         *
+         * @param index The index of the page.
+         *
+         * @return The text of the page.
+         *
+         * @throws IOException If processing a page failed.
+         */
+        synchronized String takeText( int index ) throws IOException
+        {
+            while( texts[index] == null && error == null )
+            {
+                try
+                {
+                    wait();
+                }
+                catch( InterruptedException e )
+                {
+                    throw new WrappedIOException( e );
+                }
+            }
+            if( error != null )
+            {
+                if( error instanceof IOException )
+                {
+                    throw (IOException)error;
+                }
+                throw new WrappedIOException( error );
+            }
+            String text = texts[index];
+            texts[index] = null;
+            nextWritten = index + 1;
+            notifyAll();
+            return text;
+        }
+    }
+
+    /**
+     * A task that processes pages with its own stripper until there are no
+     * pages left.
+     */
+    private static class PageTask implements Runnable
+    {
+        private PDFTextStripper stripper;
+        private ParallelPages work;
+
+        PageTask( PDFTextStripper pageStripper, ParallelPages parallelPages )
+        {
+            stripper = pageStripper;
+            work = parallelPages;
+        }
+
+        public void run()
+        {
+            try
+            {
+                int index;
+                while( (index = work.nextPage()) != -1 )
+                {
+                    PDPage page = (PDPage)work.pages.get( index );
+                    StringWriter pageOutput = new StringWriter();
+                    stripper.output = pageOutput;
+                    stripper.currentPageNo = index + 1;
+                    PDStream contentStream = page.getContents();
+                    if( contentStream != null )
+                    {
+                        stripper.processPage( page, contentStream.getStream() );
+                    }
+                    work.setText( index, pageOutput.toString() );
+                }
+            }
+            catch( Throwable t )
+            {
+                work.setError( t );
             }
         }
     }
@@ -769,10 +1099,10 @@ public class PDFTextStripper extends PDFStreamEngine
             String textCharacter = text.getCharacter();
             float textX = text.getX();
             float textY = text.getY();
-            List sameTextCharacters = (List)characterListMapping.get( textCharacter );
+            CharacterGrid sameTextCharacters = (CharacterGrid)characterListMapping.get( textCharacter );
             if( sameTextCharacters == null )
             {
-                sameTextCharacters = new ArrayList();
+                sameTextCharacters = new CharacterGrid();
                 characterListMapping.put( textCharacter, sameTextCharacters );
             }
 
@@ -787,26 +1117,8 @@ public class PDFTextStripper extends PDFStreamEngine
             // an amount to allow for kerning (a percentage of the width of the last
             // character).
             //
-            boolean suppressCharacter = false;
             float tolerance = (text.getWidth()/textCharacter.length())/3.0f;
-            for( int i=0; i<sameTextCharacters.size() && textCharacter != null; i++ )
-            {
-                TextPosition character = (TextPosition)sameTextCharacters.get( i );
-                String charCharacter = character.getCharacter();
-                float charX = character.getX();
-                float charY = character.getY();
-                //only want to suppress
-
-                if( charCharacter != null &&
-                        //charCharacter.equals( textCharacter ) &&
-                        within( charX, textX, tolerance ) &&
-                        within( charY,
-                                textY,
-                                tolerance ) )
-                {
-                    suppressCharacter = true;
-                }
-            }
+            boolean suppressCharacter = sameTextCharacters.containsNear( textX, textY, tolerance );
             if( !suppressCharacter )
             {
                 sameTextCharacters.add( text );
@@ -1220,4 +1532,152 @@ public class PDFTextStripper extends PDFStreamEngine
     public void setAverageCharTolerance(float averageCharTolerance) {
         this.averageCharTolerance = averageCharTolerance;
     }
+
+    /**
+     * This will get the number of threads that are used to process the pages.
+     *
+     * @return The number of threads.
+     */
+    public int getThreadCount()
+    {
+        return threadCount;
+    }
+
+    /**
+     * This will set the number of threads that are used to process the pages.
+     * With more than one thread every thread processes whole pages with its own
+     * stripper and the text is still written in page order.  Subclasses have to
+     * override createPageStripper() to support this.  The default is one thread.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreadCount( int threads )
+    {
+        threadCount = threads;
+    }
+
+    /**
+     * This will get the executor that processes the pages when the thread count
+     * is greater than one.
+     *
+     * @return The executor, or null if a pool is created for every document.
+     */
+    public ExecutorService getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * This will set the executor that processes the pages when the thread count
+     * is greater than one, so that a pool can be shared by several documents.
+     * The executor is not shut down by this class.  If it is null, which is the
+     * default, a pool of thread count threads is created for every document.
+     *
+     * @param pageExecutor The executor to use, or null.
+     */
+    public void setExecutor( ExecutorService pageExecutor )
+    {
+        executor = pageExecutor;
+    }
+
+    /**
+     * The positions of all shown occurrences of one character on a page,
+     * bucketed in a grid so that the duplicate overlapping text check only
+     * needs to look at the occurrences close to a new one.
+     */
+    private class CharacterGrid
+    {
+        private static final float CELL_SIZE = 8f;
+        private static final int MAX_CELLS_PER_LOOKUP = 64;
+
+        private List characters = new ArrayList();
+        private Map cells = new HashMap();
+
+        /**
+         * This will add a shown character to the grid.
+         *
+         * @param text The character to add.
+         */
+        public void add( TextPosition text )
+        {
+            characters.add( text );
+            Long key = new Long( cellKey( cell( text.getX() ), cell( text.getY() ) ) );
+            List cellCharacters = (List)cells.get( key );
+            if( cellCharacters == null )
+            {
+                cellCharacters = new ArrayList( 2 );
+                cells.put( key, cellCharacters );
+            }
+            cellCharacters.add( text );
+        }
+
+        /**
+         * This will check if a character has been shown within the tolerance
+         * of a position, in both directions.
+         *
+         * @param x The x position.
+         * @param y The y position.
+         * @param tolerance The allowed distance.
+         *
+         * @return true If an occurrence was found near the position.
+         */
+        public boolean containsNear( float x, float y, float tolerance )
+        {
+            if( !(tolerance > 0) )
+            {
+                //within() can never be true
+                return false;
+            }
+            //widen the lookup a little so that rounding in within() can't
+            //put a matching character in a cell that is not checked.
+            float reachX = tolerance + (Math.abs( x ) + tolerance) * 1e-6f;
+            float reachY = tolerance + (Math.abs( y ) + tolerance) * 1e-6f;
+            int minCellX = cell( x - reachX );
+            int maxCellX = cell( x + reachX );
+            int minCellY = cell( y - reachY );
+            int maxCellY = cell( y + reachY );
+            long cellCount = ((long)maxCellX - minCellX + 1) * ((long)maxCellY - minCellY + 1);
+            if( cellCount > MAX_CELLS_PER_LOOKUP || cellCount > characters.size() )
+            {
+                return containsNear( characters, x, y, tolerance );
+            }
+            for( int cellX = minCellX; cellX <= maxCellX; cellX++ )
+            {
+                for( int cellY = minCellY; cellY <= maxCellY; cellY++ )
+                {
+                    List cellCharacters = (List)cells.get( new Long( cellKey( cellX, cellY ) ) );
+                    if( cellCharacters != null && containsNear( cellCharacters, x, y, tolerance ) )
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean containsNear( List candidates, float x, float y, float tolerance )
+        {
+            for( int i=0; i<candidates.size(); i++ )
+            {
+                TextPosition character = (TextPosition)candidates.get( i );
+                if( character.getCharacter() != null &&
+                    within( character.getX(), x, tolerance ) &&
+                    within( character.getY(), y, tolerance ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int cell( float value )
+        {
+            return (int)Math.floor( value / CELL_SIZE );
+        }
+
+        private long cellKey( int cellX, int cellY )
+        {
+            return (((long)cellX) << 32) | (cellY & 0xFFFFFFFFL);
+        }
+    }
 }
@@ -20,6 +20,7 @@ import org.apache.pdfbox.util.PDFOperator;
 import org.apache.pdfbox.util.PDFStreamEngine;
 import org.apache.pdfbox.exceptions.LoggingObject;
 import java.util.List;
+import java.util.logging.Level;
 import java.io.IOException;
 
 /**
@@ -77,4 +78,21 @@ public abstract class OperatorProcessor extends LoggingObject
      * @throws IOException If there is an error processing the operator.
      */
     public abstract void process(PDFOperator operator, List arguments) throws IOException;
+
+    /**
+     * This will report a problem with an operator of the page being processed.
+     *
+     * @param level The severity of the problem.
+     * @param message A description of the problem.
+     * @param cause The exception that caused the problem, or null.
+     * @param operator The operator that is being processed.
+     */
+    protected void report( Level level, String message, Throwable cause, PDFOperator operator )
+    {
+        if( isDiagnosticEnabled( level ) )
+        {
+            report( level, message, cause, context == null ? null : context.getCurrentPage(),
+                null, operator == null ? null : operator.getOperation() );
+        }
+    }
 }
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.util.operator;
 
 import java.util.List;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.pdmodel.graphics.color.*;
 import org.apache.pdfbox.util.*;
@@ -62,10 +63,10 @@ public class SetNonStrokingColor extends OperatorProcessor
                 newOperator.setContext(getContext());
                 newOperator.process(operator, arguments);
             }
-            else
-                logger().warning("Not supported colorspace "+colorSpace.getName() + " within operator "+operator.getOperation());
+            else if( isDiagnosticEnabled( Level.WARNING ) )
+                report( Level.WARNING, "Not supported colorspace "+colorSpace.getName(), null, operator );
     }
     else
-        logger().warning("Colorspace not found in "+getClass().getName()+".process!!");
+        report( Level.WARNING, "Colorspace not found", null, operator );
     }
 }
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.util.operator;
 
 import java.util.List;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.pdmodel.graphics.color.*;
@@ -73,8 +74,8 @@ public class SetNonStrokingSeparation extends OperatorProcessor
             newOperator.setContext(getContext());
             newOperator.process(operator, argList);
         }
-        else
-            logger().warning("Not supported colorspace "+colorSpace.getName() + " within operator "+operator.getOperation());
+        else if( isDiagnosticEnabled( Level.WARNING ) )
+            report( Level.WARNING, "Not supported colorspace "+colorSpace.getName(), null, operator );
     }
         
     //} else throw new IOException ("Invalid attempt to process colorspace " + colorSpace.toString() + " in SetNonStrokingSeparation");
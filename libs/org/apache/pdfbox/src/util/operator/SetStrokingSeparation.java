@@ -17,6 +17,7 @@
 package org.apache.pdfbox.util.operator;
 
 import java.util.List;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.cos.COSNumber;
 import org.apache.pdfbox.pdmodel.graphics.color.*;
@@ -42,12 +43,18 @@ public class SetStrokingSeparation extends OperatorProcessor
     {
         PDColorSpaceInstance colorInstance = context.getGraphicsState().getStrokingColorSpace();
         PDColorSpace colorSpace = colorInstance.getColorSpace() ;//.getAlternateColorSpace();
-	    logger().info("handling color space " + colorSpace.toString());
+        if( logger().isLoggable( Level.FINE ) )
+        {
+            logger().fine("handling color space " + colorSpace.toString());
+        }
 	    //logger().info("Arguments: " + arguments.toString());
 	if (colorSpace instanceof PDSeparation){
 		PDSeparation sep = (PDSeparation) colorSpace;
 		colorSpace = sep.getAlternateColorSpace();
-		logger().info("now handling alternate color space " + colorSpace.toString());
+		if( logger().isLoggable( Level.FINE ) )
+		{
+		    logger().fine("now handling alternate color space " + colorSpace.toString());
+		}
 		
 		if (colorSpace != null) 
 		{
@@ -70,8 +77,8 @@ public class SetStrokingSeparation extends OperatorProcessor
 				newOperator.setContext(getContext());
 				newOperator.process(operator, sep.getColorValues().toList());
 			}
-			else
-				logger().warning("Not supported colorspace "+colorSpace.getName() + " within operator "+operator.getOperation());
+			else if( isDiagnosticEnabled( Level.WARNING ) )
+				report( Level.WARNING, "Not supported colorspace "+colorSpace.getName(), null, operator );
 		}
 		
 	} else throw new IOException ("Invalid attempt to process colorspace " + colorSpace.toString() + " in SetStrokingSeparation");
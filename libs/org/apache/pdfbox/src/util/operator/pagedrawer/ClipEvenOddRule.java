@@ -21,6 +21,7 @@ import java.awt.RenderingHints;
 import java.awt.geom.GeneralPath;
 import java.io.IOException;
 import java.util.List;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.pdfviewer.PageDrawer;
 import org.apache.pdfbox.util.PDFOperator;
@@ -50,7 +51,7 @@ public class ClipEvenOddRule extends OperatorProcessor
             PageDrawer drawer = (PageDrawer)context;
             drawer.SetClippingPath(GeneralPath.WIND_EVEN_ODD);
             } catch (Exception e) {
-                logger().warning(e.getMessage() + "\n at\n" + FullStackTrace(e));
+                report( Level.WARNING, "Unable to process operator", e, operator );
             }
     }
 }
@@ -17,6 +17,7 @@
 package org.apache.pdfbox.util.operator.pagedrawer;
 
 import java.util.List;
+import java.util.logging.Level;
 import java.io.IOException;
 
 import org.apache.pdfbox.pdfviewer.PageDrawer;
@@ -45,7 +46,7 @@ public class ClosePath extends OperatorProcessor
         }
         catch( Throwable t )
         {
-            logger().warning(t.getMessage() + "\n at\n" + FullStackTrace(t));
+            report( Level.WARNING, "Unable to process operator", t, operator );
         }
     }
 }
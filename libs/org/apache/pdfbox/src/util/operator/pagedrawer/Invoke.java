@@ -23,6 +23,7 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.cos.COSStream;
@@ -57,7 +58,7 @@ public class Invoke extends OperatorProcessor
         Dimension pageSize = drawer.getPageSize();
         Graphics2D graphics = drawer.getGraphics();
         COSName objectName = (COSName)arguments.get( 0 );
-        Map xobjects = drawer.getResources().getXObjects();
+        Map xobjects = drawer.getXObjects();
         PDXObject xobject = (PDXObject)xobjects.get( objectName.getName() );
         if( xobject instanceof PDXObjectImage )
         {
@@ -65,18 +66,30 @@ public class Invoke extends OperatorProcessor
             try
             {
         image.setGraphicsState(drawer.getGraphicsState());
-                BufferedImage awtImage = image.getRGBImage();
+                Matrix ctm = drawer.getGraphicsState().getCurrentTransformationMatrix();
+
+                //decode only as many pixels as will end up on the device
+                AffineTransform deviceAT = graphics.getTransform();
+                double deviceScaleX = Math.hypot( deviceAT.getScaleX(), deviceAT.getShearY() );
+                double deviceScaleY = Math.hypot( deviceAT.getShearX(), deviceAT.getScaleY() );
+                int targetWidth = (int)Math.ceil( deviceScaleX *
+                    Math.hypot( ctm.getValue( 0, 0 ), ctm.getValue( 0, 1 ) ) );
+                int targetHeight = (int)Math.ceil( deviceScaleY *
+                    Math.hypot( ctm.getValue( 1, 0 ), ctm.getValue( 1, 1 ) ) );
+                BufferedImage awtImage = image.getRGBImage( targetWidth, targetHeight );
                 if (awtImage == null) {
-            logger().warning("getRGBImage returned NULL");
+                    report( Level.WARNING, "Unable to decode image " + objectName.getName(), null, operator );
                     return;//TODO PKOCH
                 }
                 int imageWidth = awtImage.getWidth();
                 int imageHeight = awtImage.getHeight();
                 double pageHeight = pageSize.getHeight();
 
-        logger().info("imageWidth: " + imageWidth + "\t\timageHeight: " + imageHeight);
+                if( logger().isLoggable( Level.FINE ) )
+                {
+                    logger().fine("imageWidth: " + imageWidth + "\t\timageHeight: " + imageHeight);
+                }
         
-                Matrix ctm = drawer.getGraphicsState().getCurrentTransformationMatrix();
                 int pageRotation = page.findRotation();
 
                 AffineTransform ctmAT = ctm.createAffineTransform();
@@ -103,8 +116,7 @@ public class Invoke extends OperatorProcessor
             }
             catch( Exception e )
             {
-                e.printStackTrace();
-        logger().severe(e.toString() + "\n at\n" + FullStackTrace(e));
+                report( Level.SEVERE, "Unable to draw image " + objectName.getName(), e, operator );
             }
         }
         else if(xobject instanceof PDXObjectForm)
@@ -19,6 +19,7 @@ package org.apache.pdfbox.util.operator.pagedrawer;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Point2D;
 import java.util.List;
+import java.util.logging.Level;
 import java.io.IOException;
 
 import org.apache.pdfbox.cos.COSNumber;
@@ -60,7 +61,7 @@ public class MoveTo extends OperatorProcessor
 
             drawer.setLinePath( newPath );
         }catch (Exception E){
-            logger().warning( E.toString() + "/n at/n" + FullStackTrace(E));
+            report( Level.WARNING, "Unable to process operator", E, operator );
         }
     }
 }